@@ -0,0 +1,84 @@
+package net.kozelka.contentcheck.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates deterministic archives with many plain entries for benchmarks.
+ * Archives with realistic jar content come from {@link net.kozelka.contentcheck.SyntheticArchive}.
+ *
+ * @author Petr Kozelka
+ */
+public final class BenchmarkArchives {
+    private BenchmarkArchives() {
+    }
+
+    /**
+     * Creates a war with given number of jars in <code>WEB-INF/lib</code>, plus plain resources up to <code>entryCount</code>.
+     * Every other jar has vendor manifest entry <code>Implementation-Vendor-Id: com.vendor1</code>.
+     */
+    public static File war(File dir, int entryCount, int jarCount) throws IOException {
+        final File war = new File(dir, String.format("entries-%d-jars-%d.war", entryCount, jarCount));
+        final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(war));
+        try {
+            for (int i = 0; i < jarCount; i++) {
+                zos.putNextEntry(new ZipEntry(libJarName(i)));
+                zos.write(jar(i, i % 2 == 0 ? "com.vendor1" : null));
+                zos.closeEntry();
+            }
+            for (int i = jarCount; i < entryCount; i++) {
+                zos.putNextEntry(new ZipEntry(String.format("static/d%03d/resource%06d.txt", i % 1000, i)));
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+        return war;
+    }
+
+    public static String libJarName(int index) {
+        return String.format("WEB-INF/lib/lib%05d-1.0.jar", index);
+    }
+
+    private static byte[] jar(int index, String vendorId) throws IOException {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (vendorId != null) {
+            manifest.getMainAttributes().putValue("Implementation-Vendor-Id", vendorId);
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final JarOutputStream jos = new JarOutputStream(baos, manifest);
+        try {
+            jos.putNextEntry(new ZipEntry(String.format("org/example/lib%05d/Main.class", index)));
+            jos.closeEntry();
+        } finally {
+            jos.close();
+        }
+        return baos.toByteArray();
+    }
+
+    public static File createTempDir(String prefix) throws IOException {
+        final File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        return dir;
+    }
+
+    public static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
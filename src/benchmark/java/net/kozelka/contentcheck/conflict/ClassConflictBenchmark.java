@@ -0,0 +1,72 @@
+package net.kozelka.contentcheck.conflict;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.kozelka.contentcheck.SyntheticArchive;
+import net.kozelka.contentcheck.benchmark.BenchmarkArchives;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Loading a war's classpath, and detecting class conflicts in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassConflictBenchmark {
+    @Param({"10", "100", "400"})
+    int jarCount;
+
+    @Param({"200"})
+    int classesPerJar;
+
+    @Param({"0.0", "0.1", "0.3"})
+    double overlapRatio;
+
+    @Param({"0.0", "0.2"})
+    double duplicateRatio;
+
+    private File dir;
+    private File war;
+    private List<ArchiveInfo> archives;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkArchives.createTempDir("conflicts");
+        final SyntheticArchive generator = new SyntheticArchive();
+        generator.setJarCount(jarCount);
+        generator.setClassesPerJar(classesPerJar);
+        generator.setOverlapRatio(overlapRatio);
+        generator.setDuplicateRatio(duplicateRatio);
+        war = generator.writeWar(new File(dir, "conflicts.war"));
+        archives = ArchiveLoader.loadWar(war);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkArchives.delete(dir);
+    }
+
+    @Benchmark
+    public List<ArchiveInfo> loadWar() throws IOException {
+        return ArchiveLoader.loadWar(war);
+    }
+
+    @Benchmark
+    public ClassConflictReport analyze() {
+        return new ClassConflictAnalyzer().analyze(archives);
+    }
+}
@@ -0,0 +1,62 @@
+package net.kozelka.contentcheck.expect.impl;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Matching actual entries against listing rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompareEntriesBenchmark {
+    @Param({"1000", "10000"})
+    int actualCount;
+
+    @Param({"100", "1000", "10000"})
+    int listingSize;
+
+    /**
+     * <code>literal</code> - every rule is an exact path; <code>wildcard</code> - rules use <code>*</code> for versions
+     */
+    @Param({"literal", "wildcard"})
+    String rules;
+
+    private Set<ApprovedEntry> approvedEntries;
+    private Set<ActualEntry> actualEntries;
+
+    @Setup
+    public void setup() {
+        approvedEntries = new LinkedHashSet<ApprovedEntry>();
+        for (int i = 0; i < listingSize; i++) {
+            final ApprovedEntry approved = new ApprovedEntry();
+            approved.setUri("wildcard".equals(rules)
+                ? String.format("WEB-INF/lib/lib%05d-*.jar", i)
+                : String.format("WEB-INF/lib/lib%05d-1.0.jar", i));
+            approvedEntries.add(approved);
+        }
+        actualEntries = new LinkedHashSet<ActualEntry>();
+        for (int i = 0; i < actualCount; i++) {
+            final ActualEntry actual = new ActualEntry();
+            actual.setUri(String.format("WEB-INF/lib/lib%05d-1.0.jar", i));
+            actualEntries.add(actual);
+        }
+    }
+
+    @Benchmark
+    public ApproverReport compareEntries() {
+        return ContentChecker.compareEntries(approvedEntries, actualEntries);
+    }
+}
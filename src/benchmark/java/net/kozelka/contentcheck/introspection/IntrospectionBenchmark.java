@@ -0,0 +1,60 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.kozelka.contentcheck.benchmark.BenchmarkArchives;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Listing archive entries, and walking them with vendor filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IntrospectionBenchmark {
+    @Param({"1000", "10000", "100000", "500000"})
+    int entryCount;
+
+    @Param({"100"})
+    int jarCount;
+
+    private File dir;
+    private File war;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkArchives.createTempDir("introspection");
+        war = BenchmarkArchives.war(dir, entryCount, jarCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkArchives.delete(dir);
+    }
+
+    @Benchmark
+    public Set<String> zipList() throws IOException {
+        return new ZipArchiveIntrospectorStrategy().list(war);
+    }
+
+    @Benchmark
+    public int walkWithVendorFilter() throws IOException {
+        final VendorFilter vendorFilter = new VendorFilter("com.vendor1");
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*.jar");
+        introspector.setEntryContentFilter(vendorFilter);
+        introspector.setSourceFile(war);
+        return introspector.walk();
+    }
+}
@@ -15,6 +15,7 @@ public final class ClassConflictReport {
     private final List<ArchiveConflict> archiveConflicts = new ArrayList<ArchiveConflict>();
     private final List<ResourceWithOptions> resources = new ArrayList<ResourceWithOptions>();
     private int totalOverlaps;
+    private int totalConflicts;
 
     public List<ArchiveConflict> getArchiveConflicts() {
         return archiveConflicts;
@@ -36,4 +37,15 @@ public final class ClassConflictReport {
         return totalOverlaps;
     }
 
+    public void setTotalConflicts(int totalConflicts) {
+        this.totalConflicts = totalConflicts;
+    }
+
+    /**
+     * @return number of overlaps that are serious conflicts, ie. not just duplicates
+     */
+    public int getTotalConflicts() {
+        return totalConflicts;
+    }
+
 }
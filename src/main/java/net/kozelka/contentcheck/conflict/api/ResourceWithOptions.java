@@ -15,9 +15,11 @@ public final class ResourceWithOptions {
     private String uri;
     private final Map<String, List<ArchiveInfo>> candidatesByHash = new HashMap<String, List<ArchiveInfo>>();
     private final List<ArchiveInfo> allCandidates = new ArrayList<ArchiveInfo>();
+    private final List<String> allHashes = new ArrayList<String>();
 
     public void addCandidate(String hash, ArchiveInfo archive) {
         allCandidates.add(archive);
+        allHashes.add(hash);
         //
         List<ArchiveInfo> candidates = candidatesByHash.get(hash);
         if (candidates == null) {
@@ -47,6 +49,13 @@ public final class ResourceWithOptions {
         return allCandidates;
     }
 
+    /**
+     * @return hashes of the resource in {@link #getAllCandidates() all candidates}, in the same order
+     */
+    public List<String> getAllHashes() {
+        return allHashes;
+    }
+
     public Map<String, List<ArchiveInfo>> getCandidatesByHash() {
         return candidatesByHash;
     }
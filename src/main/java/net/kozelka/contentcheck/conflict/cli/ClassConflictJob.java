@@ -0,0 +1,87 @@
+package net.kozelka.contentcheck.conflict.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+
+/**
+ * Loads and analyzes one input of the {@link ClassConflictMain CLI}, measuring how long each phase takes.
+ * Failures are captured rather than thrown, so that one broken input does not spoil the whole batch.
+ *
+ * @author Petr Kozelka
+ */
+class ClassConflictJob implements Callable<ClassConflictJob> {
+    private final File input;
+    private ClassConflictReport report;
+    private Throwable error;
+    private long loadMillis;
+    private long analyzeMillis;
+    private int resourceCount;
+
+    ClassConflictJob(File input) {
+        this.input = input;
+    }
+
+    public ClassConflictJob call() {
+        try {
+            final long start = System.nanoTime();
+            final List<ArchiveInfo> archives = ArchiveLoader.loadArchive(input);
+            final long loaded = System.nanoTime();
+            report = new ClassConflictAnalyzer().analyze(archives);
+            final long analyzed = System.nanoTime();
+            loadMillis = (loaded - start) / 1000000;
+            analyzeMillis = (analyzed - loaded) / 1000000;
+            for (ArchiveInfo archive : archives) {
+                resourceCount += archive.getResourceCount();
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        return this;
+    }
+
+    /**
+     * Marks the input failed by a problem not captured by {@link #call()}.
+     */
+    void fail(Throwable error) {
+        this.report = null;
+        this.error = error;
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    /**
+     * @return the report, or null when the input {@link #getError() failed}
+     */
+    public ClassConflictReport getReport() {
+        return report;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public long getAnalyzeMillis() {
+        return analyzeMillis;
+    }
+
+    /**
+     * @return number of resources in all classpath elements of the input
+     */
+    public int getResourceCount() {
+        return resourceCount;
+    }
+}
@@ -1,37 +1,227 @@
 package net.kozelka.contentcheck.conflict.cli;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
-import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
-import net.kozelka.contentcheck.conflict.impl.ClassConflictPrinter;
-import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
-import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * <h1>CLI for class conflicts.</h1>
- * @todo Synopsis: cc [--jar-report] [--class-report] [jar|war|ear]
+ * <p>Synopsis: <code>cc [options] (war|ear|jar|directory)...</code></p>
+ * <p>Each file is analyzed separately; directories are searched recursively for wars, ears and jars.
+ * A directory containing <code>WEB-INF</code> is analyzed as an exploded webapp.
+ * Inputs are analyzed concurrently, but results are always written in the order of inputs.</p>
+ * <ul>
+ *     <li><code>--jar-report</code> - report overlaps between jar pairs (default when no report is selected)</li>
+ *     <li><code>--class-report</code> - report each conflicting class, with all the jars supplying it</li>
+ *     <li><code>--format text|json|csv</code> - output format, default is <code>text</code></li>
+ *     <li><code>--output FILE</code> - write the report to given file instead of standard output</li>
+ *     <li><code>--threads N</code> - number of inputs analyzed in parallel; defaults to number of CPUs</li>
+ *     <li><code>--preview N</code> - how many classes to list per jar pair; <code>-1</code> lists all</li>
+ *     <li><code>--max-overlaps N</code> - exit with {@link #EXIT_THRESHOLD} when any input has more overlaps</li>
+ *     <li><code>--max-conflicts N</code> - exit with {@link #EXIT_THRESHOLD} when any input has more serious conflicts</li>
+ *     <li><code>--stats</code> - print timing information to standard error</li>
+ * </ul>
  * @author Petr Kozelka
  */
 public class ClassConflictMain {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_THRESHOLD = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_ERROR = 3;
+
+    private final List<File> inputs = new ArrayList<File>();
+    private boolean jarReport;
+    private boolean classReport;
+    private ClassConflictReportWriter.Format format = ClassConflictReportWriter.Format.TEXT;
+    private File outputFile;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int previewThreshold = 5;
+    private int maxOverlaps = -1;
+    private int maxConflicts = -1;
+    private boolean stats;
+
     public static void main(String ... args) throws IOException {
-        final int previewThreshold = 5;
-        final File war = new File(args[0]);
-
-        System.out.println("Detecting conflict in " + war);
-        System.out.println("Class preview threshold: " + previewThreshold);
-        final ClassConflictAnalyzer analyzer = new ClassConflictAnalyzer();
-        final List<ArchiveInfo> archives = ArchiveLoader.loadWar(war);
-        final ClassConflictReport report = analyzer.analyze(archives);
-        final ClassConflictPrinter printer = new ClassConflictPrinter();
-        printer.setPreviewThreshold(previewThreshold);
-        printer.setOutput(new StreamConsumer() {
-            public void consumeLine(String line) {
-                System.out.println(line);
+        final int exitCode = new ClassConflictMain().run(System.out, System.err, args);
+        if (exitCode != EXIT_OK) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs the CLI without terminating the JVM.
+     * @return the exit code
+     */
+    public int run(PrintStream stdout, PrintStream stderr, String ... args) throws IOException {
+        try {
+            parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            stderr.println("ERROR: " + e.getMessage());
+            stderr.println("Usage: cc [--jar-report] [--class-report] [--format text|json|csv] [--output FILE] [--threads N]"
+                + " [--preview N] [--max-overlaps N] [--max-conflicts N] [--stats] (war|ear|jar|directory)...");
+            return EXIT_USAGE;
+        }
+        final List<File> files = new ArrayList<File>();
+        for (File input : inputs) {
+            collectInputFiles(input, files);
+        }
+
+        final PrintStream out = outputFile == null ? stdout : new PrintStream(new FileOutputStream(outputFile), false, "UTF-8");
+        final long start = System.nanoTime();
+        final int poolSize = Math.max(1, Math.min(threads, files.size()));
+        final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        int exitCode = EXIT_OK;
+        try {
+            final List<ClassConflictJob> jobs = new ArrayList<ClassConflictJob>(files.size());
+            final List<Future<ClassConflictJob>> futures = new ArrayList<Future<ClassConflictJob>>(files.size());
+            for (File file : files) {
+                final ClassConflictJob job = new ClassConflictJob(file);
+                jobs.add(job);
+                futures.add(executor.submit(job));
+            }
+            final ClassConflictReportWriter writer = new ClassConflictReportWriter(out, format);
+            writer.setJarReport(jarReport || !classReport);
+            writer.setClassReport(classReport);
+            writer.setPreviewThreshold(previewThreshold);
+            writer.begin();
+            for (int i = 0; i < jobs.size(); i++) {
+                final ClassConflictJob job = jobs.get(i);
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // errors escaping the job fail just its input
+                    job.fail(e.getCause());
+                }
+                writer.write(job);
+                exitCode = Math.max(exitCode, evaluate(job, stderr));
+            }
+            writer.end();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted: " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+            if (outputFile != null) {
+                out.close();
+            }
+        }
+        if (stats) {
+            stderr.println(String.format("Stats: %d inputs analyzed by %d threads in %d ms",
+                files.size(), poolSize, (System.nanoTime() - start) / 1000000));
+        }
+        return exitCode;
+    }
+
+    private int evaluate(ClassConflictJob job, PrintStream stderr) {
+        final ClassConflictReport report = job.getReport();
+        if (report == null) {
+            stderr.println(String.format("ERROR: cannot analyze %s: %s", job.getInput(), job.getError()));
+            return EXIT_ERROR;
+        }
+        if (stats) {
+            stderr.println(String.format("Stats: %s: %d archives, %d resources, load %d ms, analyze %d ms",
+                job.getInput(),
+                report.getExploredArchives().size(),
+                job.getResourceCount(),
+                job.getLoadMillis(),
+                job.getAnalyzeMillis()));
+        }
+        int exitCode = EXIT_OK;
+        if (maxOverlaps >= 0 && report.getTotalOverlaps() > maxOverlaps) {
+            stderr.println(String.format("%s: %d overlaps exceed the tolerated %d", job.getInput(), report.getTotalOverlaps(), maxOverlaps));
+            exitCode = EXIT_THRESHOLD;
+        }
+        if (maxConflicts >= 0 && report.getTotalConflicts() > maxConflicts) {
+            stderr.println(String.format("%s: %d conflicts exceed the tolerated %d", job.getInput(), report.getTotalConflicts(), maxConflicts));
+            exitCode = EXIT_THRESHOLD;
+        }
+        return exitCode;
+    }
+
+    private void parseArgs(String ... args) {
+        final List<String> argList = Arrays.asList(args);
+        for (int i = 0; i < argList.size(); i++) {
+            final String arg = argList.get(i);
+            if (arg.equals("--jar-report")) {
+                jarReport = true;
+            } else if (arg.equals("--class-report")) {
+                classReport = true;
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.equals("--format")) {
+                final String value = optionValue(argList, ++i, arg);
+                try {
+                    format = ClassConflictReportWriter.Format.valueOf(value.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unsupported format: " + value);
+                }
+            } else if (arg.equals("--output")) {
+                outputFile = new File(optionValue(argList, ++i, arg));
+            } else if (arg.equals("--threads")) {
+                threads = intValue(argList, ++i, arg);
+                if (threads < 1) {
+                    throw new IllegalArgumentException("Option --threads must be positive");
+                }
+            } else if (arg.equals("--preview")) {
+                previewThreshold = intValue(argList, ++i, arg);
+            } else if (arg.equals("--max-overlaps")) {
+                maxOverlaps = intValue(argList, ++i, arg);
+            } else if (arg.equals("--max-conflicts")) {
+                maxConflicts = intValue(argList, ++i, arg);
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                final File input = new File(arg);
+                if (!input.exists()) {
+                    throw new IllegalArgumentException("File not found: " + arg);
+                }
+                inputs.add(input);
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input specified");
+        }
+    }
+
+    private static String optionValue(List<String> args, int index, String option) {
+        if (index >= args.size()) {
+            throw new IllegalArgumentException("Option " + option + " requires a value");
+        }
+        return args.get(index);
+    }
+
+    private static int intValue(List<String> args, int index, String option) {
+        final String value = optionValue(args, index, option);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + option + " requires a number, not " + value);
+        }
+    }
+
+    private static void collectInputFiles(File input, List<File> files) {
+        if (!input.isDirectory() || new File(input, "WEB-INF").isDirectory()) {
+            files.add(input);
+            return;
+        }
+        final File[] children = input.listFiles();
+        if (children == null) return;
+        Arrays.sort(children);
+        for (File child : children) {
+            final String name = child.getName();
+            if (child.isDirectory()) {
+                collectInputFiles(child, files);
+            } else if (name.endsWith(".war") || name.endsWith(".ear") || name.endsWith(".jar")) {
+                files.add(child);
             }
-        });
-        printer.print(report);
+        }
     }
 }
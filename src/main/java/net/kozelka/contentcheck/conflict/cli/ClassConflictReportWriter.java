@@ -0,0 +1,213 @@
+package net.kozelka.contentcheck.conflict.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.kozelka.contentcheck.conflict.api.ArchiveConflict;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.api.ResourceWithOptions;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictPrinter;
+import net.kozelka.contentcheck.conflict.impl.ConflictingResourcesReport;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.model.ResourceInfo;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Writes results of {@link ClassConflictJob jobs} in one of supported {@link Format formats}.
+ * Results are written one by one, as they come, so that the output can be streamed.
+ *
+ * @author Petr Kozelka
+ */
+class ClassConflictReportWriter {
+    enum Format {
+        TEXT, JSON, CSV
+    }
+
+    private final PrintStream out;
+    private final Format format;
+    private boolean jarReport = true;
+    private boolean classReport;
+    private int previewThreshold = 5;
+    private int written;
+
+    ClassConflictReportWriter(PrintStream out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    public void setJarReport(boolean jarReport) {
+        this.jarReport = jarReport;
+    }
+
+    public void setClassReport(boolean classReport) {
+        this.classReport = classReport;
+    }
+
+    public void setPreviewThreshold(int previewThreshold) {
+        this.previewThreshold = previewThreshold;
+    }
+
+    public void begin() {
+        switch (format) {
+            case JSON:
+                out.println("[");
+                break;
+            case CSV:
+                out.println("record,source,name,other,overlaps,conflicts,duplicates");
+                break;
+            default:
+                out.println("Class preview threshold: " + previewThreshold);
+        }
+    }
+
+    public void write(ClassConflictJob job) throws IOException {
+        switch (format) {
+            case JSON:
+                writeJson(job);
+                break;
+            case CSV:
+                writeCsv(job);
+                break;
+            default:
+                writeText(job);
+        }
+        written++;
+    }
+
+    public void end() {
+        if (format == Format.JSON) {
+            out.println();
+            out.println("]");
+        }
+        out.flush();
+    }
+
+    private void writeText(ClassConflictJob job) {
+        out.println("Detecting conflict in " + job.getInput());
+        if (job.getError() != null) {
+            out.println("ERROR: " + job.getError());
+            return;
+        }
+        final StreamConsumer output = new StreamConsumer() {
+            public void consumeLine(String line) {
+                out.println(line);
+            }
+        };
+        if (jarReport) {
+            final ClassConflictPrinter printer = new ClassConflictPrinter();
+            printer.setPreviewThreshold(previewThreshold);
+            printer.setOutput(output);
+            printer.print(job.getReport());
+        }
+        if (classReport) {
+            final ConflictingResourcesReport printer = new ConflictingResourcesReport();
+            printer.setOutput(output);
+            printer.print(job.getReport());
+        }
+    }
+
+    private void writeJson(ClassConflictJob job) throws IOException {
+        final Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put("source", job.getInput().getPath());
+        final ClassConflictReport report = job.getReport();
+        if (report == null) {
+            json.put("error", String.valueOf(job.getError()));
+        } else {
+            json.put("archives", report.getExploredArchives().size());
+            json.put("totalOverlaps", report.getTotalOverlaps());
+            json.put("totalConflicts", report.getTotalConflicts());
+            if (jarReport) {
+                final List<Map<String, Object>> pairs = new ArrayList<Map<String, Object>>();
+                for (ArchiveConflict archiveConflict : report.getArchiveConflicts()) {
+                    final Map<String, Object> pair = new LinkedHashMap<String, Object>();
+                    pair.put("archive", archiveConflict.getThisArchive().getKey());
+                    pair.put("other", archiveConflict.getThatArchive().getKey());
+                    pair.put("overlaps", archiveConflict.getOverlapingResources().size());
+                    pair.put("conflicts", archiveConflict.getConflictingResources().size());
+                    pair.put("duplicates", archiveConflict.getDuplicateResources().size());
+                    final List<String> preview = new ArrayList<String>();
+                    for (ResourceInfo resource : archiveConflict.getOverlapingResources()) {
+                        if (previewThreshold >= 0 && preview.size() >= previewThreshold) break;
+                        preview.add(resource.getUri());
+                    }
+                    pair.put("preview", preview);
+                    pairs.add(pair);
+                }
+                json.put("archiveConflicts", pairs);
+            }
+            if (classReport) {
+                final List<Map<String, Object>> resources = new ArrayList<Map<String, Object>>();
+                for (ResourceWithOptions rwo : report.getResources()) {
+                    if (!rwo.hasConflicts()) continue;
+                    final Map<String, Object> resource = new LinkedHashMap<String, Object>();
+                    resource.put("uri", rwo.getUri());
+                    final Map<String, List<String>> candidates = new LinkedHashMap<String, List<String>>();
+                    for (Map.Entry<String, List<ArchiveInfo>> entry : rwo.getCandidatesByHash().entrySet()) {
+                        final List<String> keys = new ArrayList<String>();
+                        for (ArchiveInfo archive : entry.getValue()) {
+                            keys.add(archive.getKey());
+                        }
+                        candidates.put(entry.getKey(), keys);
+                    }
+                    resource.put("candidatesByHash", candidates);
+                    resources.add(resource);
+                }
+                json.put("conflictingResources", resources);
+            }
+        }
+        if (written > 0) {
+            out.println(",");
+        }
+        out.print(new ObjectMapper().writeValueAsString(json));
+    }
+
+    private void writeCsv(ClassConflictJob job) {
+        final String source = job.getInput().getPath();
+        final ClassConflictReport report = job.getReport();
+        if (report == null) {
+            csv("error", source, String.valueOf(job.getError()), "", "", "", "");
+            return;
+        }
+        csv("total", source, "", "", report.getTotalOverlaps(), report.getTotalConflicts(), report.getTotalOverlaps() - report.getTotalConflicts());
+        if (jarReport) {
+            for (ArchiveConflict archiveConflict : report.getArchiveConflicts()) {
+                csv("pair", source,
+                    archiveConflict.getThisArchive().getKey(),
+                    archiveConflict.getThatArchive().getKey(),
+                    archiveConflict.getOverlapingResources().size(),
+                    archiveConflict.getConflictingResources().size(),
+                    archiveConflict.getDuplicateResources().size());
+            }
+        }
+        if (classReport) {
+            for (ResourceWithOptions rwo : report.getResources()) {
+                if (!rwo.hasConflicts()) continue;
+                for (Map.Entry<String, List<ArchiveInfo>> entry : rwo.getCandidatesByHash().entrySet()) {
+                    for (ArchiveInfo archive : entry.getValue()) {
+                        csv("resource", source, rwo.getUri(), archive.getKey(), entry.getKey(), "", "");
+                    }
+                }
+            }
+        }
+    }
+
+    private void csv(Object... values) {
+        final StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            final String s = String.valueOf(value);
+            if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0) {
+                sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(s);
+            }
+        }
+        out.println(sb);
+    }
+}
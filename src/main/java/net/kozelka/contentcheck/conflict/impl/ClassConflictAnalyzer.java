@@ -29,10 +29,13 @@ public class ClassConflictAnalyzer {
         report.getResources().addAll(cpr.getResources());
         // count: involved jars, class overlaps (duplications, conflicts),
         int totalOverlaps = 0;
+        int totalConflicts = 0;
         for (ArchiveConflict archiveConflict : cpr.getConflicts()) {
             totalOverlaps += archiveConflict.getOverlapingResources().size();
+            totalConflicts += archiveConflict.getConflictingResources().size();
         }
         report.setTotalOverlaps(totalOverlaps);
+        report.setTotalConflicts(totalConflicts);
         return report;
     }
 
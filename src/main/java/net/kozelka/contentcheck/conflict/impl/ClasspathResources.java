@@ -2,6 +2,7 @@ package net.kozelka.contentcheck.conflict.impl;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import net.kozelka.contentcheck.conflict.api.ArchiveConflict;
 import net.kozelka.contentcheck.conflict.api.ResourceWithOptions;
@@ -26,9 +27,10 @@ class ClasspathResources {
             rwo.setUri(resourceUri);
             resourcesByUri.put(resourceUri, rwo);
         } else {
-            for (ArchiveInfo candidate : rwo.getAllCandidates()) {
-                final ResourceInfo hisResource = findResourceByUri(candidate, resourceUri);
-                final String hisHash = hisResource.getHash();
+            final List<ArchiveInfo> candidates = rwo.getAllCandidates();
+            for (int i = 0; i < candidates.size(); i++) {
+                final ArchiveInfo candidate = candidates.get(i);
+                final String hisHash = rwo.getAllHashes().get(i);
                 final boolean isDuplicate =  myHash.equals(hisHash);
                 conflictCollector.addOverlap(candidate, archive, resource, isDuplicate);
                 conflictCollector.addOverlap(archive, candidate, resource, isDuplicate);
@@ -37,15 +39,6 @@ class ClasspathResources {
         rwo.addCandidate(myHash, archive);
     }
 
-    static ResourceInfo findResourceByUri(ArchiveInfo archive, String resourceUri) {
-        for (ResourceInfo resource : archive.getResources()) {
-            if (resource.getUri().equals(resourceUri)) {
-                return resource;
-            }
-        }
-        return null;
-    }
-
     public Collection<? extends ArchiveConflict> getConflicts() {
         return conflictCollector.getAll();
     }
@@ -13,6 +13,7 @@ public class ArchiveInfo {
     private int classCount;
     private int resourceCount;
     private final List<ResourceInfo> resources = new ArrayList<ResourceInfo>();
+    private final List<ResourceInfo> readOnlyResources = Collections.unmodifiableList(resources);
 
     /**
      * @return name of the archive, in presentation-specific form
@@ -56,7 +57,7 @@ public class ArchiveInfo {
      * @see #addResource(ResourceInfo)
      */
     public List<ResourceInfo> getResources() {
-        return Collections.unmodifiableList(resources);
+        return readOnlyResources;
     }
 
     /**
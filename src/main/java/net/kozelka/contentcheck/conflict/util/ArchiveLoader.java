@@ -1,15 +1,30 @@
 package net.kozelka.contentcheck.conflict.util;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
 import net.kozelka.contentcheck.conflict.model.ResourceInfo;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.EntryMetadata;
+import net.kozelka.contentcheck.util.ResourceBudget;
 
 /**
  * Utilities helping to load archive information from the filesystem
@@ -17,17 +32,277 @@ import net.kozelka.contentcheck.introspection.ContentIntrospector;
  * @author Petr Kozelka
  */
 public class ArchiveLoader {
+    /**
+     * Key of the classpath element representing <code>WEB-INF/classes</code>.
+     */
+    public static final String WEB_INF_CLASSES = "WEB-INF/classes";
+    private static final String WEB_INF_CLASSES_PREFIX = WEB_INF_CLASSES + "/";
+    private static final String WEB_INF_LIB = "WEB-INF/lib/";
+
     public static List<ArchiveInfo> loadWar(File war) throws IOException {
+        return loadInnerArchives(war, WEB_INF_LIB, null);
+    }
+
+    /**
+     * Loads classpath elements of any supported archive.
+     * For a war or an exploded webapp directory, these are {@link #loadWebapp(File) WEB-INF/classes and WEB-INF/lib jars};
+     * for other archives (ear, jar) it is every nested jar.
+     * @param archive the archive file
+     * @return list of nested archives
+     */
+    public static List<ArchiveInfo> loadArchive(File archive) throws IOException {
+        return loadArchive(archive, null);
+    }
+
+    /**
+     * Like {@link #loadArchive(File)}, within limits of given budget.
+     * @param budget limits for inflating the archive; null for none
+     */
+    public static List<ArchiveInfo> loadArchive(File archive, ResourceBudget budget) throws IOException {
+        if (archive.getName().endsWith(".war") || new File(archive, "WEB-INF").isDirectory()) {
+            return loadWebapp(archive, budget);
+        }
+        return loadInnerArchives(archive, "", budget);
+    }
+
+    /**
+     * Loads classpath elements of a web application: <code>WEB-INF/classes</code> (when not empty) first,
+     * then the jars in <code>WEB-INF/lib/</code>.
+     * @param webapp packaged war, or exploded webapp directory
+     * @return list of classpath elements
+     */
+    public static List<ArchiveInfo> loadWebapp(File webapp) throws IOException {
+        return loadWebapp(webapp, null);
+    }
+
+    /**
+     * Like {@link #loadWebapp(File)}, within limits of given budget. An exploded webapp is not inflated, so only a packaged war is limited.
+     * @param budget limits for inflating the war and its jars; null for none
+     */
+    public static List<ArchiveInfo> loadWebapp(File webapp, ResourceBudget budget) throws IOException {
+        if (webapp.isDirectory()) {
+            return loadExplodedWebapp(webapp, Runtime.getRuntime().availableProcessors());
+        }
+        final List<ArchiveInfo> archives = new ArrayList<ArchiveInfo>();
+        final ArchiveInfo classes = newClassesArchive();
+        final ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(webapp)));
+        try {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.isDirectory()) continue;
+                final String entryName = entry.getName();
+                if (budget != null) {
+                    budget.countEntry(entryName);
+                    budget.checkDeclaredSize(entryName, entry.getSize(), entry.getCompressedSize());
+                }
+                if (entryName.startsWith(WEB_INF_LIB) && entryName.endsWith(".jar")) {
+                    // not closing: the stream belongs to the war
+                    final InputStream jarStream;
+                    if (budget == null) {
+                        jarStream = zis;
+                    } else {
+                        budget.checkDepth(1, entryName);
+                        jarStream = budget.limit(zis, entryName, entry.getCompressedSize());
+                    }
+                    archives.add(loadInnerArchive(new ZipInputStream(jarStream), entryName, budget));
+                } else if (entryName.startsWith(WEB_INF_CLASSES_PREFIX)) {
+                    if (budget != null) {
+                        // closing would inflate the entry unchecked
+                        budget.drain(zis, entryName, entry.getCompressedSize());
+                    }
+                    zis.closeEntry();
+                    processResource(classes, entryName.substring(WEB_INF_CLASSES_PREFIX.length()), entry.getCrc(), entry.getSize());
+                }
+            }
+        } finally {
+            zis.close();
+        }
+        if (classes.getResourceCount() > 0) {
+            archives.add(0, classes);
+        }
+        return archives;
+    }
+
+    /**
+     * Like {@link #loadWebapp(File)}, but takes everything from already built index, without reading the archive.
+     * @param archiveIndex index of the war
+     * @return list of classpath elements
+     */
+    public static List<ArchiveInfo> loadWebapp(ArchiveIndex archiveIndex) {
+        final List<ArchiveInfo> archives = new ArrayList<ArchiveInfo>();
+        final ArchiveInfo classes = newClassesArchive();
+        for (String entryName : archiveIndex.getEntryNames()) {
+            if (entryName.startsWith(WEB_INF_CLASSES_PREFIX) && !entryName.endsWith("/")) {
+                final EntryMetadata metadata = archiveIndex.getMetadata(entryName);
+                processResource(classes, entryName.substring(WEB_INF_CLASSES_PREFIX.length()), metadata.getCrc(), metadata.getSize());
+            }
+        }
+        if (classes.getResourceCount() > 0) {
+            archives.add(classes);
+        }
+        archives.addAll(loadInnerArchives(archiveIndex, WEB_INF_LIB));
+        return archives;
+    }
+
+    /**
+     * Loads an exploded webapp directory, like <code>target/${finalName}</code>, so that no war needs to be packaged.
+     * Walking <code>WEB-INF/classes</code> and reading each of the jars run as parallel tasks.
+     * @param webappDirectory the exploded webapp
+     * @param threads how many files to read in parallel
+     * @return list of classpath elements, in the same order as {@link #loadWebapp(File)} gives for the packaged war
+     */
+    public static List<ArchiveInfo> loadExplodedWebapp(final File webappDirectory, int threads) throws IOException {
+        final List<Callable<ArchiveInfo>> tasks = new ArrayList<Callable<ArchiveInfo>>();
+        final File classesDirectory = new File(webappDirectory, WEB_INF_CLASSES);
+        if (classesDirectory.isDirectory()) {
+            tasks.add(new Callable<ArchiveInfo>() {
+                public ArchiveInfo call() throws IOException {
+                    final ArchiveInfo classes = newClassesArchive();
+                    loadDirectory(classes, classesDirectory, "");
+                    return classes;
+                }
+            });
+        }
+        final File[] jars = new File(webappDirectory, WEB_INF_LIB).listFiles(ContentIntrospector.ISJAR_FILTER);
+        if (jars != null) {
+            Arrays.sort(jars);
+            for (final File jar : jars) {
+                tasks.add(new Callable<ArchiveInfo>() {
+                    public ArchiveInfo call() throws IOException {
+                        return loadJarFile(jar, WEB_INF_LIB + jar.getName());
+                    }
+                });
+            }
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+        try {
+            final List<ArchiveInfo> archives = new ArrayList<ArchiveInfo>(tasks.size());
+            for (Future<ArchiveInfo> future : executor.invokeAll(tasks)) {
+                final ArchiveInfo archive = future.get();
+                if (archive.getResourceCount() > 0 || !WEB_INF_CLASSES.equals(archive.getKey())) {
+                    archives.add(archive);
+                }
+            }
+            return archives;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + webappDirectory);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ArchiveInfo newClassesArchive() {
+        final ArchiveInfo classes = new ArchiveInfo();
+        classes.setKey(WEB_INF_CLASSES);
+        return classes;
+    }
+
+    private static void loadDirectory(ArchiveInfo archive, File directory, String uriPrefix) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) return;
+        Arrays.sort(files);
+        final byte[] buffer = new byte[8192];
+        for (File file : files) {
+            if (file.isDirectory()) {
+                loadDirectory(archive, file, uriPrefix + file.getName() + "/");
+            } else {
+                processResource(archive, uriPrefix + file.getName(), crc(file, buffer), file.length());
+            }
+        }
+    }
+
+    private static long crc(File file, byte[] buffer) throws IOException {
+        final CRC32 crc = new CRC32();
+        final InputStream is = new FileInputStream(file);
+        try {
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        } finally {
+            is.close();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Reads just the central directory of the jar, which has all the sizes and CRCs.
+     */
+    private static ArchiveInfo loadJarFile(File jar, String archiveName) throws IOException {
+        final ArchiveInfo archive = new ArchiveInfo();
+        archive.setKey(archiveName);
+        final ZipFile zipFile = new ZipFile(jar);
+        try {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    processResource(archive, entry);
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        return archive;
+    }
+
+    /**
+     * Like {@link #loadWar(File)}, but takes nested jars from already built index, without reading the archive.
+     * @param archiveIndex index of the war
+     * @return list of nested archives
+     */
+    public static List<ArchiveInfo> loadWar(ArchiveIndex archiveIndex) {
+        return loadInnerArchives(archiveIndex, "WEB-INF/lib/");
+    }
+
+    /**
+     * Like {@link #loadArchive(File)}, but takes nested jars from already built index, without reading the archive.
+     * @param archiveIndex index of the archive
+     * @return list of nested archives
+     */
+    public static List<ArchiveInfo> loadArchive(ArchiveIndex archiveIndex) {
+        if (archiveIndex.getSourceFile().getName().endsWith(".war")) {
+            return loadWebapp(archiveIndex);
+        }
+        return loadInnerArchives(archiveIndex, "");
+    }
+
+    private static List<ArchiveInfo> loadInnerArchives(ArchiveIndex archiveIndex, String prefix) {
+        final List<ArchiveInfo> archives = new ArrayList<ArchiveInfo>();
+        for (String entryName : archiveIndex.getEntryNames()) {
+            if (!entryName.startsWith(prefix)) continue;
+            final ArchiveIndex.NestedArchive nestedArchive = archiveIndex.getNestedArchive(entryName);
+            if (nestedArchive == null) continue;
+            final ArchiveInfo archive = new ArchiveInfo();
+            archive.setKey(entryName);
+            for (int i = 0; i < nestedArchive.getEntryCount(); i++) {
+                processResource(archive, nestedArchive.getEntryName(i), nestedArchive.getCrc(i), nestedArchive.getSize(i));
+            }
+            archives.add(archive);
+        }
+        return archives;
+    }
+
+    private static List<ArchiveInfo> loadInnerArchives(File sourceFile, final String prefix, final ResourceBudget budget) throws IOException {
         final List<ArchiveInfo> archives = new ArrayList<ArchiveInfo>();
         final ContentIntrospector ci = new ContentIntrospector();
-        ci.setSourceFile(war);
+        ci.setSourceFile(sourceFile);
+        ci.setResourceBudget(budget);
         ci.setEntryContentFilter(new ContentIntrospector.EntryContentFilter() {
             public boolean accept(String entryName, InputStream entryContentStream) throws IOException {
-                if (entryName.startsWith("WEB-INF/lib/") && entryName.endsWith(".jar")) {
+                if (entryName.startsWith(prefix) && entryName.endsWith(".jar")) {
                     final ZipInputStream zis = new ZipInputStream(entryContentStream);
-                    archives.add(loadInnerArchive(zis, entryName));
+                    if (budget != null) {
+                        budget.checkDepth(1, entryName);
+                    }
+                    archives.add(loadInnerArchive(zis, entryName, budget));
                 }
-                //TODO: add support for WEB-INF/classes as another resource
                 return false;
             }
         });
@@ -35,25 +310,38 @@ public class ArchiveLoader {
         return archives;
     }
 
-    private static ArchiveInfo loadInnerArchive(ZipInputStream zis, String archiveName) throws IOException {
+    private static ArchiveInfo loadInnerArchive(ZipInputStream zis, String archiveName, ResourceBudget budget) throws IOException {
         final ArchiveInfo archive = new ArchiveInfo();
         archive.setKey(archiveName);
         ZipEntry entry = zis.getNextEntry();
         while (entry != null) {
+            if (budget != null) {
+                final String entryPath = archiveName + "!/" + entry.getName();
+                budget.countEntry(entryPath);
+                // closing would inflate the entry unchecked
+                budget.drain(zis, entryPath, entry.getCompressedSize());
+            }
+            // with a data descriptor, crc and size are only known after the entry data are read
+            zis.closeEntry();
+            if (budget != null) {
+                budget.checkDeclaredSize(archiveName + "!/" + entry.getName(), entry.getSize(), entry.getCompressedSize());
+            }
             if (!entry.isDirectory()) {
                 processResource(archive, entry);
             }
-            //
-            zis.closeEntry();
             entry = zis.getNextEntry();
         }
         return archive;
     }
 
     private static void processResource(ArchiveInfo archive, ZipEntry entry) {
+        processResource(archive, entry.getName(), entry.getCrc(), entry.getSize());
+    }
+
+    private static void processResource(ArchiveInfo archive, String uri, long crc, long size) {
         final ResourceInfo resource = new ResourceInfo();
-        resource.setUri(entry.getName());
-        resource.setHash(String.format("crc=%s&sz=%s", entry.getCrc(), entry.getSize()));
+        resource.setUri(uri);
+        resource.setHash("crc=" + crc + "&sz=" + size);
         archive.addResource(resource);
     }
 }
@@ -0,0 +1,35 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+
+/**
+ * Remembers decisions of another filter, so that the entry content does not need to be examined again.
+ *
+ * @author Petr Kozelka
+ */
+class CachingContentFilter implements ContentIntrospector.EntryContentFilter {
+    private final ContentIntrospector.EntryContentFilter delegate;
+    private final LruCache<String, Boolean> decisions;
+    private final String keyPrefix;
+
+    /**
+     * @param keyPrefix must identify both the source file (including its version) and the delegate's configuration
+     */
+    CachingContentFilter(ContentIntrospector.EntryContentFilter delegate, LruCache<String, Boolean> decisions, String keyPrefix) {
+        this.delegate = delegate;
+        this.decisions = decisions;
+        this.keyPrefix = keyPrefix;
+    }
+
+    public boolean accept(String entryName, InputStream entryContentStream) throws IOException {
+        final String key = keyPrefix + entryName;
+        Boolean decision = decisions.get(key);
+        if (decision == null) {
+            decision = delegate.accept(entryName, entryContentStream);
+            decisions.put(key, decision);
+        }
+        return decision;
+    }
+}
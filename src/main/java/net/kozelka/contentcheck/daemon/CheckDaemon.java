@@ -0,0 +1,299 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesCache;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * <h1>Resident process serving checks with warm caches.</h1>
+ * <p>Keeps parsed listings, jar indexes of wars and vendor decisions in memory, bounded by LRU eviction.
+ * Listens on loopback only; clients find the port, together with a secret token, in the port file.</p>
+ * <p>Protocol: one JSON request line, answered by one JSON response line, per connection.
+ * Each request carries the <code>token</code> and an <code>op</code>, one of <code>ping</code>, <code>check</code>,
+ * <code>warcc</code>, <code>stats</code> or <code>shutdown</code>. Failed requests are answered with <code>error</code>.</p>
+ * <p>Synopsis: <code>daemon [--port N] [--port-file FILE] [--max-entries N]</code></p>
+ *
+ * @see DaemonClient
+ * @author Petr Kozelka
+ */
+public class CheckDaemon {
+    public static final File DEFAULT_PORT_FILE = new File(System.getProperty("user.home"), ".contentcheck/daemon.port");
+
+    private final LruCache<String, Set<ApprovedEntry>> listings;
+    private final LruCache<String, List<ArchiveInfo>> jarIndexes;
+    private final LruCache<String, Boolean> vendorDecisions;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final String token = UUID.randomUUID().toString();
+    private ServerSocket serverSocket;
+    private File portFile;
+
+    /**
+     * @param maxEntries maximal number of listings and jar indexes to keep; vendor decisions are limited to 100 times more
+     */
+    public CheckDaemon(int maxEntries) {
+        listings = new LruCache<String, Set<ApprovedEntry>>(maxEntries);
+        jarIndexes = new LruCache<String, List<ArchiveInfo>>(maxEntries);
+        vendorDecisions = new LruCache<String, Boolean>(maxEntries * 100);
+    }
+
+    public static void main(String ... args) throws IOException {
+        int port = 0;
+        File portFile = DEFAULT_PORT_FILE;
+        int maxEntries = 64;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--port-file") && i + 1 < args.length) {
+                portFile = new File(args[++i]);
+            } else if (args[i].equals("--max-entries") && i + 1 < args.length) {
+                maxEntries = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Usage: daemon [--port N] [--port-file FILE] [--max-entries N]");
+                System.exit(2);
+            }
+        }
+        final CheckDaemon daemon = new CheckDaemon(maxEntries);
+        daemon.start(port, portFile);
+        System.out.println(String.format("Contentcheck daemon listening on port %d, port file is %s", daemon.getPort(), portFile));
+    }
+
+    /**
+     * Starts listening, and publishes the port in the port file.
+     * @param port port to listen on; 0 picks any free port
+     * @param portFile where to publish the port and token for clients
+     */
+    public synchronized void start(int port, File portFile) throws IOException {
+        this.portFile = portFile;
+        serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+        writePortFile();
+        final Thread acceptor = new Thread("contentcheck-daemon") {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        };
+        acceptor.start();
+    }
+
+    public synchronized int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops listening and removes the port file.
+     */
+    public synchronized void stop() {
+        if (serverSocket == null) return;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // nothing to do, we are leaving anyway
+        }
+        serverSocket = null;
+        executor.shutdownNow();
+        portFile.delete();
+    }
+
+    private void writePortFile() throws IOException {
+        portFile.getParentFile().mkdirs();
+        final Properties properties = new Properties();
+        properties.setProperty("port", String.valueOf(getPort()));
+        properties.setProperty("token", token);
+        final OutputStream os = new FileOutputStream(portFile);
+        try {
+            // the token should not be visible to other users
+            portFile.setReadable(false, false);
+            portFile.setReadable(true, true);
+            properties.store(os, "contentcheck daemon");
+        } finally {
+            os.close();
+        }
+        portFile.deleteOnExit();
+    }
+
+    private void acceptConnections() {
+        final ServerSocket ss;
+        synchronized (this) {
+            ss = serverSocket;
+        }
+        while (!ss.isClosed()) {
+            final Socket socket;
+            try {
+                socket = ss.accept();
+            } catch (IOException e) {
+                if (ss.isClosed()) break; // closed by stop()
+                // one failed connection must not leave the daemon deaf while its port file says it is alive
+                System.err.println("Contentcheck daemon failed to accept a connection: " + e);
+                continue;
+            }
+            executor.execute(new Runnable() {
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void serve(Socket socket) {
+        try {
+            try {
+                final ObjectMapper objectMapper = new ObjectMapper();
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                final String line = reader.readLine();
+                Map<String, Object> response;
+                try {
+                    response = handle(objectMapper.readValue(line, Map.class));
+                } catch (Exception e) {
+                    response = new LinkedHashMap<String, Object>();
+                    response.put("error", String.valueOf(e));
+                }
+                final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+                writer.write(objectMapper.writeValueAsString(response));
+                writer.write('\n');
+                writer.flush();
+            } finally {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // client went away, nothing to report to
+        }
+    }
+
+    Map<String, Object> handle(Map<String, Object> request) throws IOException {
+        if (!token.equals(request.get("token"))) {
+            throw new SecurityException("Invalid token");
+        }
+        final String op = (String) request.get("op");
+        final Map<String, Object> response = new LinkedHashMap<String, Object>();
+        if ("ping".equals(op)) {
+            response.put("pong", Boolean.TRUE);
+        } else if ("check".equals(op)) {
+            response.put("report", ReportCodec.encode(check(request)));
+        } else if ("warcc".equals(op)) {
+            response.put("report", ReportCodec.encode(warcc(request)));
+        } else if ("stats".equals(op)) {
+            response.putAll(getStats());
+        } else if ("shutdown".equals(op)) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    stop();
+                }
+            });
+            response.put("stopping", Boolean.TRUE);
+        } else {
+            throw new IllegalArgumentException("Unknown op: " + op);
+        }
+        return response;
+    }
+
+    private ApproverReport check(Map<String, Object> request) throws IOException {
+        final File sourceFile = new File((String) request.get("sourceFile"));
+        final File listingFile = new File((String) request.get("listing"));
+        final ContentChecker contentChecker = new ContentChecker();
+        final String listingKey = versionKey(listingFile);
+        Set<ApprovedEntry> approvedEntries = listings.get(listingKey);
+        if (approvedEntries == null) {
+            approvedEntries = contentChecker.readApprovedContent(listingFile);
+            listings.put(listingKey, approvedEntries);
+        }
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern((String) request.get("checkFilesPattern"));
+        if (Boolean.TRUE.equals(request.get("ignoreVendorArchives"))) {
+            final String vendorId = (String) request.get("vendorId");
+            final String manifestVendorEntry = (String) request.get("manifestVendorEntry");
+            final VendorFilter vendorFilter = new VendorFilter(vendorId);
+            vendorFilter.setManifestVendorEntry(manifestVendorEntry);
+            if (sourceFile.isFile()) {
+                final String keyPrefix = String.format("%s|%s|%s!", versionKey(sourceFile), vendorId, manifestVendorEntry);
+                introspector.setEntryContentFilter(new CachingContentFilter(vendorFilter, vendorDecisions, keyPrefix));
+            } else {
+                // directory timestamp does not change when a jar inside is replaced, so decisions cannot be reused
+                introspector.setEntryContentFilter(vendorFilter);
+            }
+        }
+        introspector.setSourceFile(sourceFile);
+        contentChecker.setIntrospector(introspector);
+        final CheckOptions options = CheckOptions.readFrom(request);
+        options.apply(introspector, contentChecker);
+        final File coordinatesCacheFile = options.getCoordinatesCacheFile();
+        if (coordinatesCacheFile == null) {
+            return contentChecker.check(approvedEntries);
+        }
+        final MavenCoordinatesCache coordinatesCache = MavenCoordinatesCache.load(coordinatesCacheFile);
+        contentChecker.setCoordinatesCache(coordinatesCache);
+        try {
+            return contentChecker.check(approvedEntries);
+        } finally {
+            coordinatesCache.save(coordinatesCacheFile);
+        }
+    }
+
+    private ClassConflictReport warcc(Map<String, Object> request) throws IOException {
+        final File sourceFile = new File((String) request.get("sourceFile"));
+        if (sourceFile.isDirectory()) {
+            // exploded webapp: its timestamp does not change when files inside do, so nothing can be cached
+            return new ClassConflictAnalyzer().analyze(ArchiveLoader.loadWebapp(sourceFile));
+        }
+        final String key = versionKey(sourceFile);
+        List<ArchiveInfo> archives = jarIndexes.get(key);
+        if (archives == null) {
+            archives = ArchiveLoader.loadWebapp(sourceFile);
+            jarIndexes.put(key, archives);
+        }
+        return new ClassConflictAnalyzer().analyze(archives);
+    }
+
+    /**
+     * @return cache sizes and hit counts
+     */
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("listings", cacheStats(listings));
+        stats.put("jarIndexes", cacheStats(jarIndexes));
+        stats.put("vendorDecisions", cacheStats(vendorDecisions));
+        return stats;
+    }
+
+    private static Map<String, Object> cacheStats(LruCache<?, ?> cache) {
+        final Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("size", cache.size());
+        stats.put("hits", cache.getHits());
+        stats.put("misses", cache.getMisses());
+        return stats;
+    }
+
+    /**
+     * @return key identifying given version of the file
+     */
+    private static String versionKey(File file) {
+        return String.format("%s|%d|%d", file.getAbsolutePath(), file.length(), file.lastModified());
+    }
+}
@@ -0,0 +1,108 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.io.File;
+import java.util.Map;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesCache;
+
+/**
+ * How the daemon walks the source and checks it, beyond the selection of entries; defaults match the in-process check.
+ *
+ * @see DaemonClient#check(File, File, String, boolean, String, String, CheckOptions)
+ * @author Petr Kozelka
+ */
+public class CheckOptions {
+    private int nestedArchiveDepth;
+    private int directoryWalkThreads = 1;
+    private int prefetchDepth;
+    private int prefetchBufferSize = ContentIntrospector.DEFAULT_PREFETCH_BUFFER_SIZE;
+    private int digestThreads = Runtime.getRuntime().availableProcessors();
+    private File coordinatesCacheFile;
+
+    /**
+     * @see ContentIntrospector#setNestedArchiveDepth(int)
+     */
+    public void setNestedArchiveDepth(int nestedArchiveDepth) {
+        this.nestedArchiveDepth = nestedArchiveDepth;
+    }
+
+    /**
+     * @see ContentIntrospector#setDirectoryWalkParallelism(int)
+     */
+    public void setDirectoryWalkThreads(int directoryWalkThreads) {
+        this.directoryWalkThreads = directoryWalkThreads;
+    }
+
+    /**
+     * @see ContentIntrospector#setPrefetchDepth(int)
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * @see ContentIntrospector#setPrefetchBufferSize(int)
+     */
+    public void setPrefetchBufferSize(int prefetchBufferSize) {
+        this.prefetchBufferSize = prefetchBufferSize;
+    }
+
+    /**
+     * @see ContentChecker#setDigestThreads(int)
+     */
+    public void setDigestThreads(int digestThreads) {
+        this.digestThreads = digestThreads;
+    }
+
+    /**
+     * @param coordinatesCacheFile the {@link MavenCoordinatesCache} shared with in-process checks; null for none
+     */
+    public void setCoordinatesCacheFile(File coordinatesCacheFile) {
+        this.coordinatesCacheFile = coordinatesCacheFile;
+    }
+
+    public File getCoordinatesCacheFile() {
+        return coordinatesCacheFile;
+    }
+
+    void writeTo(Map<String, Object> request) {
+        request.put("nestedArchiveDepth", nestedArchiveDepth);
+        request.put("directoryWalkThreads", directoryWalkThreads);
+        request.put("prefetchDepth", prefetchDepth);
+        request.put("prefetchBufferSize", prefetchBufferSize);
+        request.put("digestThreads", digestThreads);
+        request.put("coordinatesCacheFile", coordinatesCacheFile == null ? null : coordinatesCacheFile.getAbsolutePath());
+    }
+
+    /**
+     * Reads the options from the request; missing ones, as sent by older clients, keep their defaults.
+     */
+    static CheckOptions readFrom(Map<String, Object> request) {
+        final CheckOptions options = new CheckOptions();
+        options.nestedArchiveDepth = intValue(request, "nestedArchiveDepth", options.nestedArchiveDepth);
+        options.directoryWalkThreads = intValue(request, "directoryWalkThreads", options.directoryWalkThreads);
+        options.prefetchDepth = intValue(request, "prefetchDepth", options.prefetchDepth);
+        options.prefetchBufferSize = intValue(request, "prefetchBufferSize", options.prefetchBufferSize);
+        options.digestThreads = intValue(request, "digestThreads", options.digestThreads);
+        final String coordinatesCacheFile = (String) request.get("coordinatesCacheFile");
+        options.coordinatesCacheFile = coordinatesCacheFile == null ? null : new File(coordinatesCacheFile);
+        return options;
+    }
+
+    private static int intValue(Map<String, Object> request, String key, int defaultValue) {
+        final Number value = (Number) request.get(key);
+        return value == null ? defaultValue : value.intValue();
+    }
+
+    /**
+     * Applies the options to the daemon's introspector and checker.
+     */
+    void apply(ContentIntrospector introspector, ContentChecker contentChecker) {
+        introspector.setNestedArchiveDepth(nestedArchiveDepth);
+        introspector.setDirectoryWalkParallelism(directoryWalkThreads);
+        introspector.setPrefetchDepth(prefetchDepth);
+        introspector.setPrefetchBufferSize(prefetchBufferSize);
+        contentChecker.setDigestThreads(digestThreads);
+    }
+}
@@ -0,0 +1,148 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Talks to a running {@link CheckDaemon}.
+ * Use {@link #connect(File)} to find out if the daemon is available; callers are expected to fall back to in-process execution otherwise.
+ *
+ * @author Petr Kozelka
+ */
+public class DaemonClient {
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final int port;
+    private final String token;
+
+    DaemonClient(int port, String token) {
+        this.port = port;
+        this.token = token;
+    }
+
+    /**
+     * @param portFile the file where the daemon publishes its port
+     * @return client of responding daemon, or null when there is none
+     */
+    public static DaemonClient connect(File portFile) {
+        if (!portFile.isFile()) return null;
+        try {
+            final Properties properties = new Properties();
+            final InputStream is = new FileInputStream(portFile);
+            try {
+                properties.load(is);
+            } finally {
+                is.close();
+            }
+            final DaemonClient client = new DaemonClient(Integer.parseInt(properties.getProperty("port")), properties.getProperty("token"));
+            client.call(request("ping"));
+            return client;
+        } catch (IOException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Performs the content check in the daemon, with default {@link CheckOptions options}.
+     * @see net.kozelka.contentcheck.expect.impl.ContentChecker#check(File)
+     */
+    public ApproverReport check(File sourceFile, File listingFile, String checkFilesPattern,
+                                boolean ignoreVendorArchives, String vendorId, String manifestVendorEntry) throws IOException {
+        return check(sourceFile, listingFile, checkFilesPattern, ignoreVendorArchives, vendorId, manifestVendorEntry, new CheckOptions());
+    }
+
+    /**
+     * Performs the content check in the daemon.
+     * @see net.kozelka.contentcheck.expect.impl.ContentChecker#check(File)
+     */
+    @SuppressWarnings("unchecked")
+    public ApproverReport check(File sourceFile, File listingFile, String checkFilesPattern,
+                                boolean ignoreVendorArchives, String vendorId, String manifestVendorEntry,
+                                CheckOptions options) throws IOException {
+        final Map<String, Object> request = request("check");
+        options.writeTo(request);
+        request.put("sourceFile", sourceFile.getAbsolutePath());
+        request.put("listing", listingFile.getAbsolutePath());
+        request.put("checkFilesPattern", checkFilesPattern);
+        request.put("ignoreVendorArchives", ignoreVendorArchives);
+        request.put("vendorId", vendorId);
+        request.put("manifestVendorEntry", manifestVendorEntry);
+        return ReportCodec.decodeApproverReport((Map<String, Object>) call(request).get("report"));
+    }
+
+    /**
+     * Detects class conflicts of a war in the daemon.
+     * @see net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer
+     */
+    @SuppressWarnings("unchecked")
+    public ClassConflictReport warcc(File war) throws IOException {
+        final Map<String, Object> request = request("warcc");
+        request.put("sourceFile", war.getAbsolutePath());
+        return ReportCodec.decodeClassConflictReport((Map<String, Object>) call(request).get("report"));
+    }
+
+    /**
+     * @return cache statistics
+     * @see CheckDaemon#getStats()
+     */
+    public Map<String, Object> stats() throws IOException {
+        return call(request("stats"));
+    }
+
+    public void shutdown() throws IOException {
+        call(request("shutdown"));
+    }
+
+    private static Map<String, Object> request(String op) {
+        final Map<String, Object> request = new LinkedHashMap<String, Object>();
+        request.put("op", op);
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> call(Map<String, Object> request) throws IOException {
+        request.put("token", token);
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), CONNECT_TIMEOUT_MILLIS);
+            final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+            writer.write(objectMapper.writeValueAsString(request));
+            writer.write('\n');
+            writer.flush();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            final String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Daemon closed the connection without response");
+            }
+            final Map<String, Object> response = objectMapper.readValue(line, Map.class);
+            if (response.containsKey("error")) {
+                throw new IOException("Daemon failed: " + response.get("error"));
+            }
+            return response;
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Simple thread-safe cache, evicting the least recently used entries when it grows over given size.
+ *
+ * @author Petr Kozelka
+ */
+public class LruCache<K, V> {
+    private final Map<K, V> map;
+    private long hits;
+    private long misses;
+
+    public LruCache(final int maxEntries) {
+        map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return cached value, or null if there is none
+     */
+    public synchronized V get(K key) {
+        final V value = map.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
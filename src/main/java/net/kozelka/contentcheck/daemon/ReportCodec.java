@@ -0,0 +1,308 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.kozelka.contentcheck.conflict.api.ArchiveConflict;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.api.ResourceWithOptions;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.model.ResourceInfo;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.introspection.DuplicateEntry;
+
+/**
+ * Converts reports to and from JSON-friendly structures, so that they can travel between the daemon and its clients.
+ * Entries are encoded with all their metadata, so that listings generated from the report match in-process ones;
+ * entries referenced from multiple places are encoded as indexes, to keep their identity.
+ *
+ * @author Petr Kozelka
+ */
+final class ReportCodec {
+    private ReportCodec() {}
+
+    static Map<String, Object> encode(ApproverReport report) {
+        final Map<String, Object> json = new LinkedHashMap<String, Object>();
+        final List<Map<String, Object>> approved = new ArrayList<Map<String, Object>>();
+        final Map<ApprovedEntry, Integer> approvedIndexes = new HashMap<ApprovedEntry, Integer>();
+        for (ApprovedEntry approvedEntry : report.getApprovedEntries()) {
+            approvedIndexes.put(approvedEntry, approved.size());
+            approved.add(encode(approvedEntry));
+        }
+        final List<Map<String, Object>> actual = new ArrayList<Map<String, Object>>();
+        final Map<ActualEntry, Integer> actualIndexes = new HashMap<ActualEntry, Integer>();
+        for (ActualEntry actualEntry : report.getActualEntries()) {
+            actualIndexes.put(actualEntry, actual.size());
+            actual.add(encode(actualEntry));
+        }
+        final List<Integer> missing = new ArrayList<Integer>();
+        for (ApprovedEntry approvedEntry : report.getMissingEntries()) {
+            missing.add(approvedIndexes.get(approvedEntry));
+        }
+        final List<Integer> unexpected = new ArrayList<Integer>();
+        for (ActualEntry actualEntry : report.getUnexpectedEntries()) {
+            unexpected.add(actualIndexes.get(actualEntry));
+        }
+        json.put("approved", approved);
+        json.put("actual", actual);
+        json.put("missing", missing);
+        json.put("unexpected", unexpected);
+        final List<Map<String, Object>> violations = new ArrayList<Map<String, Object>>();
+        for (Map.Entry<ActualEntry, String> violation : report.getConstraintViolations().entrySet()) {
+            final Map<String, Object> v = new LinkedHashMap<String, Object>();
+            v.put("actual", actualIndexes.get(violation.getKey()));
+            v.put("message", violation.getValue());
+            violations.add(v);
+        }
+        json.put("violations", violations);
+        final List<Map<String, Object>> duplicates = new ArrayList<Map<String, Object>>();
+        for (DuplicateEntry duplicate : report.getDuplicateEntries()) {
+            final Map<String, Object> d = new LinkedHashMap<String, Object>();
+            d.put("uri", duplicate.getUri());
+            d.put("firstCrc", duplicate.getFirstCrc());
+            d.put("crc", duplicate.getCrc());
+            duplicates.add(d);
+        }
+        json.put("duplicates", duplicates);
+        return json;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ApproverReport decodeApproverReport(Map<String, Object> json) {
+        final List<ApprovedEntry> approved = new ArrayList<ApprovedEntry>();
+        for (Object a : (List<Object>) json.get("approved")) {
+            approved.add(decodeApprovedEntry(a));
+        }
+        final List<ActualEntry> actual = new ArrayList<ActualEntry>();
+        for (Object a : (List<Object>) json.get("actual")) {
+            actual.add(decodeActualEntry(a));
+        }
+        final ApproverReport report = new ApproverReport(new LinkedHashSet<ApprovedEntry>(approved), new LinkedHashSet<ActualEntry>(actual));
+        final Set<ApprovedEntry> missing = new LinkedHashSet<ApprovedEntry>();
+        for (Number index : (List<Number>) json.get("missing")) {
+            missing.add(approved.get(index.intValue()));
+        }
+        report.setMissingEntries(missing);
+        final Set<ActualEntry> unexpected = new LinkedHashSet<ActualEntry>();
+        for (Number index : (List<Number>) json.get("unexpected")) {
+            unexpected.add(actual.get(index.intValue()));
+        }
+        report.setUnexpectedEntries(unexpected);
+        // absent when talking to an older daemon
+        final List<Map<String, Object>> violations = (List<Map<String, Object>>) json.get("violations");
+        if (violations != null) {
+            for (Map<String, Object> v : violations) {
+                report.getConstraintViolations().put(actual.get(((Number) v.get("actual")).intValue()), (String) v.get("message"));
+            }
+        }
+        final List<Map<String, Object>> duplicates = (List<Map<String, Object>>) json.get("duplicates");
+        if (duplicates != null) {
+            for (Map<String, Object> d : duplicates) {
+                report.getDuplicateEntries().add(new DuplicateEntry((String) d.get("uri"),
+                    ((Number) d.get("firstCrc")).longValue(),
+                    ((Number) d.get("crc")).longValue()));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Unknown values are left out.
+     */
+    private static Map<String, Object> encode(ActualEntry entry) {
+        final Map<String, Object> e = new LinkedHashMap<String, Object>();
+        e.put("uri", entry.getUri());
+        putKnown(e, "size", entry.getSize());
+        putKnown(e, "compressedSize", entry.getCompressedSize());
+        putKnown(e, "crc", entry.getCrc());
+        putKnown(e, "method", entry.getMethod());
+        putKnown(e, "time", entry.getTime());
+        if (!entry.getDigests().isEmpty()) {
+            e.put("digests", entry.getDigests());
+        }
+        putKnown(e, "groupId", entry.getGroupId());
+        putKnown(e, "artifactId", entry.getArtifactId());
+        putKnown(e, "version", entry.getVersion());
+        return e;
+    }
+
+    /**
+     * @param json encoded entry, or just its uri as sent by an older daemon
+     */
+    @SuppressWarnings("unchecked")
+    private static ActualEntry decodeActualEntry(Object json) {
+        final ActualEntry entry = new ActualEntry();
+        if (json instanceof String) {
+            entry.setUri((String) json);
+            return entry;
+        }
+        final Map<String, Object> e = (Map<String, Object>) json;
+        entry.setUri((String) e.get("uri"));
+        entry.setSize(longValue(e, "size"));
+        entry.setCompressedSize(longValue(e, "compressedSize"));
+        entry.setCrc(longValue(e, "crc"));
+        entry.setMethod((int) longValue(e, "method"));
+        entry.setTime(longValue(e, "time"));
+        final Map<String, String> digests = (Map<String, String>) e.get("digests");
+        if (digests != null) {
+            for (Map.Entry<String, String> digest : digests.entrySet()) {
+                entry.setDigest(digest.getKey(), digest.getValue());
+            }
+        }
+        entry.setGroupId((String) e.get("groupId"));
+        entry.setArtifactId((String) e.get("artifactId"));
+        entry.setVersion((String) e.get("version"));
+        return entry;
+    }
+
+    private static Map<String, Object> encode(ApprovedEntry entry) {
+        final Map<String, Object> e = new LinkedHashMap<String, Object>();
+        e.put("uri", entry.getUri());
+        putKnown(e, "maxSize", entry.getMaxSize());
+        putKnown(e, "method", entry.getMethod());
+        putKnown(e, "crc", entry.getCrc());
+        putKnown(e, "digestAlgorithm", entry.getDigestAlgorithm());
+        putKnown(e, "digest", entry.getDigest());
+        putKnown(e, "groupId", entry.getGroupId());
+        putKnown(e, "artifactId", entry.getArtifactId());
+        putKnown(e, "version", entry.getVersion());
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ApprovedEntry decodeApprovedEntry(Object json) {
+        final ApprovedEntry entry = new ApprovedEntry();
+        if (json instanceof String) {
+            entry.setUri((String) json);
+            return entry;
+        }
+        final Map<String, Object> e = (Map<String, Object>) json;
+        entry.setUri((String) e.get("uri"));
+        entry.setMaxSize(longValue(e, "maxSize"));
+        entry.setMethod((int) longValue(e, "method"));
+        entry.setCrc(longValue(e, "crc"));
+        entry.setDigest((String) e.get("digestAlgorithm"), (String) e.get("digest"));
+        entry.setGroupId((String) e.get("groupId"));
+        entry.setArtifactId((String) e.get("artifactId"));
+        entry.setVersion((String) e.get("version"));
+        return entry;
+    }
+
+    private static void putKnown(Map<String, Object> json, String key, long value) {
+        if (value != -1) {
+            json.put(key, value);
+        }
+    }
+
+    private static void putKnown(Map<String, Object> json, String key, String value) {
+        if (value != null) {
+            json.put(key, value);
+        }
+    }
+
+    private static long longValue(Map<String, Object> json, String key) {
+        final Number value = (Number) json.get(key);
+        return value == null ? -1 : value.longValue();
+    }
+
+    /**
+     * Encodes everything needed for printing the report.
+     * Resources of archives are not included, and from the resource list, only overlapping ones are kept.
+     */
+    static Map<String, Object> encode(ClassConflictReport report) {
+        final Map<String, Object> json = new LinkedHashMap<String, Object>();
+        final List<Map<String, Object>> archives = new ArrayList<Map<String, Object>>();
+        final Map<ArchiveInfo, Integer> archiveIndexes = new HashMap<ArchiveInfo, Integer>();
+        for (ArchiveInfo archive : report.getExploredArchives()) {
+            final Map<String, Object> a = new LinkedHashMap<String, Object>();
+            a.put("key", archive.getKey());
+            a.put("classCount", archive.getClassCount());
+            a.put("resourceCount", archive.getResourceCount());
+            archiveIndexes.put(archive, archives.size());
+            archives.add(a);
+        }
+        final List<Map<String, Object>> conflicts = new ArrayList<Map<String, Object>>();
+        for (ArchiveConflict archiveConflict : report.getArchiveConflicts()) {
+            final Map<String, Object> c = new LinkedHashMap<String, Object>();
+            c.put("this", archiveIndexes.get(archiveConflict.getThisArchive()));
+            c.put("that", archiveIndexes.get(archiveConflict.getThatArchive()));
+            final Set<ResourceInfo> duplicates = new LinkedHashSet<ResourceInfo>(archiveConflict.getDuplicateResources());
+            final List<Map<String, Object>> overlaps = new ArrayList<Map<String, Object>>();
+            for (ResourceInfo resource : archiveConflict.getOverlapingResources()) {
+                final Map<String, Object> o = new LinkedHashMap<String, Object>();
+                o.put("uri", resource.getUri());
+                o.put("hash", resource.getHash());
+                o.put("duplicate", duplicates.contains(resource));
+                overlaps.add(o);
+            }
+            c.put("overlaps", overlaps);
+            conflicts.add(c);
+        }
+        final List<Map<String, Object>> resources = new ArrayList<Map<String, Object>>();
+        for (ResourceWithOptions rwo : report.getResources()) {
+            if (!rwo.hasOverlaps()) continue;
+            final Map<String, Object> r = new LinkedHashMap<String, Object>();
+            r.put("uri", rwo.getUri());
+            final Map<String, List<Integer>> candidates = new LinkedHashMap<String, List<Integer>>();
+            for (Map.Entry<String, List<ArchiveInfo>> entry : rwo.getCandidatesByHash().entrySet()) {
+                final List<Integer> indexes = new ArrayList<Integer>();
+                for (ArchiveInfo archive : entry.getValue()) {
+                    indexes.add(archiveIndexes.get(archive));
+                }
+                candidates.put(entry.getKey(), indexes);
+            }
+            r.put("candidates", candidates);
+            resources.add(r);
+        }
+        json.put("archives", archives);
+        json.put("conflicts", conflicts);
+        json.put("resources", resources);
+        json.put("totalOverlaps", report.getTotalOverlaps());
+        json.put("totalConflicts", report.getTotalConflicts());
+        return json;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ClassConflictReport decodeClassConflictReport(Map<String, Object> json) {
+        final ClassConflictReport report = new ClassConflictReport();
+        final List<ArchiveInfo> archives = report.getExploredArchives();
+        for (Map<String, Object> a : (List<Map<String, Object>>) json.get("archives")) {
+            final ArchiveInfo archive = new ArchiveInfo();
+            archive.setKey((String) a.get("key"));
+            archive.setClassCount(((Number) a.get("classCount")).intValue());
+            archive.setResourceCount(((Number) a.get("resourceCount")).intValue());
+            archives.add(archive);
+        }
+        for (Map<String, Object> c : (List<Map<String, Object>>) json.get("conflicts")) {
+            final ArchiveConflict archiveConflict = new ArchiveConflict();
+            archiveConflict.setThisArchive(archives.get(((Number) c.get("this")).intValue()));
+            archiveConflict.setThatArchive(archives.get(((Number) c.get("that")).intValue()));
+            for (Map<String, Object> o : (List<Map<String, Object>>) c.get("overlaps")) {
+                final ResourceInfo resource = new ResourceInfo();
+                resource.setUri((String) o.get("uri"));
+                resource.setHash((String) o.get("hash"));
+                archiveConflict.addOverlap(resource, (Boolean) o.get("duplicate"));
+            }
+            report.getArchiveConflicts().add(archiveConflict);
+        }
+        for (Map<String, Object> r : (List<Map<String, Object>>) json.get("resources")) {
+            final ResourceWithOptions rwo = new ResourceWithOptions();
+            rwo.setUri((String) r.get("uri"));
+            for (Map.Entry<String, List<Number>> entry : ((Map<String, List<Number>>) r.get("candidates")).entrySet()) {
+                for (Number index : entry.getValue()) {
+                    rwo.addCandidate(entry.getKey(), archives.get(index.intValue()));
+                }
+            }
+            report.getResources().add(rwo);
+        }
+        report.setTotalOverlaps(((Number) json.get("totalOverlaps")).intValue());
+        report.setTotalConflicts(((Number) json.get("totalConflicts")).intValue());
+        return report;
+    }
+}
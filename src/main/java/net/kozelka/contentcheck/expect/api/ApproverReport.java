@@ -1,8 +1,13 @@
 package net.kozelka.contentcheck.expect.api;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
 import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.introspection.DuplicateEntry;
 
 /**
  * This class represents a captured output from content check.
@@ -12,6 +17,8 @@ public class ApproverReport {
     private final Set<ActualEntry> actualEntries;
     private Set<ActualEntry> unexpectedEntries;
     private Set<ApprovedEntry> missingEntries;
+    private List<DuplicateEntry> duplicateEntries = new ArrayList<DuplicateEntry>();
+    private Map<ActualEntry, String> constraintViolations = new LinkedHashMap<ActualEntry, String>();
 
     public ApproverReport(Set<ApprovedEntry> approvedEntries, Set<ActualEntry> archiveContent) {
         super();
@@ -48,4 +55,26 @@ public class ApproverReport {
     public void setMissingEntries(Set<ApprovedEntry> missingEntries) {
         this.missingEntries = missingEntries;
     }
+
+    /**
+     * @return entries matching an approved path whose metadata do not satisfy its constraints, with the reason
+     */
+    public Map<ActualEntry, String> getConstraintViolations() {
+        return constraintViolations;
+    }
+
+    public void setConstraintViolations(Map<ActualEntry, String> constraintViolations) {
+        this.constraintViolations = constraintViolations;
+    }
+
+    /**
+     * @return repeated occurrences of entry names in the source, in the source order
+     */
+    public List<DuplicateEntry> getDuplicateEntries() {
+        return duplicateEntries;
+    }
+
+    public void setDuplicateEntries(List<DuplicateEntry> duplicateEntries) {
+        this.duplicateEntries = duplicateEntries;
+    }
 }
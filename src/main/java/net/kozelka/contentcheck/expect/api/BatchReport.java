@@ -0,0 +1,84 @@
+package net.kozelka.contentcheck.expect.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregated results of checking multiple sources, each against its own listing.
+ *
+ * @author Petr Kozelka
+ */
+public class BatchReport {
+    private final List<Item> items = new ArrayList<Item>();
+    private long totalMillis;
+
+    /**
+     * @return results in the order in which the sources were requested
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    /**
+     * Result of checking one source.
+     */
+    public static class Item {
+        private final File sourceFile;
+        private final File listingFile;
+        private ApproverReport report;
+        private Throwable error;
+        private long millis;
+
+        public Item(File sourceFile, File listingFile) {
+            this.sourceFile = sourceFile;
+            this.listingFile = listingFile;
+        }
+
+        public File getSourceFile() {
+            return sourceFile;
+        }
+
+        public File getListingFile() {
+            return listingFile;
+        }
+
+        /**
+         * @return the report, or null when the check {@link #getError() failed}
+         */
+        public ApproverReport getReport() {
+            return report;
+        }
+
+        public void setReport(ApproverReport report) {
+            this.report = report;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public void setError(Throwable error) {
+            this.error = error;
+        }
+
+        /**
+         * @return how long it took to walk the source and compare it with the listing; listing loading is not included
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        public void setMillis(long millis) {
+            this.millis = millis;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package net.kozelka.contentcheck.expect.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.api.BatchReport;
+import net.kozelka.contentcheck.expect.impl.BatchContentChecker;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * <h1>CLI for checking many sources against their listings.</h1>
+ * <p>Synopsis: <code>check-batch [options] MANIFEST</code></p>
+ * <p>Each non-empty line of the manifest holds a source (archive or directory) and its listing, separated by whitespace.
+ * Relative paths are resolved against the directory of the manifest; lines starting with '#' are ignored.</p>
+ * <ul>
+ *     <li><code>--threads N</code> - number of sources checked in parallel; defaults to number of CPUs</li>
+ *     <li><code>--format text|json</code> - format of the aggregated report, default is <code>text</code></li>
+ *     <li><code>--output FILE</code> - write the report to given file instead of standard output</li>
+ *     <li><code>--check-files-pattern PATTERN</code> - ant-like pattern of checked entries, default is <code>**&#47;*.jar</code></li>
+ *     <li><code>--vendor-id ID</code> - ignore vendor archives with this id in their manifest</li>
+ *     <li><code>--manifest-vendor-entry NAME</code> - manifest entry holding the vendor id</li>
+ *     <li><code>--fail-on-missing</code> - missing entries fail the check, too</li>
+ * </ul>
+ * <p>Exit code is 0 when all sources are valid, 1 when some has unexpected (or missing) entries,
+ * 2 on wrong usage and 3 when some source cannot be checked.</p>
+ *
+ * @author Petr Kozelka
+ */
+public class ContentCheckBatchMain {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_INVALID = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_ERROR = 3;
+
+    private final BatchContentChecker checker = new BatchContentChecker();
+    private File manifestFile;
+    private File outputFile;
+    private boolean json;
+    private boolean failOnMissing;
+
+    public static void main(String ... args) throws Exception {
+        final int exitCode = new ContentCheckBatchMain().run(System.out, System.err, args);
+        if (exitCode != EXIT_OK) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs the CLI without terminating the JVM.
+     * @return the exit code
+     */
+    public int run(PrintStream stdout, PrintStream stderr, String ... args) throws IOException, InterruptedException {
+        final List<BatchReport.Item> items;
+        try {
+            parseArgs(args);
+            items = readManifest(manifestFile);
+        } catch (IllegalArgumentException e) {
+            stderr.println("ERROR: " + e.getMessage());
+            stderr.println("Usage: check-batch [--threads N] [--format text|json] [--output FILE] [--check-files-pattern PATTERN]"
+                + " [--vendor-id ID] [--manifest-vendor-entry NAME] [--fail-on-missing] MANIFEST");
+            return EXIT_USAGE;
+        }
+        final BatchReport batchReport = checker.check(items);
+        final PrintStream out = outputFile == null ? stdout : new PrintStream(new FileOutputStream(outputFile), false, "UTF-8");
+        try {
+            if (json) {
+                writeJson(out, batchReport);
+            } else {
+                writeText(out, batchReport);
+            }
+            out.flush();
+        } finally {
+            if (outputFile != null) {
+                out.close();
+            }
+        }
+        int exitCode = EXIT_OK;
+        for (BatchReport.Item item : batchReport.getItems()) {
+            final ApproverReport report = item.getReport();
+            if (report == null) {
+                stderr.println(String.format("ERROR: cannot check %s: %s", item.getSourceFile(), item.getError()));
+                exitCode = EXIT_ERROR;
+            } else if (!isValid(report) && exitCode == EXIT_OK) {
+                exitCode = EXIT_INVALID;
+            }
+        }
+        return exitCode;
+    }
+
+    private boolean isValid(ApproverReport report) {
+        return report.getUnexpectedEntries().isEmpty() && report.getConstraintViolations().isEmpty() && !(failOnMissing && !report.getMissingEntries().isEmpty());
+    }
+
+    private void writeText(PrintStream out, BatchReport batchReport) {
+        int invalid = 0;
+        for (BatchReport.Item item : batchReport.getItems()) {
+            final ApproverReport report = item.getReport();
+            if (report == null) {
+                out.println(String.format("ERROR %s: %s", item.getSourceFile(), item.getError()));
+                invalid++;
+                continue;
+            }
+            final boolean valid = isValid(report);
+            if (!valid) {
+                invalid++;
+            }
+            out.println(String.format("%s %s (%d checked, %d unexpected, %d missing) in %d ms",
+                valid ? "OK" : "FAIL",
+                item.getSourceFile(),
+                report.getActualEntries().size(),
+                report.getUnexpectedEntries().size(),
+                report.getMissingEntries().size(),
+                item.getMillis()));
+            for (ActualEntry actualEntry : report.getUnexpectedEntries()) {
+                out.println("  unexpected: " + actualEntry.getUri());
+            }
+            for (ApprovedEntry missing : report.getMissingEntries()) {
+                out.println("  missing: " + missing);
+            }
+            for (Map.Entry<ActualEntry, String> violation : report.getConstraintViolations().entrySet()) {
+                out.println("  violation: " + violation.getKey().getUri() + ": " + violation.getValue());
+            }
+        }
+        out.println(String.format("Total: %d of %d sources failed, checked in %d ms",
+            invalid, batchReport.getItems().size(), batchReport.getTotalMillis()));
+    }
+
+    private void writeJson(PrintStream out, BatchReport batchReport) throws IOException {
+        final List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+        for (BatchReport.Item item : batchReport.getItems()) {
+            final Map<String, Object> result = new LinkedHashMap<String, Object>();
+            result.put("source", item.getSourceFile().getPath());
+            result.put("listing", item.getListingFile().getPath());
+            final ApproverReport report = item.getReport();
+            if (report == null) {
+                result.put("error", String.valueOf(item.getError()));
+            } else {
+                result.put("valid", isValid(report));
+                result.put("millis", item.getMillis());
+                result.put("checked", report.getActualEntries().size());
+                final List<String> unexpected = new ArrayList<String>();
+                for (ActualEntry actualEntry : report.getUnexpectedEntries()) {
+                    unexpected.add(actualEntry.getUri());
+                }
+                result.put("unexpected", unexpected);
+                final List<String> missing = new ArrayList<String>();
+                for (ApprovedEntry approvedEntry : report.getMissingEntries()) {
+                    missing.add(approvedEntry.getUri());
+                }
+                result.put("missing", missing);
+                final Map<String, String> violations = new LinkedHashMap<String, String>();
+                for (Map.Entry<ActualEntry, String> violation : report.getConstraintViolations().entrySet()) {
+                    violations.put(violation.getKey().getUri(), violation.getValue());
+                }
+                result.put("violations", violations);
+            }
+            results.add(result);
+        }
+        final Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put("totalMillis", batchReport.getTotalMillis());
+        json.put("results", results);
+        out.println(new ObjectMapper().writeValueAsString(json));
+    }
+
+    private void parseArgs(String ... args) {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.equals("--threads")) {
+                final int threads = intValue(args, ++i, arg);
+                if (threads < 1) {
+                    throw new IllegalArgumentException("Option --threads must be positive");
+                }
+                checker.setThreads(threads);
+            } else if (arg.equals("--format")) {
+                final String format = optionValue(args, ++i, arg);
+                if (!format.equals("text") && !format.equals("json")) {
+                    throw new IllegalArgumentException("Unsupported format: " + format);
+                }
+                json = format.equals("json");
+            } else if (arg.equals("--output")) {
+                outputFile = new File(optionValue(args, ++i, arg));
+            } else if (arg.equals("--check-files-pattern")) {
+                checker.setCheckFilesPattern(optionValue(args, ++i, arg));
+            } else if (arg.equals("--vendor-id")) {
+                checker.setVendorId(optionValue(args, ++i, arg));
+                checker.setIgnoreVendorArchives(true);
+            } else if (arg.equals("--manifest-vendor-entry")) {
+                checker.setManifestVendorEntry(optionValue(args, ++i, arg));
+            } else if (arg.equals("--fail-on-missing")) {
+                failOnMissing = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else if (manifestFile == null) {
+                manifestFile = new File(arg);
+            } else {
+                throw new IllegalArgumentException("Only one manifest is allowed");
+            }
+        }
+        if (manifestFile == null) {
+            throw new IllegalArgumentException("No manifest specified");
+        }
+        if (!manifestFile.isFile()) {
+            throw new IllegalArgumentException("File not found: " + manifestFile);
+        }
+    }
+
+    static List<BatchReport.Item> readManifest(File manifestFile) throws IOException {
+        final File baseDir = manifestFile.getAbsoluteFile().getParentFile();
+        final List<BatchReport.Item> items = new ArrayList<BatchReport.Item>();
+        final BufferedReader reader = new BufferedReader(new FileReader(manifestFile));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.length() == 0) continue;
+                if (line.startsWith("#")) continue;
+                final String[] columns = line.split("\\s+");
+                if (columns.length != 2) {
+                    throw new IllegalArgumentException(String.format("%s:%d: expected 'source listing', found '%s'", manifestFile, lineNumber, line));
+                }
+                items.add(new BatchReport.Item(resolve(baseDir, columns[0]), resolve(baseDir, columns[1])));
+            }
+        } finally {
+            reader.close();
+        }
+        return items;
+    }
+
+    private static File resolve(File baseDir, String path) {
+        final File file = new File(path);
+        return file.isAbsolute() ? file : new File(baseDir, path);
+    }
+
+    private static String optionValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Option " + option + " requires a value");
+        }
+        return args[index];
+    }
+
+    private static int intValue(String[] args, int index, String option) {
+        final String value = optionValue(args, index, option);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + option + " requires a number, not " + value);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package net.kozelka.contentcheck.expect.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.api.BatchReport;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.util.EventSink;
+
+/**
+ * Checks many sources, each against its listing, on a pool of worker threads.
+ * Listings shared by multiple sources are read only once.
+ *
+ * @author Petr Kozelka
+ */
+public class BatchContentChecker {
+    private final EventSink<ContentChecker.Events> events = EventSink.create(ContentChecker.Events.class);
+    private final EventSink<ContentIntrospector.Events> introspectionEvents = EventSink.create(ContentIntrospector.Events.class);
+    private final ConcurrentMap<File, Future<Set<ApprovedEntry>>> listings = new ConcurrentHashMap<File, Future<Set<ApprovedEntry>>>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean ignoreVendorArchives;
+    private String vendorId;
+    private String manifestVendorEntry = VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME;
+    private String checkFilesPattern = "**/*.jar";
+
+    /**
+     * Note that the listeners are called from worker threads, and must be thread-safe.
+     */
+    public EventSink<ContentChecker.Events> getEvents() {
+        return events;
+    }
+
+    /**
+     * Note that the listeners are called from worker threads, and must be thread-safe.
+     */
+    public EventSink<ContentIntrospector.Events> getIntrospectionEvents() {
+        return introspectionEvents;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setIgnoreVendorArchives(boolean ignoreVendorArchives) {
+        this.ignoreVendorArchives = ignoreVendorArchives;
+    }
+
+    public void setVendorId(String vendorId) {
+        this.vendorId = vendorId;
+    }
+
+    public void setManifestVendorEntry(String manifestVendorEntry) {
+        this.manifestVendorEntry = manifestVendorEntry;
+    }
+
+    public void setCheckFilesPattern(String checkFilesPattern) {
+        this.checkFilesPattern = checkFilesPattern;
+    }
+
+    /**
+     * Checks all given items and waits for the results.
+     * @param items sources with their listings; results are stored into them
+     * @return the aggregated report
+     */
+    public BatchReport check(List<BatchReport.Item> items) throws InterruptedException {
+        final long start = System.nanoTime();
+        final BatchReport batchReport = new BatchReport();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, items.size())));
+        try {
+            final List<Future<BatchReport.Item>> futures = new ArrayList<Future<BatchReport.Item>>(items.size());
+            for (final BatchReport.Item item : items) {
+                futures.add(executor.submit(new Callable<BatchReport.Item>() {
+                    public BatchReport.Item call() {
+                        checkItem(item);
+                        return item;
+                    }
+                }));
+            }
+            for (int i = 0; i < items.size(); i++) {
+                final BatchReport.Item item = items.get(i);
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // errors escaping the check fail just its source
+                    item.setReport(null);
+                    item.setError(e.getCause());
+                }
+                batchReport.getItems().add(item);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        batchReport.setTotalMillis((System.nanoTime() - start) / 1000000);
+        return batchReport;
+    }
+
+    private void checkItem(BatchReport.Item item) {
+        try {
+            final Set<ApprovedEntry> approvedEntries = loadListing(item.getListingFile());
+            final long start = System.nanoTime();
+            final ContentChecker contentChecker = new ContentChecker();
+            contentChecker.getEvents().addListener(events.fire);
+            final ContentIntrospector introspector = VendorFilter.createIntrospector(introspectionEvents.fire,
+                ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern);
+            introspector.setSourceFile(item.getSourceFile());
+            contentChecker.setIntrospector(introspector);
+            final ApproverReport report = contentChecker.check(approvedEntries);
+            item.setMillis((System.nanoTime() - start) / 1000000);
+            item.setReport(report);
+        } catch (IOException e) {
+            item.setError(e);
+        } catch (RuntimeException e) {
+            item.setError(e);
+        } catch (ExecutionException e) {
+            item.setError(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            item.setError(e);
+        }
+    }
+
+    /**
+     * Reads the listing, or waits until other thread reads it.
+     */
+    private Set<ApprovedEntry> loadListing(final File listingFile) throws ExecutionException, InterruptedException {
+        final File key = listingFile.getAbsoluteFile();
+        Future<Set<ApprovedEntry>> future = listings.get(key);
+        if (future == null) {
+            final FutureTask<Set<ApprovedEntry>> task = new FutureTask<Set<ApprovedEntry>>(new Callable<Set<ApprovedEntry>>() {
+                public Set<ApprovedEntry> call() throws IOException {
+                    final ContentChecker contentChecker = new ContentChecker();
+                    contentChecker.getEvents().addListener(events.fire);
+                    final Set<ApprovedEntry> approvedEntries = contentChecker.readApprovedContent(key);
+                    events.fire.contentListingSummary(key, approvedEntries.size());
+                    return approvedEntries;
+                }
+            });
+            future = listings.putIfAbsent(key, task);
+            if (future == null) {
+                future = task;
+                task.run();
+            }
+        }
+        return future.get();
+    }
+}
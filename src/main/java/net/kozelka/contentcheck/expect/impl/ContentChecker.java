@@ -2,14 +2,32 @@ package net.kozelka.contentcheck.expect.impl;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
 import net.kozelka.contentcheck.expect.model.ApprovedEntry;
 import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.util.ExpectUtils;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.DuplicateEntry;
+import net.kozelka.contentcheck.introspection.EntryDigester;
+import net.kozelka.contentcheck.introspection.MavenCoordinates;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesCache;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesResolver;
 import net.kozelka.contentcheck.util.EventSink;
 import org.codehaus.plexus.util.SelectorUtils;
 
@@ -17,9 +35,13 @@ import org.codehaus.plexus.util.SelectorUtils;
  * The content checker implementation.
  */
 public class ContentChecker {
+    private static final Pattern CONSTRAINT = Pattern.compile("(.*\\S)\\s+(maxSize|method|crc|md5|sha1|sha256|sha384|sha512)=(\\S+)");
+    private static final String ANY_GROUP = "*";
 
     private final EventSink<Events> events = EventSink.create(Events.class);
     private ContentIntrospector introspector;
+    private int digestThreads = Runtime.getRuntime().availableProcessors();
+    private MavenCoordinatesCache coordinatesCache;
 
     static boolean entrysetContainsUri(Set<ApprovedEntry> entryset, String uri) {
         for (ApprovedEntry approvedEntry : entryset) {
@@ -36,6 +58,21 @@ public class ContentChecker {
         this.introspector = introspector;
     }
 
+    /**
+     * @param digestThreads how many threads compute digests of entries pinned by the listing, and read Maven coordinates of jars;
+     * defaults to the number of processors
+     */
+    public void setDigestThreads(int digestThreads) {
+        this.digestThreads = digestThreads;
+    }
+
+    /**
+     * @param coordinatesCache Maven coordinates of jars read before; updated with those read by this checker
+     */
+    public void setCoordinatesCache(MavenCoordinatesCache coordinatesCache) {
+        this.coordinatesCache = coordinatesCache;
+    }
+
     /**
      * Checks a content of {@code sourceFile} according to an allowed content defined by {@code approvedContentFile}.
      *
@@ -46,36 +83,203 @@ public class ContentChecker {
     public ApproverReport check(final File approvedContentFile) throws IOException{
         final Set<ApprovedEntry> approvedEntries = readApprovedContent(approvedContentFile);
         events.fire.contentListingSummary(approvedContentFile, approvedEntries.size());
+        return check(approvedEntries);
+    }
+
+    /**
+     * Checks a content of {@code sourceFile} according to already loaded approved entries.
+     * Useful when one listing is shared by multiple sources; the entries are only read, never modified.
+     *
+     * @param approvedEntries allowed content, as {@link #readApprovedContent(File) read} from a listing
+     * @return the result of source check
+     * @throws IOException if something very bad happen
+     */
+    public ApproverReport check(final Set<ApprovedEntry> approvedEntries) throws IOException {
         final Set<ActualEntry> actualEntries = new LinkedHashSet<ActualEntry>();
-        final ContentIntrospector.Events collector = new ContentCollector(actualEntries);
+        final List<DuplicateEntry> duplicateEntries = new ArrayList<DuplicateEntry>();
+        final ContentIntrospector.Events collector = new ContentCollector(actualEntries, duplicateEntries);
+        final EntryDigester digester = createDigester(approvedEntries);
+        final MavenCoordinatesResolver resolver = hasCoordinateRules(approvedEntries)
+            ? new MavenCoordinatesResolver(coordinatesCache, digestThreads)
+            : null;
         introspector.getEvents().addListener(collector);
-        final int totalCount = introspector.walk();
-        introspector.getEvents().removeListener(collector);
-        //XXX dagi: duplicit entries detection https://github.com/pkozelka/contentcheck-maven-plugin/issues#issue/4
+        // digests and coordinates are computed by workers while the walk goes on
+        if (digester != null) {
+            introspector.addEntryContentConsumer(digester);
+        }
+        if (resolver != null) {
+            introspector.addEntryContentConsumer(resolver);
+        }
+        final int totalCount;
+        Map<String, Map<String, String>> digests = null;
+        Map<String, MavenCoordinates> coordinates = null;
+        try {
+            totalCount = introspector.walk();
+            if (digester != null) {
+                digests = digester.finish();
+            }
+            if (resolver != null) {
+                coordinates = resolver.finish();
+            }
+        } finally {
+            introspector.getEvents().removeListener(collector);
+            if (digester != null) {
+                introspector.removeEntryContentConsumer(digester);
+                digester.close();
+            }
+            if (resolver != null) {
+                introspector.removeEntryContentConsumer(resolver);
+                resolver.close();
+            }
+        }
+        for (ActualEntry actual : actualEntries) {
+            if (digests != null && digests.containsKey(actual.getUri())) {
+                actual.getDigests().putAll(digests.get(actual.getUri()));
+            }
+            if (coordinates != null) {
+                setCoordinates(actual, coordinates.get(actual.getUri()));
+            }
+        }
         events.fire.summary(introspector.getSourceFile(), actualEntries.size(), totalCount);
+        final ApproverReport report = compareEntries(approvedEntries, actualEntries);
+        report.setDuplicateEntries(duplicateEntries);
+        return report;
+    }
+
+    /**
+     * Checks entries known without walking a source, like those predicted from project dependencies.
+     * Digests pinned by the listing are computed from the given files.
+     *
+     * @param approvedEntries allowed content, as {@link #readApprovedContent(File) read} from a listing
+     * @param actualEntries the entries, with Maven coordinates if known
+     * @param contentFiles files having the same content as the entries, by entry path; entries without a file have no digest
+     * @return the result of the check
+     * @throws IOException when a content file cannot be read
+     */
+    public ApproverReport check(Set<ApprovedEntry> approvedEntries, Set<ActualEntry> actualEntries, Map<String, File> contentFiles) throws IOException {
+        for (ActualEntry actual : actualEntries) {
+            final File contentFile = contentFiles.get(actual.getUri());
+            if (contentFile == null) continue;
+            for (ApprovedEntry approved : approvedEntries) {
+                final String algorithm = approved.getDigestAlgorithm();
+                if (algorithm != null && actual.getDigest(algorithm) == null && match(approved, actual)) {
+                    actual.setDigest(algorithm, digest(contentFile, algorithm));
+                }
+            }
+        }
         return compareEntries(approvedEntries, actualEntries);
     }
 
+    private static String digest(File file, String algorithm) throws IOException {
+        final MessageDigest md = EntryDigester.createDigest(algorithm);
+        final InputStream is = new FileInputStream(file);
+        try {
+            final byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        } finally {
+            is.close();
+        }
+        return EntryDigester.toHex(md.digest());
+    }
+
+    private static boolean hasCoordinateRules(Set<ApprovedEntry> approvedEntries) {
+        for (ApprovedEntry approved : approvedEntries) {
+            if (approved.hasCoordinates()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets coordinates of a jar, falling back to those guessed from its file name.
+     * @param coordinates as read from the jar, null if it has none
+     */
+    public static void setCoordinates(ActualEntry actual, MavenCoordinates coordinates) {
+        if (coordinates == null) {
+            coordinates = MavenCoordinates.fromFileName(actual.getUri());
+            if (coordinates == null) return;
+        }
+        actual.setGroupId(coordinates.getGroupId());
+        actual.setArtifactId(coordinates.getArtifactId());
+        actual.setVersion(coordinates.getVersion());
+    }
+
+    /**
+     * @return digester of entries matched by rules with a digest, null if there are no such rules
+     */
+    private EntryDigester createDigester(Set<ApprovedEntry> approvedEntries) {
+        final List<ApprovedEntry> pinned = new ArrayList<ApprovedEntry>();
+        for (ApprovedEntry approved : approvedEntries) {
+            if (approved.getDigest() != null) {
+                pinned.add(approved);
+            }
+        }
+        if (pinned.isEmpty()) return null;
+        return new EntryDigester(new EntryDigester.Selector() {
+            public Collection<String> getAlgorithms(String entryName) {
+                Set<String> algorithms = null;
+                for (ApprovedEntry approved : pinned) {
+                    // coordinates are not known yet, so all jars are candidates
+                    if (approved.hasCoordinates() ? entryName.endsWith(".jar") : match(approved.getUri(), entryName)) {
+                        if (algorithms == null) {
+                            algorithms = new LinkedHashSet<String>();
+                        }
+                        algorithms.add(approved.getDigestAlgorithm());
+                    }
+                }
+                return algorithms;
+            }
+        }, digestThreads);
+    }
+
     static boolean match(String approvedPattern, String actual) {
         return SelectorUtils.matchPath(approvedPattern, actual);
     }
 
+    /**
+     * A coordinates rule matches jars with matching coordinates. When they are guessed from the file name,
+     * which tells no groupId, only rules with <code>*</code> groupId can match; anyone can name a jar after a trusted artifact.
+     */
+    static boolean match(ApprovedEntry approved, ActualEntry actual) {
+        if (!approved.hasCoordinates()) return match(approved.getUri(), actual.getUri());
+        if (actual.getArtifactId() == null) return false;
+        if (actual.getGroupId() == null ? !ANY_GROUP.equals(approved.getGroupId()) : !SelectorUtils.match(approved.getGroupId(), actual.getGroupId())) return false;
+        if (!SelectorUtils.match(approved.getArtifactId(), actual.getArtifactId())) return false;
+        if (approved.getVersion() == null) return true;
+        return actual.getVersion() != null && SelectorUtils.match(approved.getVersion(), actual.getVersion());
+    }
+
     static ApproverReport compareEntries(Set<ApprovedEntry> approvedEntries, Set<ActualEntry> actualEntries) {
         final Set<ActualEntry> unexpectedEntries = new LinkedHashSet<ActualEntry>(actualEntries.size());
+        final Map<ActualEntry, String> constraintViolations = new LinkedHashMap<ActualEntry, String>();
         for (ActualEntry actual : actualEntries) {
             boolean found = false;
+            String violation = null;
             for (ApprovedEntry approved : approvedEntries) {
-                if (match(approved.getUri(), actual.getUri())) {
-                    found = true;
-                    break;
+                if (match(approved, actual)) {
+                    // any matching rule can approve the entry
+                    final String v = checkConstraints(approved, actual);
+                    if (v == null) {
+                        found = true;
+                        break;
+                    }
+                    if (violation == null) {
+                        violation = v;
+                    }
                 }
             }
-            if (!found) {
+            if (found) continue;
+            if (violation != null) {
+                constraintViolations.put(actual, violation);
+            } else {
                 unexpectedEntries.add(actual);
             }
         }
         final ApproverReport result = new ApproverReport(approvedEntries, actualEntries);
         result.setUnexpectedEntries(unexpectedEntries);
+        result.setConstraintViolations(constraintViolations);
 
         // TODO: merge these two iterations into one; remove from a working set while doing first iteration, etc. Beware of regexes on one side.
 
@@ -83,7 +287,7 @@ public class ContentChecker {
         for (ApprovedEntry approved : approvedEntries) {
             boolean found = false;
             for (ActualEntry actual : actualEntries) {
-                if (match(approved.getUri(), actual.getUri())) {
+                if (match(approved, actual)) {
                     found = true;
                     break;
                 }
@@ -96,7 +300,115 @@ public class ContentChecker {
         return result;
     }
 
-    protected Set<ApprovedEntry> readApprovedContent(final File approvedContentFile) throws IOException {
+    /**
+     * Values that the container does not provide cannot violate a constraint; a digest however must be known, as it is
+     * computed for every entry matched by a rule with digest.
+     * @return null if the entry satisfies all constraints of the rule, otherwise the reason why not
+     */
+    static String checkConstraints(ApprovedEntry approved, ActualEntry actual) {
+        if (!approved.hasConstraints()) return null;
+        if (approved.getMaxSize() >= 0 && actual.getSize() > approved.getMaxSize()) {
+            return String.format("size %d exceeds maxSize=%d of '%s'", actual.getSize(), approved.getMaxSize(), approved);
+        }
+        if (approved.getMethod() >= 0 && actual.getMethod() >= 0 && actual.getMethod() != approved.getMethod()) {
+            return String.format("method %s differs from method=%s of '%s'", methodName(actual.getMethod()), methodName(approved.getMethod()), approved);
+        }
+        if (approved.getCrc() >= 0 && actual.getCrc() >= 0 && actual.getCrc() != approved.getCrc()) {
+            return String.format("crc %08x differs from crc=%08x of '%s'", actual.getCrc(), approved.getCrc(), approved);
+        }
+        if (approved.getDigest() != null) {
+            final String key = ExpectUtils.digestKey(approved.getDigestAlgorithm());
+            final String digest = actual.getDigest(approved.getDigestAlgorithm());
+            if (digest == null) {
+                return String.format("%s digest not available for %s=%s of '%s'", key, key, approved.getDigest(), approved);
+            }
+            if (!digest.equals(approved.getDigest())) {
+                return String.format("%s %s differs from %s=%s of '%s'", key, digest, key, approved.getDigest(), approved);
+            }
+        }
+        return null;
+    }
+
+    private static String methodName(int method) {
+        switch (method) {
+            case ZipEntry.STORED: return "STORED";
+            case ZipEntry.DEFLATED: return "DEFLATED";
+            default: return String.valueOf(method);
+        }
+    }
+
+    /**
+     * Parses one line of the listing: a path pattern or Maven coordinates <code>groupId:artifactId[:version]</code>
+     * (each part may contain wildcards), optionally followed by whitespace separated constraints on matching entries:
+     * <ul>
+     *     <li><code>maxSize=</code><i>bytes</i>, with optional suffix <code>K</code>, <code>M</code> or <code>G</code></li>
+     *     <li><code>method=STORED</code> or <code>method=DEFLATED</code></li>
+     *     <li><code>crc=</code><i>hexadecimal CRC-32</i></li>
+     *     <li><code>sha256=</code><i>hexadecimal digest of the content</i>; also <code>sha1</code>, <code>sha384</code>,
+     *     <code>sha512</code> and <code>md5</code></li>
+     * </ul>
+     * @throws IllegalArgumentException for invalid constraint value
+     */
+    static ApprovedEntry parseApprovedEntry(String line) {
+        final ApprovedEntry entry = new ApprovedEntry();
+        String uri = line;
+        Matcher matcher = CONSTRAINT.matcher(uri);
+        while (matcher.matches()) {
+            final String key = matcher.group(2);
+            final String value = matcher.group(3);
+            if (key.equals("maxSize")) {
+                entry.setMaxSize(parseSize(value));
+            } else if (key.equals("method")) {
+                entry.setMethod(parseMethod(value));
+            } else if (key.equals("crc")) {
+                entry.setCrc(Long.parseLong(value, 16) & 0xffffffffL);
+            } else {
+                entry.setDigest(ExpectUtils.digestAlgorithm(key), parseDigest(key, value));
+            }
+            uri = matcher.group(1);
+            matcher = CONSTRAINT.matcher(uri);
+        }
+        entry.setUri(uri);
+        final MavenCoordinates coordinates = MavenCoordinates.parse(uri);
+        if (coordinates != null) {
+            entry.setGroupId(coordinates.getGroupId());
+            entry.setArtifactId(coordinates.getArtifactId());
+            entry.setVersion(coordinates.getVersion());
+        }
+        return entry;
+    }
+
+    private static long parseSize(String value) {
+        final String upper = value.toUpperCase(Locale.ENGLISH);
+        final char unit = upper.charAt(upper.length() - 1);
+        final int shift = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+        final String number = shift == 0 ? upper : upper.substring(0, upper.length() - 1);
+        return Long.parseLong(number) << shift;
+    }
+
+    private static String parseDigest(String key, String value) {
+        final String algorithm = ExpectUtils.digestAlgorithm(key);
+        final int length = EntryDigester.createDigest(algorithm).getDigestLength() * 2;
+        if (value.length() != length || !value.matches("[0-9a-fA-F]+")) {
+            throw new IllegalArgumentException(String.format("%s digest must have %d hexadecimal digits: %s", key, length, value));
+        }
+        return value.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static int parseMethod(String value) {
+        if (value.equals("STORED")) return ZipEntry.STORED;
+        if (value.equals("DEFLATED")) return ZipEntry.DEFLATED;
+        throw new IllegalArgumentException("Unknown compression method: " + value);
+    }
+
+    /**
+     * Reads the listing file. Duplicate lines are reported as {@link Events#duplicate(File, String)} events.
+     *
+     * @param approvedContentFile a file that defines allowed content
+     * @return approved entries, in the order of the listing
+     * @throws IOException when the listing cannot be read
+     */
+    public Set<ApprovedEntry> readApprovedContent(final File approvedContentFile) throws IOException {
         //TODO this should become a separate "parser/loader" class, to enable support of multiple formats and new features
         final Set<ApprovedEntry> approvedContent = new LinkedHashSet<ApprovedEntry>();
         final BufferedReader reader = new BufferedReader(new FileReader(approvedContentFile));
@@ -108,11 +420,15 @@ public class ContentChecker {
                 if (line.length() == 0) continue;
                 if (line.startsWith("#")) continue;
                 // TODO: this is a bit incorrect, because line is now rather "rule" that can have multiple, hard-to-compare forms. We should replace this with checking that each occurrence is matched by exactly one rule.
-                if(entrysetContainsUri(approvedContent, line)) {
+                final ApprovedEntry entry;
+                try {
+                    entry = parseApprovedEntry(line);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(String.format("%s: invalid line '%s': %s", approvedContentFile, line, e.getMessage()), e);
+                }
+                if(entrysetContainsUri(approvedContent, entry.getUri())) {
                     events.fire.duplicate(approvedContentFile, line);
                 }
-                final ApprovedEntry entry = new ApprovedEntry();
-                entry.setUri(line);
                 approvedContent.add(entry);
             }
             return approvedContent;
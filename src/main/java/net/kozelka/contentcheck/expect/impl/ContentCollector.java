@@ -5,15 +5,27 @@ import java.io.IOException;
 import java.util.Collection;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.DuplicateEntry;
+import net.kozelka.contentcheck.introspection.EntryMetadata;
+import net.kozelka.contentcheck.util.BudgetExceededException;
 
 /**
  * This listener collects actual entries from an archive.
  */
 public class ContentCollector implements ContentIntrospector.Events {
     private final Collection<ActualEntry> actualEntries;
+    private final Collection<DuplicateEntry> duplicateEntries;
 
     public ContentCollector(Collection<ActualEntry> actualEntries) {
+        this(actualEntries, null);
+    }
+
+    /**
+     * @param duplicateEntries collects entry names occurring more than once; can be null
+     */
+    public ContentCollector(Collection<ActualEntry> actualEntries, Collection<DuplicateEntry> duplicateEntries) {
         this.actualEntries = actualEntries;
+        this.duplicateEntries = duplicateEntries;
     }
 
     public void readingSourceFile(File sourceFile) {
@@ -34,9 +46,23 @@ public class ContentCollector implements ContentIntrospector.Events {
     public void checkingInTmpfile(String jarPath, File tempFile) {
     }
 
-    public void processEntry(String entryName) {
+    public void processEntry(String entryName, EntryMetadata metadata) {
         final ActualEntry actualEntry = new ActualEntry();
         actualEntry.setUri(entryName);
+        actualEntry.setSize(metadata.getSize());
+        actualEntry.setCompressedSize(metadata.getCompressedSize());
+        actualEntry.setCrc(metadata.getCrc());
+        actualEntry.setMethod(metadata.getMethod());
+        actualEntry.setTime(metadata.getTime());
         actualEntries.add(actualEntry);
     }
+
+    public void duplicateEntry(DuplicateEntry duplicate) {
+        if (duplicateEntries != null) {
+            duplicateEntries.add(duplicate);
+        }
+    }
+
+    public void budgetExceeded(File sourceFile, BudgetExceededException e) {
+    }
 }
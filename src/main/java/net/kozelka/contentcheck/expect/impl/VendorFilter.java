@@ -1,16 +1,16 @@
 package net.kozelka.contentcheck.expect.impl;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.UUID;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.util.BudgetExceededException;
 import net.kozelka.contentcheck.util.EventSink;
-import org.codehaus.plexus.util.IOUtil;
 
 /**
  * Determines if an entry is matching given vendor.
@@ -23,6 +23,7 @@ public class VendorFilter implements ContentIntrospector.EntryContentFilter {
 
     private final String vendorId;
     private String manifestVendorEntry = DEFAULT_VENDOR_MANIFEST_ENTRY_NAME;
+    private ArchiveIndex archiveIndex;
     //todo: use own events!
     private EventSink<ContentIntrospector.Events> events = EventSink.create(ContentIntrospector.Events.class);
 
@@ -31,18 +32,36 @@ public class VendorFilter implements ContentIntrospector.EntryContentFilter {
     }
 
     public static ContentIntrospector createIntrospector(ContentIntrospector.Events listener, boolean ignoreVendorArchives, String vendorId, String manifestVendorEntry, String checkFilesPattern) {
+        return createIntrospector(listener, ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern, null);
+    }
+
+    /**
+     * @param archiveIndex already built index of the source file, or null; when given, the introspector is set to its source file
+     */
+    public static ContentIntrospector createIntrospector(ContentIntrospector.Events listener, boolean ignoreVendorArchives, String vendorId, String manifestVendorEntry, String checkFilesPattern, ArchiveIndex archiveIndex) {
         final ContentIntrospector contentIntrospector = new ContentIntrospector();
         contentIntrospector.getEvents().addListener(listener);
         contentIntrospector.setCheckFilesPattern(checkFilesPattern);
+        if (archiveIndex != null) {
+            contentIntrospector.setArchiveIndex(archiveIndex);
+        }
         if (ignoreVendorArchives) {
             final VendorFilter vendorFilter = new VendorFilter(vendorId);
             vendorFilter.setManifestVendorEntry(manifestVendorEntry);
+            vendorFilter.setArchiveIndex(archiveIndex);
             vendorFilter.getEvents().addListener(listener);
             contentIntrospector.setEntryContentFilter(vendorFilter);
         }
         return contentIntrospector;
     }
 
+    /**
+     * @param archiveIndex if set, manifests of jars known to the index are taken from it, without reading the content
+     */
+    public void setArchiveIndex(ArchiveIndex archiveIndex) {
+        this.archiveIndex = archiveIndex;
+    }
+
     public void setManifestVendorEntry(String manifestVendorEntry) {
         this.manifestVendorEntry = manifestVendorEntry;
     }
@@ -53,53 +72,36 @@ public class VendorFilter implements ContentIntrospector.EntryContentFilter {
 
     public boolean accept(String entryName, InputStream entryContentStream) throws IOException {
         if (!entryName.endsWith(".jar")) return true;
-        //todo avoid the need for temporary file
-        final File tempFile = copyStreamToTemporaryFile(entryName, entryContentStream);
-        tempFile.deleteOnExit();
-        final boolean vendorArchive = checkArchiveManifest(entryName, tempFile);
-        tempFile.delete();//only for sure if the plugin is used in long live JVM
+        final ArchiveIndex.NestedArchive nestedArchive = archiveIndex == null ? null : archiveIndex.getNestedArchive(entryName);
+        if (nestedArchive != null) {
+            final Attributes mainAttributes = nestedArchive.getMainAttributes();
+            return mainAttributes == null || !vendorId.equals(mainAttributes.getValue(manifestVendorEntry));
+        }
+        final Manifest manifest = readManifest(entryName, entryContentStream);
+        if (manifest == null) return true;
+        final boolean vendorArchive = vendorId.equals(manifest.getMainAttributes().getValue(manifestVendorEntry));
         return !vendorArchive; // we want matching vendors to be ignored
     }
 
     /**
-     * @return true when vendorId matches with jar's manifest otherwise false
+     * Scans the jar stream for its manifest, in memory; works for nested jars as well.
+     * @return the manifest, or null if there is none or it cannot be read
+     * @throws BudgetExceededException if the jar exceeds the resource budget of the walk; that is not just an unreadable manifest
      */
-    private boolean checkArchiveManifest(final String jarPath, File tempJAR) {
-        JarFile jarFile = null;
+    private Manifest readManifest(String jarPath, InputStream jarStream) throws BudgetExceededException {
         try {
-            jarFile = new JarFile(tempJAR);
-            final Manifest manifest = jarFile.getManifest();
-            if(manifest != null) {
-                final Attributes mainAttributes = manifest.getMainAttributes();
-                if(mainAttributes != null) {
-                    final String vendor = mainAttributes.getValue(manifestVendorEntry);
-                    return vendorId.equals(vendor);
+            final ZipInputStream zis = new ZipInputStream(jarStream);
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (JarFile.MANIFEST_NAME.equalsIgnoreCase(entry.getName())) {
+                    return new Manifest(zis);
                 }
             }
-
+        } catch (BudgetExceededException e) {
+            throw e;
         } catch (IOException e) {
             events.fire.cannotCheckManifest(jarPath, e);
-        } finally {
-            if(jarFile != null) {
-                try {
-                    jarFile.close();
-                } catch (IOException e) {
-                    events.fire.cannotClose(jarPath, e);
-                }
-            }
-        }
-        return false;
-    }
-
-    private File copyStreamToTemporaryFile(final String jarPath, final InputStream archiveInputStream) throws IOException {
-        final File tempFile = File.createTempFile(UUID.randomUUID().toString(), "jar");
-        final FileOutputStream fos = new  FileOutputStream(tempFile);
-        try {
-            events.fire.checkingInTmpfile(jarPath, tempFile);
-            IOUtil.copy(archiveInputStream, fos);
-            return tempFile;
-        } finally {
-            fos.close();
         }
+        return null;
     }
 }
@@ -1,5 +1,8 @@
 package net.kozelka.contentcheck.expect.model;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Represents the entry actually found in its container (like WAR file).
  * It is supposed to come with as much information as it is possible to obtain 'cheaply'.
@@ -8,8 +11,17 @@ package net.kozelka.contentcheck.expect.model;
 public class ActualEntry {
 
     private String uri;
+    private long size = -1;
+    private long compressedSize = -1;
+    private long crc = -1;
+    private int method = -1;
+    private long time = -1;
+    private final Map<String, String> digests = new LinkedHashMap<String, String>();
+    private String groupId;
+    private String artifactId;
+    private String version;
 
-    //TODO add other fields - maven coordinates, license, md5, sha1, ...
+    //TODO add other fields - license, ...
 
     /**
      * @return relative path within the container
@@ -22,6 +34,113 @@ public class ActualEntry {
         this.uri = uri;
     }
 
+    /**
+     * @return uncompressed size in bytes, -1 if not known
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * @return compressed size in bytes, -1 if not known
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public void setCompressedSize(long compressedSize) {
+        this.compressedSize = compressedSize;
+    }
+
+    /**
+     * @return CRC-32 of the content, -1 if not known
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    public void setCrc(long crc) {
+        this.crc = crc;
+    }
+
+    /**
+     * @return compression method, {@link java.util.zip.ZipEntry#STORED} or {@link java.util.zip.ZipEntry#DEFLATED}; -1 if not known
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    public void setMethod(int method) {
+        this.method = method;
+    }
+
+    /**
+     * @return last modification time in milliseconds since the epoch, -1 if not known
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * @param algorithm name of {@link java.security.MessageDigest} algorithm, like <code>SHA-256</code>
+     * @return lowercase hexadecimal digest of the content, null if not computed
+     */
+    public String getDigest(String algorithm) {
+        return digests.get(algorithm);
+    }
+
+    public void setDigest(String algorithm, String digest) {
+        digests.put(algorithm, digest);
+    }
+
+    /**
+     * @return computed digests, by algorithm
+     */
+    public Map<String, String> getDigests() {
+        return digests;
+    }
+
+    /**
+     * @return Maven groupId, null if not known or guessed from the file name
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * @return Maven artifactId, null if not known
+     */
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public void setArtifactId(String artifactId) {
+        this.artifactId = artifactId;
+    }
+
+    /**
+     * @return Maven version, null if not known
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "ActualEntry{" +
@@ -8,6 +8,14 @@ package net.kozelka.contentcheck.expect.model;
 public class ApprovedEntry {
     //TODO: split to uri and uriPattern
     private String uri;
+    private long maxSize = -1;
+    private int method = -1;
+    private long crc = -1;
+    private String digestAlgorithm;
+    private String digest;
+    private String groupId;
+    private String artifactId;
+    private String version;
 
     public String getUri() {
         return uri;
@@ -17,6 +25,105 @@ public class ApprovedEntry {
         this.uri = uri;
     }
 
+    /**
+     * @return the largest allowed uncompressed size of matching entries, -1 for no limit
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return required compression method of matching entries, {@link java.util.zip.ZipEntry#STORED} or {@link java.util.zip.ZipEntry#DEFLATED}; -1 for any
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    public void setMethod(int method) {
+        this.method = method;
+    }
+
+    /**
+     * @return required CRC-32 of matching entries, -1 for any
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    public void setCrc(long crc) {
+        this.crc = crc;
+    }
+
+    /**
+     * @return name of {@link java.security.MessageDigest} algorithm of the {@link #getDigest() digest}
+     */
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * @return required lowercase hexadecimal digest of matching entries' content, null for any
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digestAlgorithm, String digest) {
+        this.digestAlgorithm = digestAlgorithm;
+        this.digest = digest;
+    }
+
+    /**
+     * @return true if the rule matches jars by Maven coordinates rather than by path
+     */
+    public boolean hasCoordinates() {
+        return artifactId != null;
+    }
+
+    /**
+     * @return groupId pattern of a coordinates rule
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * @return artifactId pattern of a coordinates rule, null for a path rule
+     */
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public void setArtifactId(String artifactId) {
+        this.artifactId = artifactId;
+    }
+
+    /**
+     * @return version pattern of a coordinates rule, null for any
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * @return true if matching entries must also satisfy some metadata or content constraint
+     */
+    public boolean hasConstraints() {
+        return maxSize >= 0 || method >= 0 || crc >= 0 || digest != null;
+    }
+
     @Override
     public String toString() {
         return uri;
@@ -7,17 +7,25 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
 
 public final class ExpectUtils {
     private ExpectUtils() {}
 
+    /**
+     * Writes the listing. Entries with known Maven groupId and artifactId are listed by these coordinates,
+     * without version, so that version upgrades do not change the listing.
+     */
     public static void generateListing(Collection<ActualEntry> actualEntries, File generatedFile) throws IOException {
         final List<ActualEntry> sortedEntries = new ArrayList<ActualEntry>(actualEntries);
         Collections.sort(sortedEntries, new Comparator<ActualEntry>() {
             public int compare(ActualEntry o1, ActualEntry o2) {
-                return o1.getUri().compareTo(o2.getUri());
+                return rule(o1).compareTo(rule(o2));
             }
         });
         generatedFile.getParentFile().mkdirs();
@@ -25,11 +33,42 @@ public final class ExpectUtils {
         try {
             writer.write(String.format("#%n# Edit this file to approve or disapprove individual libraries; will be checked by contentcheck-maven-plugin.%n#%n"));
             writer.write(String.format("# Keep the entries sorted alphabetically for easier eye-seeking.%n#%n"));
+            final Set<String> lines = new HashSet<String>();
             for (final ActualEntry actualEntry : sortedEntries) {
-                writer.write(String.format("%s%n", actualEntry.getUri()));
+                final StringBuilder line = new StringBuilder(rule(actualEntry));
+                for (Map.Entry<String, String> digest : actualEntry.getDigests().entrySet()) {
+                    line.append(' ').append(digestKey(digest.getKey())).append('=').append(digest.getValue());
+                }
+                // more versions of one artifact share the line
+                if (lines.add(line.toString())) {
+                    writer.write(String.format("%s%n", line));
+                }
             }
         } finally {
             writer.close();
         }
     }
+
+    private static String rule(ActualEntry actualEntry) {
+        if (actualEntry.getGroupId() != null && actualEntry.getArtifactId() != null) {
+            return actualEntry.getGroupId() + ":" + actualEntry.getArtifactId();
+        }
+        return actualEntry.getUri();
+    }
+
+    /**
+     * @param algorithm name of {@link java.security.MessageDigest} algorithm, like <code>SHA-256</code>
+     * @return the key used in listings, like <code>sha256</code>
+     */
+    public static String digestKey(String algorithm) {
+        return algorithm.replace("-", "").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Inverse of {@link #digestKey(String)}.
+     */
+    public static String digestAlgorithm(String key) {
+        final String upper = key.toUpperCase(Locale.ENGLISH);
+        return upper.startsWith("SHA") ? "SHA-" + upper.substring(3) : upper;
+    }
 }
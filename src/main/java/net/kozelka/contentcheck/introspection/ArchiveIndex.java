@@ -0,0 +1,240 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import net.kozelka.contentcheck.util.ResourceBudget;
+
+/**
+ * Everything the goals need to know about one zip archive, decoded in a single pass:
+ * entry names from the central directory, and for each nested jar its manifest and entry list.
+ * The index is immutable once built, and can be shared by multiple goals and threads.
+ * It keeps only names and {@link EntryMetadata compact metadata}, as it may live as long as the build.
+ *
+ * @author Petr Kozelka
+ */
+public final class ArchiveIndex {
+    private final File sourceFile;
+    private final long length;
+    private final long lastModified;
+    private final Set<String> entryNames = new LinkedHashSet<String>();
+    private final Map<String, EntryMetadata> metadataByName = new HashMap<String, EntryMetadata>();
+    private final Map<String, NestedArchive> nestedArchives = new HashMap<String, NestedArchive>();
+    private final List<DuplicateEntry> duplicateEntries = new ArrayList<DuplicateEntry>();
+
+    private ArchiveIndex(File sourceFile) {
+        this.sourceFile = sourceFile;
+        this.length = sourceFile.length();
+        this.lastModified = sourceFile.lastModified();
+    }
+
+    /**
+     * Reads the archive once, indexing also all nested jars.
+     * @param sourceFile zip archive (not a directory)
+     * @return the index
+     * @throws IOException when the archive cannot be read
+     */
+    public static ArchiveIndex build(File sourceFile) throws IOException {
+        return build(sourceFile, null);
+    }
+
+    /**
+     * Like {@link #build(File)}, but within limits of given budget.
+     * @param budget limits for inflating the archive and its nested jars; null for none
+     */
+    public static ArchiveIndex build(File sourceFile, ResourceBudget budget) throws IOException {
+        final ArchiveIndex index = new ArchiveIndex(sourceFile);
+        final DuplicateEntryDetector detector = new DuplicateEntryDetector(new DuplicateEntryDetector.Listener() {
+            public void duplicateEntry(DuplicateEntry duplicate) {
+                index.duplicateEntries.add(duplicate);
+            }
+        });
+        // like ZipArchiveIntrospectorStrategy, list the central directory, which has sizes and CRCs of all entries up front
+        final ZipFile zipFile = new ZipFile(sourceFile);
+        try {
+            final Enumeration<? extends ZipEntry> en = zipFile.entries();
+            while (en.hasMoreElements()) {
+                final ZipEntry entry = en.nextElement();
+                final String entryName = entry.getName();
+                index.entryNames.add(entryName);
+                if (budget != null) {
+                    budget.countEntry(entryName);
+                    budget.checkDeclaredSize(entryName, entry.getSize(), entry.getCompressedSize());
+                }
+                if (detector.add(entryName, entry.getCrc())) {
+                    // only the first occurrence is indexed, which is the one ZipFile reads
+                    continue;
+                }
+                index.metadataByName.put(entryName, EntryMetadata.of(entry));
+                if (!entry.isDirectory() && entryName.endsWith(".jar")) {
+                    final InputStream jarStream = zipFile.getInputStream(entry);
+                    try {
+                        if (budget == null) {
+                            index.nestedArchives.put(entryName, NestedArchive.read(entryName, jarStream, null));
+                        } else {
+                            budget.checkDepth(1, entryName);
+                            index.nestedArchives.put(entryName, NestedArchive.read(entryName, budget.limit(jarStream, entryName, entry.getCompressedSize()), budget));
+                        }
+                    } finally {
+                        jarStream.close();
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        return index;
+    }
+
+    public File getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * @return true if the file was not modified since the index was built
+     */
+    public boolean isUpToDate() {
+        return sourceFile.length() == length && sourceFile.lastModified() == lastModified;
+    }
+
+    /**
+     * @return names of all entries, in the archive order
+     */
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(entryNames);
+    }
+
+    /**
+     * @param entryName name of an entry, including directories
+     * @return metadata of the first entry of that name; null if there is no such entry
+     */
+    public EntryMetadata getMetadata(String entryName) {
+        return metadataByName.get(entryName);
+    }
+
+    /**
+     * @return repeated occurrences of entry names, in the archive order
+     */
+    public List<DuplicateEntry> getDuplicateEntries() {
+        return Collections.unmodifiableList(duplicateEntries);
+    }
+
+    /**
+     * @param entryName path of a jar inside the archive
+     * @return the nested jar, or null if there is no such jar
+     */
+    public NestedArchive getNestedArchive(String entryName) {
+        return nestedArchives.get(entryName);
+    }
+
+    /**
+     * Index of a jar nested in the archive.
+     * Only what the goals use is kept - names, CRCs and sizes of file entries, in parallel arrays, and manifest main attributes.
+     */
+    public static final class NestedArchive {
+        private final String path;
+        private final Attributes mainAttributes;
+        private final String[] entryNames;
+        private final long[] crcs;
+        private final long[] sizes;
+
+        private NestedArchive(String path, Attributes mainAttributes, List<ZipEntry> entries) {
+            this.path = path;
+            this.mainAttributes = mainAttributes;
+            final int count = entries.size();
+            entryNames = new String[count];
+            crcs = new long[count];
+            sizes = new long[count];
+            for (int i = 0; i < count; i++) {
+                final ZipEntry entry = entries.get(i);
+                entryNames[i] = entry.getName();
+                crcs[i] = entry.getCrc();
+                sizes[i] = entry.getSize();
+            }
+        }
+
+        static NestedArchive read(String path, InputStream jarStream, ResourceBudget budget) throws IOException {
+            // not closing: the stream belongs to the outer archive
+            final ZipInputStream zis = new ZipInputStream(jarStream);
+            final List<ZipEntry> entries = new ArrayList<ZipEntry>();
+            Attributes mainAttributes = null;
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                final boolean manifest = entry.getName().equalsIgnoreCase(JarFile.MANIFEST_NAME);
+                if (budget == null) {
+                    if (manifest) {
+                        mainAttributes = new Manifest(zis).getMainAttributes();
+                    }
+                } else {
+                    final String entryPath = path + "!/" + entry.getName();
+                    budget.countEntry(entryPath);
+                    if (manifest) {
+                        mainAttributes = new Manifest(budget.limit(zis, entryPath, entry.getCompressedSize())).getMainAttributes();
+                    } else {
+                        // skipping would inflate the entry unchecked
+                        budget.drain(zis, entryPath, entry.getCompressedSize());
+                    }
+                }
+                // with a data descriptor, crc and size are only known after the entry data are read
+                zis.closeEntry();
+                if (budget != null) {
+                    budget.checkDeclaredSize(path + "!/" + entry.getName(), entry.getSize(), entry.getCompressedSize());
+                }
+                if (!entry.isDirectory()) {
+                    entries.add(entry);
+                }
+            }
+            return new NestedArchive(path, mainAttributes, entries);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return main attributes of the jar's manifest, or null if it has none
+         */
+        public Attributes getMainAttributes() {
+            return mainAttributes;
+        }
+
+        /**
+         * @return number of file entries
+         */
+        public int getEntryCount() {
+            return entryNames.length;
+        }
+
+        /**
+         * @param i index of a file entry, in the jar order
+         */
+        public String getEntryName(int i) {
+            return entryNames[i];
+        }
+
+        public long getCrc(int i) {
+            return crcs[i];
+        }
+
+        /**
+         * @return uncompressed size of the entry
+         */
+        public long getSize(int i) {
+            return sizes[i];
+        }
+    }
+}
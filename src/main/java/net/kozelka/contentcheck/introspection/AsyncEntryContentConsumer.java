@@ -0,0 +1,181 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of consumers that parse selected entries as streams, each on a worker thread fed with the chunks received from the
+ * {@link EntryContentPipeline pipeline}; so that no entry is held in memory.
+ * The walk waits while the worker of the current entry is behind by more than a few chunks,
+ * and stops feeding it as soon as the worker has read all it needs.
+ *
+ * @author Petr Kozelka
+ */
+public abstract class AsyncEntryContentConsumer implements ContentIntrospector.EntryContentConsumer {
+    private static final int QUEUE_CHUNKS = 64;
+    private static final byte[] END = new byte[0];
+
+    private final String readersName;
+    private final ExecutorService executor;
+    private Feed current;
+
+    /**
+     * @param threadName name of the worker threads
+     * @param readersName what the workers are, for messages
+     * @param threads number of worker threads
+     */
+    protected AsyncEntryContentConsumer(final String threadName, String readersName, int threads) {
+        this.readersName = readersName;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return reader of the entry, or null if the entry is not interesting
+     */
+    protected abstract EntryReader createReader(String entryName, EntryMetadata metadata);
+
+    public final boolean start(String entryName, EntryMetadata metadata) {
+        current = null;
+        final EntryReader reader = createReader(entryName, metadata);
+        if (reader == null) return false;
+        current = new Feed(reader);
+        executor.execute(current);
+        return true;
+    }
+
+    public final boolean update(byte[] buffer, int offset, int length) throws InterruptedIOException {
+        final byte[] chunk = new byte[length];
+        System.arraycopy(buffer, offset, chunk, 0, length);
+        return current.offer(chunk);
+    }
+
+    public final void end(boolean processed) {
+        if (current == null) return;
+        current.reader.processed = processed;
+        try {
+            current.offer(END);
+        } catch (InterruptedIOException e) {
+            // the worker is released by close()
+            Thread.currentThread().interrupt();
+        }
+        current = null;
+    }
+
+    /**
+     * Waits until all started entries are read, and stops the workers.
+     */
+    protected final void awaitReaders() throws InterruptedIOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + readersName);
+        }
+    }
+
+    /**
+     * Stops the workers without waiting; for cleanup after a failed walk.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reads one entry on a worker thread.
+     */
+    protected abstract static class EntryReader {
+        private volatile boolean processed;
+
+        /**
+         * @param content the entry content; fails with {@link InterruptedIOException} when the consumer is closed
+         */
+        protected abstract void read(InputStream content) throws IOException;
+
+        /**
+         * @return true if the entry passed the content filter; valid once the readers are finished
+         */
+        public boolean isProcessed() {
+            return processed;
+        }
+    }
+
+    private class Feed implements Runnable {
+        private final EntryReader reader;
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(QUEUE_CHUNKS);
+        private volatile boolean done;
+
+        Feed(EntryReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return false if the worker needs no more content
+         */
+        boolean offer(byte[] chunk) throws InterruptedIOException {
+            try {
+                while (!done) {
+                    if (chunks.offer(chunk, 10, TimeUnit.MILLISECONDS)) return true;
+                }
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + readersName);
+            }
+        }
+
+        public void run() {
+            try {
+                reader.read(new ChunkInputStream());
+            } catch (IOException e) {
+                // not readable, or closed after a failed walk; the reader found nothing
+            } finally {
+                done = true;
+            }
+        }
+
+        private class ChunkInputStream extends InputStream {
+            private byte[] chunk = new byte[0];
+            private int pos;
+
+            @Override
+            public int read() throws IOException {
+                final byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                while (pos == chunk.length) {
+                    if (chunk == END) return -1;
+                    try {
+                        chunk = chunks.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Closed");
+                    }
+                    pos = 0;
+                }
+                final int n = Math.min(len, chunk.length - pos);
+                System.arraycopy(chunk, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+        }
+    }
+}
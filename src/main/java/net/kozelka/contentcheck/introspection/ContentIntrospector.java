@@ -4,7 +4,12 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.kozelka.contentcheck.util.BudgetExceededException;
 import net.kozelka.contentcheck.util.EventSink;
+import net.kozelka.contentcheck.util.ResourceBudget;
 import org.codehaus.plexus.util.SelectorUtils;
 
 /**
@@ -16,20 +21,35 @@ public class ContentIntrospector {
             return name.endsWith(".jar");
         }
     };
+    public static final FilenameFilter ISARCHIVE_FILTER = new FilenameFilter() {
+        public boolean accept(File dir, String name) {
+            return name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".ear") || name.endsWith(".rar");
+        }
+    };
+    public static final int DEFAULT_PREFETCH_BUFFER_SIZE = 1024 * 1024;
     private EventSink<Events> events = EventSink.create(Events.class);
     private FilenameFilter entryNameFilter = ISJAR_FILTER;
     private EntryContentFilter entryContentFilter;
     private File sourceFile;
-    private IntrospectorInputStrategy walker;
+    private ArchiveIndex archiveIndex;
+    private int nestedArchiveDepth;
+    private FilenameFilter nestedArchiveFilter = ISARCHIVE_FILTER;
+    private int directoryWalkParallelism = 1;
+    private int prefetchDepth;
+    private int prefetchBufferSize = DEFAULT_PREFETCH_BUFFER_SIZE;
+    private ResourceBudget resourceBudget;
+    private final List<EntryContentConsumer> contentConsumers = new ArrayList<EntryContentConsumer>();
+    private EntryContentPipeline pipeline;
 
     public EventSink<Events> getEvents() {
         return events;
     }
 
     public void setCheckFilesPattern(final String checkFilesPattern) {
+        final String absolutePattern = "/" + checkFilesPattern;
         setEntryNameFilter(new FilenameFilter() {
             public boolean accept(File dir, String name) {
-                return SelectorUtils.matchPath("/" + checkFilesPattern, "/" + name);
+                return SelectorUtils.matchPath(absolutePattern, "/" + name);
             }
         });
     }
@@ -38,62 +58,227 @@ public class ContentIntrospector {
         this.entryNameFilter = entryNameFilter;
     }
 
+    public EntryContentFilter getEntryContentFilter() {
+        return entryContentFilter;
+    }
+
     public void setEntryContentFilter(EntryContentFilter entryContentFilter) {
         this.entryContentFilter = entryContentFilter;
     }
 
+    /**
+     * Registers a consumer of entry content. All consumers and the {@link #setEntryContentFilter content filter}
+     * share one read of each entry.
+     */
+    public void addEntryContentConsumer(EntryContentConsumer consumer) {
+        contentConsumers.add(consumer);
+    }
+
+    public void removeEntryContentConsumer(EntryContentConsumer consumer) {
+        contentConsumers.remove(consumer);
+    }
+
+    /**
+     * Enables the pipelined walk: a background thread reads and decompresses up to {@code prefetchDepth} entries ahead,
+     * while filters and listeners process the current one. Only useful with a content filter or consumers.
+     * Not applied to directories, which are read directly, and tar archives, which are always decompressed ahead.
+     * @param prefetchDepth how many entries to read ahead; 0 for the plain serial walk
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * @param prefetchBufferSize size of each of the {@link #setPrefetchDepth prefetchDepth} buffers;
+     * larger entries are read again when processed
+     */
+    public void setPrefetchBufferSize(int prefetchBufferSize) {
+        this.prefetchBufferSize = prefetchBufferSize;
+    }
+
+    /**
+     * Limits inflated bytes, entry count and nesting depth of the walk; when exceeded, the walk fails with {@link BudgetExceededException}.
+     * @param resourceBudget the budget, possibly shared with other walks of the same run; null for no limits
+     */
+    public void setResourceBudget(ResourceBudget resourceBudget) {
+        this.resourceBudget = resourceBudget;
+    }
+
     public File getSourceFile() {
         return sourceFile;
     }
 
     public void setSourceFile(File sourceFile) {
         this.sourceFile = sourceFile;
+    }
+
+    /**
+     * Uses already built index of the source file, so that the archive does not need to be listed again.
+     * Also sets the {@link #setSourceFile sourceFile}.
+     * @param archiveIndex the index
+     */
+    public void setArchiveIndex(ArchiveIndex archiveIndex) {
+        this.archiveIndex = archiveIndex;
+        setSourceFile(archiveIndex.getSourceFile());
+    }
+
+    /**
+     * @param nestedArchiveDepth how many levels of nested archives to descend into; entries inside them get composite paths
+     * like <code>app.war!/WEB-INF/lib/x.jar</code>. Default is 0, which lists only the top level.
+     */
+    public void setNestedArchiveDepth(int nestedArchiveDepth) {
+        this.nestedArchiveDepth = nestedArchiveDepth;
+    }
+
+    /**
+     * @param nestedArchiveFilter decides which entries are archives to descend into; jars, wars, ears and rars by default
+     */
+    public void setNestedArchiveFilter(FilenameFilter nestedArchiveFilter) {
+        this.nestedArchiveFilter = nestedArchiveFilter;
+    }
+
+    /**
+     * @param directoryWalkParallelism how many threads list a directory source; values above 1 help with wide trees on slow volumes
+     */
+    public void setDirectoryWalkParallelism(int directoryWalkParallelism) {
+        this.directoryWalkParallelism = directoryWalkParallelism;
+    }
+
+    private IntrospectorInputStrategy createWalker() {
+        final DuplicateEntryDetector.Listener duplicateListener = new DuplicateEntryDetector.Listener() {
+            public void duplicateEntry(DuplicateEntry duplicate) {
+                events.fire.duplicateEntry(duplicate);
+            }
+        };
+        final IntrospectorInputStrategy walker;
         if (sourceFile.isDirectory()) {
-            walker = new DirectoryIntrospectorStrategy();
+            final NioDirectoryIntrospectorStrategy directoryWalker = new NioDirectoryIntrospectorStrategy();
+            directoryWalker.setParallelism(directoryWalkParallelism);
+            walker = directoryWalker;
+        } else if (TarIntrospectorStrategy.isTar(sourceFile)) {
+            // nested archives would need seeking back, which tar cannot do
+            return new TarIntrospectorStrategy(duplicateListener);
+        } else if (archiveIndex != null && archiveIndex.getSourceFile().equals(sourceFile)) {
+            walker = new IndexedIntrospectorStrategy(archiveIndex, duplicateListener);
         } else {
-            walker = new ZipArchiveIntrospectorStrategy();
+            walker = new ZipArchiveIntrospectorStrategy(duplicateListener);
         }
+        return nestedArchiveDepth > 0
+            ? new NestedArchiveIntrospectorStrategy(walker, nestedArchiveFilter, nestedArchiveDepth, resourceBudget)
+            : walker;
     }
 
     /**
      * Walks through the content of {@code sourceFile} entry by entry. If an entry passes {@link #setEntryNameFilter entryNameFilter}
      * and is not a vendor archive (in case we care)
-     * the entry will be delegated to  {@link net.kozelka.contentcheck.introspection.ContentIntrospector.Events#processEntry(String)}
+     * the entry will be delegated to  {@link net.kozelka.contentcheck.introspection.ContentIntrospector.Events#processEntry(String, EntryMetadata)}
      * for further processing.
      *
      * @return the total number of processed entries, including skipped ones.
      */
     public final int walk() throws IOException {
         events.fire.readingSourceFile(sourceFile);
+        try {
+            return doWalk();
+        } catch (BudgetExceededException e) {
+            events.fire.budgetExceeded(sourceFile, e);
+            throw e;
+        }
+    }
+
+    private int doWalk() throws IOException {
+        final IntrospectorInputStrategy walker = createWalker();
+        pipeline = contentConsumers.isEmpty() ? null : new EntryContentPipeline(contentConsumers);
+        if (walker instanceof StreamingIntrospectorStrategy) {
+            final int[] totalCnt = {0};
+            ((StreamingIntrospectorStrategy) walker).walk(sourceFile, new StreamingIntrospectorStrategy.EntryVisitor() {
+                public void visit(String entryName, EntryMetadata metadata, InputStream entryContentStream) throws IOException {
+                    totalCnt[0]++;
+                    introspectEntry(entryName, metadata, entryContentStream);
+                }
+            });
+            return totalCnt[0];
+        }
+        final Set<String> entryNames = walker.list(sourceFile);
+        if (prefetchDepth > 0 && !sourceFile.isDirectory() && (entryContentFilter != null || pipeline != null)) {
+            return walkPrefetching(walker, entryNames);
+        }
         int totalCnt = 0;
-        for (String entryName : walker.list(sourceFile)) {
+        for (String entryName : entryNames) {
             totalCnt++;
-
-            // filter by entry name
-            if (!entryNameFilter.accept(sourceFile, entryName)) {
-                events.fire.skippingEntryNotMatching(entryName);
+            if (entryContentFilter == null && pipeline == null) {
+                introspectEntry(entryName, walker.getMetadata(entryName), null);
                 continue;
             }
+            // opened only when the filter or a consumer really reads the content
+            final InputStream entryContentStream = new LazyInputStream(walker, sourceFile, entryName);
+            try {
+                introspectEntry(entryName, walker.getMetadata(entryName), entryContentStream);
+            } finally {
+                entryContentStream.close();
+            }
+        }
 
-            // filter by entry content
-            if(entryContentFilter != null) {
-                final InputStream entryContentStream = walker.getInputStream(sourceFile, entryName);
+        return totalCnt;
+    }
+
+    private int walkPrefetching(IntrospectorInputStrategy walker, Set<String> entryNames) throws IOException {
+        final EntryPrefetcher prefetcher = new EntryPrefetcher(walker, sourceFile, entryNames, entryNameFilter,
+            prefetchDepth, prefetchBufferSize);
+        int totalCnt = 0;
+        try {
+            EntryPrefetcher.Item item;
+            while ((item = prefetcher.next()) != null) {
+                totalCnt++;
+                final String entryName = item.getEntryName();
+                final InputStream entryContentStream = prefetcher.openStream(item);
                 try {
-                    if(!entryContentFilter.accept(entryName, entryContentStream)) {
-                        events.fire.skippingEntryOwnModule(entryName);
-                        continue;
-                    }
+                    introspectEntry(entryName, walker.getMetadata(entryName), entryContentStream);
                 } finally {
                     entryContentStream.close();
+                    prefetcher.release(item);
                 }
             }
-            //
-            events.fire.processEntry(entryName);
+        } finally {
+            prefetcher.close();
         }
-
         return totalCnt;
     }
 
+    private void introspectEntry(String entryName, EntryMetadata metadata, InputStream entryContentStream) throws IOException {
+        if (resourceBudget != null) {
+            // entries of nested archives are counted while they are listed
+            if (!entryName.contains(NestedArchiveIntrospectorStrategy.SEPARATOR)) {
+                resourceBudget.countEntry(entryName);
+            }
+            resourceBudget.checkDeclaredSize(entryName, metadata.getSize(), metadata.getCompressedSize());
+            if (entryContentStream != null) {
+                entryContentStream = resourceBudget.limit(entryContentStream, entryName, metadata.getCompressedSize());
+            }
+        }
+        // filter by entry name
+        if (!entryNameFilter.accept(sourceFile, entryName)) {
+            events.fire.skippingEntryNotMatching(entryName);
+            return;
+        }
+
+        // filter by entry content, consumers getting the same bytes
+        final boolean consuming = pipeline != null && pipeline.start(entryName, metadata);
+        boolean accepted = true;
+        if(entryContentFilter != null) {
+            accepted = entryContentFilter.accept(entryName, consuming ? pipeline.tee(entryContentStream) : entryContentStream);
+        }
+        if (consuming) {
+            pipeline.complete(entryContentStream, accepted);
+        }
+        if (!accepted) {
+            events.fire.skippingEntryOwnModule(entryName);
+            return;
+        }
+        //
+        events.fire.processEntry(entryName, metadata);
+    }
+
     public interface EntryContentFilter {
         /**
          * Decides if given entry can be accepted, based on its name and content.
@@ -105,6 +290,29 @@ public class ContentIntrospector {
         boolean accept(String entryName, InputStream entryContentStream) throws IOException;
     }
 
+    /**
+     * Receives content of entries passing the name filter, in chunks, together with the content filter and other consumers.
+     */
+    public interface EntryContentConsumer {
+        /**
+         * @return true if the consumer wants the content of this entry
+         */
+        boolean start(String entryName, EntryMetadata metadata);
+
+        /**
+         * @param buffer chunk of entry content; valid only during the call
+         * @return false if the consumer needs no more content of this entry
+         * @throws IOException to abort the walk
+         */
+        boolean update(byte[] buffer, int offset, int length) throws IOException;
+
+        /**
+         * Called for each started entry, after the last chunk; before the entry is {@link Events#processEntry processed}.
+         * @param processed false if the entry was skipped by the content filter
+         */
+        void end(boolean processed);
+    }
+
     public interface Events {
         void readingSourceFile(File sourceFile);
 
@@ -114,11 +322,33 @@ public class ContentIntrospector {
 
         void cannotCheckManifest(String jarPath, Exception e);
 
+        /**
+         * @deprecated no longer fired, jar manifests are read in memory
+         */
+        @Deprecated
         void cannotClose(String jarPath, IOException e);
 
+        /**
+         * @deprecated no longer fired, jar manifests are read in memory
+         */
+        @Deprecated
         void checkingInTmpfile(String jarPath, File tempFile);
 
-        void processEntry(String entryName);
+        /**
+         * @param entryName path of the entry
+         * @param metadata what the container knows about the entry, never null
+         */
+        void processEntry(String entryName, EntryMetadata metadata);
+
+        /**
+         * The walk is about to fail because it would exceed its {@link #setResourceBudget resource budget}.
+         */
+        void budgetExceeded(File sourceFile, BudgetExceededException e);
+
+        /**
+         * An entry name occurs more than once in the source; fired before the entries are processed, except for tar archives.
+         */
+        void duplicateEntry(DuplicateEntry duplicate);
     }
 
 }
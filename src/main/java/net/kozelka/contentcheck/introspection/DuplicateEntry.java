@@ -0,0 +1,48 @@
+package net.kozelka.contentcheck.introspection;
+
+/**
+ * An entry name occurring more than once in an archive. Which of the copies is used depends on the reader.
+ *
+ * @author Petr Kozelka
+ */
+public final class DuplicateEntry {
+    private final String uri;
+    private final long firstCrc;
+    private final long crc;
+
+    public DuplicateEntry(String uri, long firstCrc, long crc) {
+        this.uri = uri;
+        this.firstCrc = firstCrc;
+        this.crc = crc;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return CRC of the first copy, or {@link DuplicateEntryDetector#UNKNOWN_CRC}
+     */
+    public long getFirstCrc() {
+        return firstCrc;
+    }
+
+    /**
+     * @return CRC of this copy, or {@link DuplicateEntryDetector#UNKNOWN_CRC}
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    /**
+     * @return true if both copies have known CRCs, and they differ - so the result depends on which copy the reader picks
+     */
+    public boolean isConflicting() {
+        return firstCrc != DuplicateEntryDetector.UNKNOWN_CRC && crc != DuplicateEntryDetector.UNKNOWN_CRC && firstCrc != crc;
+    }
+
+    @Override
+    public String toString() {
+        return uri;
+    }
+}
@@ -0,0 +1,122 @@
+package net.kozelka.contentcheck.introspection;
+
+/**
+ * Detects entry names occurring more than once in an archive, while its entries are being listed.
+ * <p>Instead of the names, only their 64-bit fingerprints are kept, with the CRC of the first copy,
+ * in an open-addressing hash table of primitive arrays - about 24 bytes per entry.
+ * A fingerprint collision of two different names is theoretically possible, but with 64 bits it is negligible even for millions of entries.</p>
+ *
+ * @author Petr Kozelka
+ */
+public final class DuplicateEntryDetector {
+    /**
+     * Value of CRC when it is not known, as returned by {@link java.util.zip.ZipEntry#getCrc()}.
+     */
+    public static final long UNKNOWN_CRC = -1;
+    // a real CRC of 0xffffffff looks unknown then; that only hides a conflict, never reports a false one
+    private static final int UNKNOWN_CRC_SLOT = -1;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Listener listener;
+    private long[] fingerprints;
+    private int[] crcs;
+    private int size;
+    private int threshold;
+
+    public DuplicateEntryDetector(Listener listener) {
+        this(listener, 0);
+    }
+
+    /**
+     * @param listener receives the duplicates
+     * @param expectedEntries expected number of entries, to avoid rehashing; 0 if not known
+     */
+    public DuplicateEntryDetector(Listener listener, int expectedEntries) {
+        this.listener = listener;
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedEntries) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        fingerprints = new long[capacity];
+        crcs = new int[capacity];
+        threshold = capacity * 3 / 4;
+    }
+
+    /**
+     * Registers one entry; reports it to the listener if the name was already registered.
+     * @param entryName name of the entry
+     * @param crc CRC-32 of the entry content, or {@link #UNKNOWN_CRC}
+     * @return true if the entry is a duplicate
+     */
+    public boolean add(String entryName, long crc) {
+        final long fingerprint = fingerprint(entryName);
+        final int mask = fingerprints.length - 1;
+        int slot = (int) mix(fingerprint) & mask;
+        while (true) {
+            final long existing = fingerprints[slot];
+            if (existing == 0) break;
+            if (existing == fingerprint) {
+                final long firstCrc = crcs[slot] == UNKNOWN_CRC_SLOT ? UNKNOWN_CRC : crcs[slot] & 0xffffffffL;
+                listener.duplicateEntry(new DuplicateEntry(entryName, firstCrc, crc));
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        crcs[slot] = crc == UNKNOWN_CRC ? UNKNOWN_CRC_SLOT : (int) crc;
+        if (++size > threshold) {
+            rehash();
+        }
+        return false;
+    }
+
+    private void rehash() {
+        final long[] oldFingerprints = fingerprints;
+        final int[] oldCrcs = crcs;
+        allocate(oldFingerprints.length << 1);
+        final int mask = fingerprints.length - 1;
+        for (int i = 0; i < oldFingerprints.length; i++) {
+            final long fingerprint = oldFingerprints[i];
+            if (fingerprint == 0) continue;
+            int slot = (int) mix(fingerprint) & mask;
+            while (fingerprints[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            fingerprints[slot] = fingerprint;
+            crcs[slot] = oldCrcs[i];
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a of the name's characters; never zero, which marks an empty slot.
+     */
+    static long fingerprint(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Spreads fingerprint bits, so that names with common prefix do not cluster in the table.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public interface Listener {
+        /**
+         * Called for each repeated occurrence of an entry name.
+         */
+        void duplicateEntry(DuplicateEntry duplicate);
+    }
+}
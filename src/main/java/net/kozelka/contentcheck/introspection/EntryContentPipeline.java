@@ -0,0 +1,114 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the content of each entry once, and feeds it in chunks to all interested {@link ContentIntrospector.EntryContentConsumer consumers}.
+ * The content filter, if any, reads through a {@link #tee tee}, and whatever it leaves unread is then pumped to the consumers.
+ * Consumers are called synchronously, so the next chunk is inflated only after all of them processed the current one.
+ * A consumer that needs no more bytes is dropped; once all are dropped, reading stops.
+ * Not thread-safe; one instance serves one walk.
+ *
+ * @author Petr Kozelka
+ */
+final class EntryContentPipeline {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final List<ContentIntrospector.EntryContentConsumer> consumers;
+    private final List<ContentIntrospector.EntryContentConsumer> started = new ArrayList<ContentIntrospector.EntryContentConsumer>();
+    private final List<ContentIntrospector.EntryContentConsumer> active = new ArrayList<ContentIntrospector.EntryContentConsumer>();
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+
+    EntryContentPipeline(List<ContentIntrospector.EntryContentConsumer> consumers) {
+        this.consumers = consumers;
+    }
+
+    /**
+     * Offers the entry to all consumers.
+     * @return true if at least one consumer wants its content
+     */
+    boolean start(String entryName, EntryMetadata metadata) {
+        started.clear();
+        active.clear();
+        for (ContentIntrospector.EntryContentConsumer consumer : consumers) {
+            if (consumer.start(entryName, metadata)) {
+                started.add(consumer);
+            }
+        }
+        active.addAll(started);
+        return !active.isEmpty();
+    }
+
+    /**
+     * @return stream passing everything read from it to the active consumers as well; closing it does not close {@code in}
+     */
+    InputStream tee(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b >= 0) {
+                    feed(new byte[] {(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                final int n = super.read(b, off, len);
+                if (n > 0) {
+                    feed(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // consumers must see the skipped bytes, too
+                final int len = (int) Math.min(n, buffer.length);
+                final int read = read(buffer, 0, len);
+                return read < 0 ? 0 : read;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Pumps the rest of the entry to the consumers still active, and ends the entry for all started consumers.
+     * @param in the entry content, positioned where the tee left it
+     * @param processed whether the entry passed the content filter
+     */
+    void complete(InputStream in, boolean processed) throws IOException {
+        int n;
+        while (!active.isEmpty() && (n = in.read(buffer)) != -1) {
+            feed(buffer, 0, n);
+        }
+        for (ContentIntrospector.EntryContentConsumer consumer : started) {
+            consumer.end(processed);
+        }
+        started.clear();
+        active.clear();
+    }
+
+    private void feed(byte[] b, int off, int len) throws IOException {
+        final Iterator<ContentIntrospector.EntryContentConsumer> it = active.iterator();
+        while (it.hasNext()) {
+            if (!it.next().update(b, off, len)) {
+                it.remove();
+            }
+        }
+    }
+}
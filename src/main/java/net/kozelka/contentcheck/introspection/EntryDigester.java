@@ -0,0 +1,172 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes digests of selected entries on a pool of worker threads, while the walk goes on.
+ * Chunks received from the {@link EntryContentPipeline pipeline} are copied and queued to the worker digesting their entry;
+ * when the workers fall behind by more than {@link #MAX_PENDING_BYTES}, the walk waits for them.
+ * Digests are available after {@link #finish()}.
+ *
+ * @author Petr Kozelka
+ */
+public class EntryDigester implements ContentIntrospector.EntryContentConsumer {
+    static final int MAX_PENDING_BYTES = 16 * 1024 * 1024;
+    private static final byte[] END = new byte[0];
+
+    private final Selector selector;
+    private final ExecutorService executor;
+    private final Semaphore pending = new Semaphore(MAX_PENDING_BYTES);
+    private final Map<String, Map<String, String>> digests = new ConcurrentHashMap<String, Map<String, String>>();
+    private BlockingQueue<byte[]> current;
+
+    /**
+     * @param threads number of worker threads
+     */
+    public EntryDigester(Selector selector, int threads) {
+        this.selector = selector;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "contentcheck-digester");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException if the algorithm is not available
+     */
+    public static MessageDigest createDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, e);
+        }
+    }
+
+    public boolean start(String entryName, EntryMetadata metadata) {
+        final Collection<String> algorithms = selector.getAlgorithms(entryName);
+        if (algorithms == null || algorithms.isEmpty()) {
+            current = null;
+            return false;
+        }
+        current = new LinkedBlockingQueue<byte[]>();
+        executor.execute(new DigestTask(entryName, algorithms, current));
+        return true;
+    }
+
+    public boolean update(byte[] buffer, int offset, int length) throws InterruptedIOException {
+        final byte[] chunk = new byte[length];
+        System.arraycopy(buffer, offset, chunk, 0, length);
+        try {
+            pending.acquire(length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for digest workers");
+        }
+        current.add(chunk);
+        return true;
+    }
+
+    public void end(boolean processed) {
+        current.add(END);
+        current = null;
+    }
+
+    /**
+     * Waits until all started entries are digested, and stops the workers.
+     * @return digests by entry name, each as map from algorithm to lowercase hexadecimal value
+     */
+    public Map<String, Map<String, String>> finish() throws InterruptedIOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for digest workers");
+        }
+        return Collections.unmodifiableMap(digests);
+    }
+
+    /**
+     * Stops the workers without waiting; for cleanup after a failed walk.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return lowercase hex form of a digest, as written in listings
+     */
+    public static String toHex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decides which entries to digest.
+     */
+    public interface Selector {
+        /**
+         * @return names of {@link MessageDigest} algorithms to compute for the entry; null or empty to skip it
+         */
+        Collection<String> getAlgorithms(String entryName);
+    }
+
+    private class DigestTask implements Runnable {
+        private final String entryName;
+        private final Collection<String> algorithms;
+        private final BlockingQueue<byte[]> chunks;
+
+        DigestTask(String entryName, Collection<String> algorithms, BlockingQueue<byte[]> chunks) {
+            this.entryName = entryName;
+            this.algorithms = algorithms;
+            this.chunks = chunks;
+        }
+
+        public void run() {
+            final MessageDigest[] mds = new MessageDigest[algorithms.size()];
+            int i = 0;
+            for (String algorithm : algorithms) {
+                mds[i++] = createDigest(algorithm);
+            }
+            try {
+                byte[] chunk;
+                while ((chunk = chunks.take()) != END) {
+                    for (MessageDigest md : mds) {
+                        md.update(chunk);
+                    }
+                    pending.release(chunk.length);
+                }
+            } catch (InterruptedException e) {
+                // closed after a failed walk
+                return;
+            }
+            final Map<String, String> values = new LinkedHashMap<String, String>();
+            for (MessageDigest md : mds) {
+                values.put(md.getAlgorithm(), toHex(md.digest()));
+            }
+            digests.put(entryName, values);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.util.zip.ZipEntry;
+
+/**
+ * What the container tells about an entry without reading its content - for zip archives, the central directory record.
+ * Each value is {@link #UNKNOWN} when the container does not provide it.
+ *
+ * @author Petr Kozelka
+ */
+public final class EntryMetadata {
+    public static final long UNKNOWN = -1;
+    public static final EntryMetadata NONE = new EntryMetadata(UNKNOWN, UNKNOWN, UNKNOWN, (int) UNKNOWN, UNKNOWN);
+
+    private final long size;
+    private final long compressedSize;
+    private final long crc;
+    private final int method;
+    private final long time;
+
+    public EntryMetadata(long size, long compressedSize, long crc, int method, long time) {
+        this.size = size;
+        this.compressedSize = compressedSize;
+        this.crc = crc;
+        this.method = method;
+        this.time = time;
+    }
+
+    static EntryMetadata of(ZipEntry entry) {
+        return new EntryMetadata(entry.getSize(), entry.getCompressedSize(), entry.getCrc(), entry.getMethod(), entry.getTime());
+    }
+
+    /**
+     * @return uncompressed size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * @return CRC-32 of the uncompressed content
+     */
+    public long getCrc() {
+        return crc;
+    }
+
+    /**
+     * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     */
+    public int getMethod() {
+        return method;
+    }
+
+    /**
+     * @return last modification time, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+}
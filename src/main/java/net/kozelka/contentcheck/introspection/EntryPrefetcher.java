@@ -0,0 +1,176 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads and decompresses upcoming entries on a background thread, while the walking thread runs filters and listeners.
+ * Entries are delivered in the listing order. Content is kept in a bounded pool of reusable buffers,
+ * so at most {@code depth * bufferSize} bytes are held; an entry larger than one buffer is read again on the walking thread.
+ *
+ * @author Petr Kozelka
+ */
+final class EntryPrefetcher {
+    private static final Item END = new Item(null, null, 0, false);
+
+    private final IntrospectorInputStrategy walker;
+    private final File containerFile;
+    private final Collection<String> entryNames;
+    private final FilenameFilter contentFilter;
+    private final int depth;
+    private final int bufferSize;
+    private final BlockingQueue<Item> ready;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final Thread reader;
+    // only touched by the reader thread
+    private int allocatedBuffers;
+    private volatile Exception failure;
+    private volatile boolean closed;
+
+    /**
+     * @param walker strategy providing the content
+     * @param containerFile the container being walked
+     * @param entryNames entries to deliver, in this order
+     * @param contentFilter selects entries whose content is prefetched; others are delivered without content
+     * @param depth how many entries can be read ahead
+     * @param bufferSize size of each buffer
+     */
+    EntryPrefetcher(IntrospectorInputStrategy walker, File containerFile, Collection<String> entryNames, FilenameFilter contentFilter,
+                    int depth, int bufferSize) {
+        this.walker = walker;
+        this.containerFile = containerFile;
+        this.entryNames = entryNames;
+        this.contentFilter = contentFilter;
+        this.depth = depth;
+        this.bufferSize = bufferSize;
+        this.ready = new ArrayBlockingQueue<Item>(depth);
+        this.freeBuffers = new ArrayBlockingQueue<byte[]>(depth);
+        this.reader = new Thread("contentcheck-prefetch " + containerFile.getName()) {
+            @Override
+            public void run() {
+                prefetch();
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void prefetch() {
+        try {
+            for (String entryName : entryNames) {
+                if (closed) return;
+                if (entryName.endsWith("/") || !contentFilter.accept(containerFile, entryName)) {
+                    ready.put(new Item(entryName, null, 0, false));
+                    continue;
+                }
+                final byte[] buffer = takeBuffer();
+                final InputStream is = walker.getInputStream(containerFile, entryName);
+                int length = 0;
+                boolean complete;
+                try {
+                    int n = 0;
+                    while (length < buffer.length && (n = is.read(buffer, length, buffer.length - length)) >= 0) {
+                        length += n;
+                    }
+                    complete = n < 0 || is.read() < 0;
+                } finally {
+                    is.close();
+                }
+                ready.put(new Item(entryName, buffer, length, complete));
+            }
+        } catch (InterruptedException e) {
+            // closed by the walking thread
+            return;
+        } catch (Exception e) {
+            failure = e;
+        }
+        try {
+            ready.put(END);
+        } catch (InterruptedException e) {
+            // closed by the walking thread
+        }
+    }
+
+    private byte[] takeBuffer() throws InterruptedException {
+        final byte[] buffer = freeBuffers.poll();
+        if (buffer != null) return buffer;
+        // allocated on demand, so that short walks do not pay for the whole pool
+        if (allocatedBuffers < depth) {
+            allocatedBuffers++;
+            return new byte[bufferSize];
+        }
+        return freeBuffers.take();
+    }
+
+    /**
+     * @return next entry in the listing order, or null at the end
+     */
+    Item next() throws IOException {
+        final Item item;
+        try {
+            item = ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + containerFile);
+        }
+        if (item != END) return item;
+        final Exception e = failure;
+        if (e instanceof IOException) throw (IOException) e;
+        if (e != null) throw (RuntimeException) e;
+        return null;
+    }
+
+    /**
+     * @return content of the entry; prefetched if it fit into a buffer, otherwise opened again on the first read
+     */
+    InputStream openStream(Item item) {
+        if (item.complete) {
+            return new ByteArrayInputStream(item.buffer, 0, item.length);
+        }
+        return new LazyInputStream(walker, containerFile, item.entryName);
+    }
+
+    /**
+     * Returns the item's buffer to the pool; the item content must not be used afterwards.
+     */
+    void release(Item item) {
+        if (item.buffer != null) {
+            freeBuffers.offer(item.buffer);
+        }
+    }
+
+    void close() {
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class Item {
+        private final String entryName;
+        private final byte[] buffer;
+        private final int length;
+        private final boolean complete;
+
+        private Item(String entryName, byte[] buffer, int length, boolean complete) {
+            this.entryName = entryName;
+            this.buffer = buffer;
+            this.length = length;
+            this.complete = complete;
+        }
+
+        String getEntryName() {
+            return entryName;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Implementation of {@link IntrospectorInputStrategy} which lists entries from an {@link ArchiveIndex},
+ * and only opens the archive for entry content.
+ */
+class IndexedIntrospectorStrategy implements IntrospectorInputStrategy {
+    private final ArchiveIndex archiveIndex;
+    private final DuplicateEntryDetector.Listener duplicateListener;
+    private final ZipArchiveIntrospectorStrategy zip = new ZipArchiveIntrospectorStrategy();
+
+    IndexedIntrospectorStrategy(ArchiveIndex archiveIndex) {
+        this(archiveIndex, null);
+    }
+
+    /**
+     * @param duplicateListener receives the duplicates recorded in the index; can be null
+     */
+    IndexedIntrospectorStrategy(ArchiveIndex archiveIndex, DuplicateEntryDetector.Listener duplicateListener) {
+        this.archiveIndex = archiveIndex;
+        this.duplicateListener = duplicateListener;
+    }
+
+    public Set<String> list(File containerFile) throws IOException {
+        if (duplicateListener != null) {
+            for (DuplicateEntry duplicate : archiveIndex.getDuplicateEntries()) {
+                duplicateListener.duplicateEntry(duplicate);
+            }
+        }
+        return archiveIndex.getEntryNames();
+    }
+
+    public EntryMetadata getMetadata(String entryPath) {
+        final EntryMetadata metadata = archiveIndex.getMetadata(entryPath);
+        return metadata == null ? EntryMetadata.NONE : metadata;
+    }
+
+    public InputStream getInputStream(File containerFile, String entryPath) throws IOException {
+        return zip.getInputStream(containerFile, entryPath);
+    }
+}
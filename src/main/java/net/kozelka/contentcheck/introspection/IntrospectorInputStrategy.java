@@ -49,4 +49,12 @@ interface IntrospectorInputStrategy {
      * @return entry data as input stream
      */
     InputStream getInputStream(File containerFile, String entryPath) throws IOException;
+
+    /**
+     * Returns what the last {@link #list} learned about the entry, without any further I/O.
+     *
+     * @param entryPath entry path as returned by {@link #list}
+     * @return the metadata, or {@link EntryMetadata#NONE} if nothing is known
+     */
+    EntryMetadata getMetadata(String entryPath);
 }
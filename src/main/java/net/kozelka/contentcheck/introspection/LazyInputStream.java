@@ -0,0 +1,57 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Entry content stream which is opened on first read, so that filters deciding without the content cost no I/O.
+ *
+ * @author Petr Kozelka
+ */
+class LazyInputStream extends InputStream {
+    private final IntrospectorInputStrategy walker;
+    private final File containerFile;
+    private final String entryPath;
+    private InputStream delegate;
+
+    LazyInputStream(IntrospectorInputStrategy walker, File containerFile, String entryPath) {
+        this.walker = walker;
+        this.containerFile = containerFile;
+        this.entryPath = entryPath;
+    }
+
+    private InputStream delegate() throws IOException {
+        if (delegate == null) {
+            delegate = walker.getInputStream(containerFile, entryPath);
+        }
+        return delegate;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return delegate().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return delegate().read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return delegate().skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return delegate == null ? 0 : delegate.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maven coordinates of a jar, as found in its embedded <code>pom.properties</code> or guessed from its file name.
+ *
+ * @author Petr Kozelka
+ */
+public final class MavenCoordinates {
+    /**
+     * Marks a jar known to have no <code>pom.properties</code>.
+     */
+    public static final MavenCoordinates NONE = new MavenCoordinates(null, null, null);
+    private static final Pattern POM_PROPERTIES = Pattern.compile("META-INF/maven/[^/]+/([^/]+)/pom\\.properties");
+    private static final Pattern FILE_NAME = Pattern.compile("(?:.*/)?(.+?)(?:-(\\d[^/]*))?\\.jar");
+
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+
+    public MavenCoordinates(String groupId, String artifactId, String version) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+    }
+
+    /**
+     * @return the groupId, null when guessed from file name
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * @return the version, null if not known
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return artifactId of the <code>pom.properties</code> at given path inside a jar, null if it is not such file
+     */
+    static String pomPropertiesArtifactId(String path) {
+        final Matcher matcher = POM_PROPERTIES.matcher(path);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @return coordinates from the content of <code>pom.properties</code>, null if incomplete
+     */
+    static MavenCoordinates readPomProperties(InputStream in) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(in);
+        final String groupId = properties.getProperty("groupId");
+        final String artifactId = properties.getProperty("artifactId");
+        if (groupId == null || artifactId == null) return null;
+        return new MavenCoordinates(groupId, artifactId, properties.getProperty("version"));
+    }
+
+    /**
+     * Guesses artifactId and version from a name like <code>WEB-INF/lib/commons-lang3-3.12.0.jar</code>.
+     * @return the coordinates without groupId, or null if the name does not denote a jar
+     */
+    public static MavenCoordinates fromFileName(String entryName) {
+        final Matcher matcher = FILE_NAME.matcher(entryName);
+        if (!matcher.matches()) return null;
+        return new MavenCoordinates(null, matcher.group(1), matcher.group(2));
+    }
+
+    /**
+     * Inverse of {@link #toString()}.
+     * @return the coordinates, or null if the text is not <code>groupId:artifactId[:version]</code>
+     */
+    public static MavenCoordinates parse(String text) {
+        final String[] parts = text.split(":", -1);
+        if (parts.length < 2 || parts.length > 3) return null;
+        for (String part : parts) {
+            if (part.length() == 0 || part.contains("/") || part.contains(" ")) return null;
+        }
+        return new MavenCoordinates(parts[0], parts[1], parts.length == 3 ? parts[2] : null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MavenCoordinates)) return false;
+        final MavenCoordinates that = (MavenCoordinates) o;
+        return toString().equals(that.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return groupId + ":" + artifactId + (version == null ? "" : ":" + version);
+    }
+}
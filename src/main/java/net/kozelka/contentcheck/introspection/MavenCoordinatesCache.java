@@ -0,0 +1,86 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers coordinates read from jars, keyed by their CRC-32 and size, so that unchanged jars are not read again.
+ * Thread-safe.
+ *
+ * @author Petr Kozelka
+ */
+public class MavenCoordinatesCache {
+    private static final String NONE = "-";
+
+    private final Map<String, String> entries = new ConcurrentHashMap<String, String>();
+    private volatile boolean modified;
+
+    /**
+     * @return the coordinates, {@link MavenCoordinates#NONE} for a jar without them, or null if the jar is not known
+     */
+    public MavenCoordinates get(long crc, long size) {
+        final String value = entries.get(key(crc, size));
+        if (value == null) return null;
+        if (value.equals(NONE)) return MavenCoordinates.NONE;
+        return MavenCoordinates.parse(value);
+    }
+
+    /**
+     * @param coordinates the coordinates, or null for a jar without them
+     */
+    public void put(long crc, long size, MavenCoordinates coordinates) {
+        entries.put(key(crc, size), coordinates == null ? NONE : coordinates.toString());
+        modified = true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String key(long crc, long size) {
+        return String.format("%08x-%d", crc, size);
+    }
+
+    /**
+     * @return the cache stored in the file, or an empty cache if the file does not exist
+     */
+    public static MavenCoordinatesCache load(File cacheFile) throws IOException {
+        final MavenCoordinatesCache cache = new MavenCoordinatesCache();
+        if (!cacheFile.isFile()) return cache;
+        final Properties properties = new Properties();
+        final InputStream is = new FileInputStream(cacheFile);
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+        for (String key : properties.stringPropertyNames()) {
+            cache.entries.put(key, properties.getProperty(key));
+        }
+        return cache;
+    }
+
+    /**
+     * Stores the cache, unless nothing was added since it was loaded.
+     */
+    public void save(File cacheFile) throws IOException {
+        if (!modified) return;
+        final Properties properties = new Properties();
+        properties.putAll(entries);
+        cacheFile.getParentFile().mkdirs();
+        final OutputStream os = new FileOutputStream(cacheFile);
+        try {
+            properties.store(os, "Maven coordinates of jars, by CRC-32 and size");
+        } finally {
+            os.close();
+        }
+        modified = false;
+    }
+}
@@ -0,0 +1,109 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads Maven coordinates of jar entries from their <code>META-INF/maven/&#42;/&#42;/pom.properties</code>, during the walk.
+ * Each jar is parsed by a worker thread from the chunks received from the {@link EntryContentPipeline pipeline};
+ * as soon as the coordinates are found, the jar is not read any further.
+ * Jars known to the {@link MavenCoordinatesCache cache} by their CRC and size are not read at all.
+ *
+ * @author Petr Kozelka
+ */
+public class MavenCoordinatesResolver extends AsyncEntryContentConsumer {
+    private final MavenCoordinatesCache cache;
+    private final Map<String, MavenCoordinates> coordinates = new ConcurrentHashMap<String, MavenCoordinates>();
+
+    /**
+     * @param cache coordinates of already read jars, updated with newly read ones; null for none
+     * @param threads number of worker threads
+     */
+    public MavenCoordinatesResolver(MavenCoordinatesCache cache, int threads) {
+        super("contentcheck-coordinates", "coordinate readers", threads);
+        this.cache = cache;
+    }
+
+    @Override
+    protected EntryReader createReader(String entryName, EntryMetadata metadata) {
+        if (!entryName.endsWith(".jar")) return null;
+        final boolean cacheable = cache != null && metadata.getCrc() != EntryMetadata.UNKNOWN && metadata.getSize() != EntryMetadata.UNKNOWN;
+        if (cacheable) {
+            final MavenCoordinates cached = cache.get(metadata.getCrc(), metadata.getSize());
+            if (cached != null) {
+                if (cached != MavenCoordinates.NONE) {
+                    coordinates.put(entryName, cached);
+                }
+                return null;
+            }
+        }
+        return new CoordinatesReader(entryName, cacheable ? metadata : null);
+    }
+
+    /**
+     * Waits until all started jars are read, and stops the workers.
+     * @return coordinates by entry name, of jars that have them
+     */
+    public Map<String, MavenCoordinates> finish() throws InterruptedIOException {
+        awaitReaders();
+        return Collections.unmodifiableMap(coordinates);
+    }
+
+    private class CoordinatesReader extends EntryReader {
+        private final String entryName;
+        private final EntryMetadata cacheKey;
+
+        CoordinatesReader(String entryName, EntryMetadata cacheKey) {
+            this.entryName = entryName;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        protected void read(InputStream content) {
+            MavenCoordinates found = null;
+            try {
+                found = read(new ZipInputStream(content));
+            } catch (IOException e) {
+                // not a valid jar; the file name will do
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            if (found != null) {
+                coordinates.put(entryName, found);
+            }
+            if (cacheKey != null) {
+                cache.put(cacheKey.getCrc(), cacheKey.getSize(), found);
+            }
+        }
+
+        /**
+         * Shaded jars contain pom.properties of several artifacts; the one matching the jar name wins.
+         * When none matches, the jar is not identified by any of them, as a renamed jar could then pass for one of its dependencies;
+         * only a single descriptor is trusted without the name.
+         */
+        private MavenCoordinates read(ZipInputStream zis) throws IOException {
+            final MavenCoordinates byName = MavenCoordinates.fromFileName(entryName);
+            MavenCoordinates only = null;
+            boolean several = false;
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                final String artifactId = MavenCoordinates.pomPropertiesArtifactId(entry.getName());
+                if (artifactId == null) continue;
+                final MavenCoordinates read = MavenCoordinates.readPomProperties(zis);
+                if (read == null) continue;
+                if (byName != null && read.getArtifactId().equals(byName.getArtifactId())) return read;
+                if (only == null) {
+                    only = read;
+                } else if (!only.equals(read)) {
+                    several = true;
+                }
+            }
+            return several ? null : only;
+        }
+    }
+}
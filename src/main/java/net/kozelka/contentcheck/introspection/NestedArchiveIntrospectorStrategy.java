@@ -0,0 +1,291 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import net.kozelka.contentcheck.util.ResourceBudget;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Implementation of {@link IntrospectorInputStrategy} which descends into archives nested in the container,
+ * like jars in a war, wars in an ear, or jars in <code>BOOT-INF/lib</code> of a Spring Boot jar.
+ * Nested entries are presented by composite paths, like <code>app.war!/WEB-INF/lib/x.jar</code>.
+ * Nothing is extracted to disk. While the walk reads entries of a nested archive of up to {@link #DEFAULT_MAX_BUFFERED_SIZE}
+ * bytes, its inflated content is held in memory; larger ones are streamed forward from the enclosing archive,
+ * and read again from its start only when the walk goes back.
+ *
+ * @author Petr Kozelka
+ */
+class NestedArchiveIntrospectorStrategy implements IntrospectorInputStrategy {
+    static final String SEPARATOR = "!/";
+    static final int DEFAULT_MAX_BUFFERED_SIZE = 16 * 1024 * 1024;
+
+    private final IntrospectorInputStrategy base;
+    private final FilenameFilter nestedArchiveFilter;
+    private final int maxDepth;
+    private final ResourceBudget budget;
+    private final Map<String, ZipEntry> nestedEntries = new HashMap<String, ZipEntry>();
+    private final Map<String, OpenArchive> openArchives = new HashMap<String, OpenArchive>();
+    private long maxBufferedSize = DEFAULT_MAX_BUFFERED_SIZE;
+
+    /**
+     * @param base strategy reading the top level container
+     * @param nestedArchiveFilter decides which entries are archives to descend into
+     * @param maxDepth how many levels of nesting to open; 0 means the top level only
+     */
+    NestedArchiveIntrospectorStrategy(IntrospectorInputStrategy base, FilenameFilter nestedArchiveFilter, int maxDepth) {
+        this(base, nestedArchiveFilter, maxDepth, null);
+    }
+
+    /**
+     * @param budget limits for reading the nested archives; null for none
+     */
+    NestedArchiveIntrospectorStrategy(IntrospectorInputStrategy base, FilenameFilter nestedArchiveFilter, int maxDepth, ResourceBudget budget) {
+        this.base = base;
+        this.nestedArchiveFilter = nestedArchiveFilter;
+        this.maxDepth = maxDepth;
+        this.budget = budget;
+    }
+
+    /**
+     * @param maxBufferedSize largest nested archive held in memory while the walk reads its entries
+     */
+    void setMaxBufferedSize(long maxBufferedSize) {
+        this.maxBufferedSize = maxBufferedSize;
+    }
+
+    public Set<String> list(File containerFile) throws IOException {
+        final Set<String> entries = new LinkedHashSet<String>();
+        for (String entryName : base.list(containerFile)) {
+            entries.add(entryName);
+            if (maxDepth > 0 && isNestedArchive(containerFile, entryName)) {
+                final InputStream is = base.getInputStream(containerFile, entryName);
+                try {
+                    listNested(containerFile, new ZipInputStream(limit(is, entryName, 1, base.getMetadata(entryName).getCompressedSize())),
+                        entryName + SEPARATOR, 1, entries);
+                } finally {
+                    is.close();
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void listNested(File containerFile, ZipInputStream zis, String prefix, int depth, Set<String> entries) throws IOException {
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            final String entryName = entry.getName();
+            // sizes and CRC of entries with data descriptor are filled in later, when the stream moves past them
+            if (entries.add(prefix + entryName)) {
+                nestedEntries.put(prefix + entryName, entry);
+            }
+            if (budget != null) {
+                budget.countEntry(prefix + entryName);
+            }
+            if (depth < maxDepth && isNestedArchive(containerFile, entryName)) {
+                listNested(containerFile, new ZipInputStream(limit(zis, prefix + entryName, depth + 1, entry.getCompressedSize())),
+                    prefix + entryName + SEPARATOR, depth + 1, entries);
+            } else if (budget != null) {
+                // skipping would inflate the entry unchecked
+                budget.drain(zis, prefix + entryName, entry.getCompressedSize());
+                // with a data descriptor, sizes are only known after the entry data are read
+                budget.checkDeclaredSize(prefix + entryName, entry.getSize(), entry.getCompressedSize());
+            }
+        }
+    }
+
+    private InputStream limit(InputStream in, String path, int depth, long compressedSize) throws IOException {
+        if (budget == null) return in;
+        budget.checkDepth(depth, path);
+        return budget.limit(in, path, compressedSize);
+    }
+
+    private boolean isNestedArchive(File containerFile, String entryName) {
+        return !entryName.endsWith("/") && nestedArchiveFilter.accept(containerFile, entryName);
+    }
+
+    public EntryMetadata getMetadata(String entryPath) {
+        final ZipEntry nestedEntry = nestedEntries.get(entryPath);
+        return nestedEntry == null ? base.getMetadata(entryPath) : EntryMetadata.of(nestedEntry);
+    }
+
+    /**
+     * Entries of a nested archive are read forward by one cursor, from its inflated content cached while the walk stays within the archive,
+     * or, for large archives, from the cursor of the enclosing archive; so each nested archive is inflated once, not once per entry.
+     */
+    public synchronized InputStream getInputStream(File containerFile, String entryPath) throws IOException {
+        final int separator = entryPath.lastIndexOf(SEPARATOR);
+        if (separator < 0) {
+            return base.getInputStream(containerFile, entryPath);
+        }
+        final String entryName = entryPath.substring(separator + SEPARATOR.length());
+        if (isNestedArchive(containerFile, entryName) && depth(entryPath) <= maxDepth) {
+            // its own entries follow in the walk
+            final byte[] data = openArchive(containerFile, entryPath).data;
+            if (data != null) return new ByteArrayInputStream(data);
+        }
+        return openEntry(containerFile, entryPath.substring(0, separator), entryName);
+    }
+
+    private InputStream openEntry(File containerFile, String archivePath, String entryName) throws IOException {
+        final InputStream is = openArchive(containerFile, archivePath).open(entryName);
+        if (is == null) {
+            throw new FileNotFoundException(containerFile + SEPARATOR + archivePath + SEPARATOR + entryName);
+        }
+        return is;
+    }
+
+    private static int depth(String entryPath) {
+        return entryPath.split(SEPARATOR).length;
+    }
+
+    private OpenArchive openArchive(File containerFile, String archivePath) throws IOException {
+        final OpenArchive cached = openArchives.get(archivePath);
+        if (cached != null) return cached;
+        // only the archives enclosing the current one stay cached
+        for (Iterator<OpenArchive> it = openArchives.values().iterator(); it.hasNext(); ) {
+            final OpenArchive archive = it.next();
+            if (!archivePath.startsWith(archive.path + SEPARATOR)) {
+                it.remove();
+                archive.evict();
+            }
+        }
+        final long size = getMetadata(archivePath).getSize();
+        byte[] data = null;
+        if (size >= 0 && size <= maxBufferedSize) {
+            final InputStream is = openArchiveContent(containerFile, archivePath);
+            try {
+                data = IOUtil.toByteArray(is);
+            } finally {
+                is.close();
+            }
+        }
+        final OpenArchive archive = new OpenArchive(containerFile, archivePath, data);
+        openArchives.put(archivePath, archive);
+        return archive;
+    }
+
+    /**
+     * @return inflated content of the archive, read from the enclosing one
+     */
+    private InputStream openArchiveContent(File containerFile, String archivePath) throws IOException {
+        final int separator = archivePath.lastIndexOf(SEPARATOR);
+        final InputStream is = separator < 0
+            ? base.getInputStream(containerFile, archivePath)
+            : openEntry(containerFile, archivePath.substring(0, separator), archivePath.substring(separator + SEPARATOR.length()));
+        return limit(is, archivePath, depth(archivePath), getMetadata(archivePath).getCompressedSize());
+    }
+
+    /**
+     * Nested archive being walked, with a cursor after the last entry read.
+     * Its inflated content is either held in memory, or the cursor reads it from the cursor of the enclosing archive.
+     */
+    private class OpenArchive {
+        private final File containerFile;
+        private final String path;
+        private final byte[] data;
+        private ZipInputStream cursor;
+        private boolean busy;
+        private boolean evicted;
+
+        /**
+         * @param data inflated content, or null to stream it from the enclosing archive
+         */
+        OpenArchive(File containerFile, String path, byte[] data) {
+            this.containerFile = containerFile;
+            this.path = path;
+            this.data = data;
+        }
+
+        /**
+         * @return the entry content, or null if there is no such entry
+         */
+        InputStream open(String entryName) throws IOException {
+            if (!busy && cursor != null) {
+                final ZipEntry entry = seek(cursor, entryName);
+                if (entry != null) return claimCursor(entry);
+            }
+            // going back, or the cursor is still being read by another thread
+            final ZipInputStream zis = new ZipInputStream(data == null
+                ? openArchiveContent(containerFile, path)
+                : new ByteArrayInputStream(data));
+            final ZipEntry entry = seek(zis, entryName);
+            if (entry == null) {
+                zis.close();
+                return null;
+            }
+            if (busy) return zis;
+            closeCursor();
+            cursor = zis;
+            return claimCursor(entry);
+        }
+
+        /**
+         * Releases the enclosing archive, once the cursor is not being read.
+         */
+        void evict() throws IOException {
+            evicted = true;
+            if (!busy) {
+                closeCursor();
+            }
+        }
+
+        private void closeCursor() throws IOException {
+            if (cursor == null) return;
+            // a streamed cursor holds the cursor of the enclosing archive until closed
+            cursor.close();
+            cursor = null;
+        }
+
+        private InputStream claimCursor(final ZipEntry entry) {
+            busy = true;
+            return new FilterInputStream(cursor) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) return;
+                    closed = true;
+                    synchronized (NestedArchiveIntrospectorStrategy.this) {
+                        try {
+                            if (budget != null) {
+                                // moving to the next entry would inflate the rest unchecked
+                                budget.drain(in, path + SEPARATOR + entry.getName(), entry.getCompressedSize());
+                            }
+                        } finally {
+                            busy = false;
+                            if (evicted) {
+                                closeCursor();
+                            }
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * @return the entry, with the stream positioned at its content; null if not found
+         */
+        private ZipEntry seek(ZipInputStream zis, String entryName) throws IOException {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.getName().equals(entryName)) return entry;
+                if (budget != null) {
+                    budget.drain(zis, path + SEPARATOR + entry.getName(), entry.getCompressedSize());
+                }
+            }
+            return null;
+        }
+    }
+}
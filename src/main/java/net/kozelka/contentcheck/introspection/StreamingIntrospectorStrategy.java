@@ -0,0 +1,22 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Strategy for containers without random access, like tar archives.
+ * Instead of listing entries and opening them later, it visits each entry with its content in a single forward pass.
+ */
+interface StreamingIntrospectorStrategy extends IntrospectorInputStrategy {
+    /**
+     * Visits all entries, in the container order.
+     * @param containerFile the container
+     * @param visitor receives each entry; its content stream is only valid during the call
+     */
+    void walk(File containerFile, EntryVisitor visitor) throws IOException;
+
+    interface EntryVisitor {
+        void visit(String entryName, EntryMetadata metadata, InputStream entryContentStream) throws IOException;
+    }
+}
@@ -0,0 +1,160 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import net.kozelka.contentcheck.util.ReadAheadInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+
+/**
+ * Implementation of {@link IntrospectorInputStrategy} for tar archives, plain or compressed by gzip or xz.
+ * Tar has no central directory, so the archive is processed in a single forward pass;
+ * decompression runs on its own thread, ahead of entry processing.
+ *
+ * @author Petr Kozelka
+ */
+class TarIntrospectorStrategy implements StreamingIntrospectorStrategy {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS_AHEAD = 16;
+
+    private final DuplicateEntryDetector.Listener duplicateListener;
+    private final Map<String, EntryMetadata> metadataByEntry = new HashMap<String, EntryMetadata>();
+
+    TarIntrospectorStrategy() {
+        this(null);
+    }
+
+    /**
+     * @param duplicateListener receives entry names occurring more than once; null to skip the detection
+     */
+    TarIntrospectorStrategy(DuplicateEntryDetector.Listener duplicateListener) {
+        this.duplicateListener = duplicateListener;
+    }
+
+    /**
+     * @return true for <code>.tar</code>, <code>.tar.gz</code>, <code>.tgz</code>, <code>.tar.xz</code> and <code>.txz</code> files
+     */
+    static boolean isTar(File file) {
+        final String name = file.getName();
+        return name.endsWith(".tar") || isGzip(name) || isXz(name);
+    }
+
+    private static boolean isGzip(String name) {
+        return name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    private static boolean isXz(String name) {
+        return name.endsWith(".tar.xz") || name.endsWith(".txz");
+    }
+
+    public void walk(File containerFile, EntryVisitor visitor) throws IOException {
+        final TarArchiveInputStream tis = open(containerFile);
+        // tar records no CRCs; the later copy is what an extraction leaves on disk
+        final DuplicateEntryDetector detector = duplicateListener == null ? null : new DuplicateEntryDetector(duplicateListener);
+        try {
+            // the visitor must not close the archive stream
+            final InputStream entryContentStream = new FilterInputStream(tis) {
+                @Override
+                public void close() {
+                }
+            };
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextEntry()) != null) {
+                final String entryName = entryName(entry);
+                if (entryName.length() > 0) {
+                    if (detector != null) {
+                        detector.add(entryName, DuplicateEntryDetector.UNKNOWN_CRC);
+                    }
+                    visitor.visit(entryName, metadata(entry), entryContentStream);
+                }
+            }
+        } finally {
+            tis.close();
+        }
+    }
+
+    public Set<String> list(File containerFile) throws IOException {
+        final Set<String> entries = new LinkedHashSet<String>();
+        walk(containerFile, new EntryVisitor() {
+            public void visit(String entryName, EntryMetadata metadata, InputStream entryContentStream) {
+                if (entries.add(entryName)) {
+                    metadataByEntry.put(entryName, metadata);
+                }
+            }
+        });
+        return entries;
+    }
+
+    public EntryMetadata getMetadata(String entryPath) {
+        final EntryMetadata metadata = metadataByEntry.get(entryPath);
+        return metadata == null ? EntryMetadata.NONE : metadata;
+    }
+
+    /**
+     * Scans the archive up to given entry; prefer {@link #walk} which does not need to seek.
+     */
+    public InputStream getInputStream(File containerFile, String entryPath) throws IOException {
+        final TarArchiveInputStream tis = open(containerFile);
+        boolean found = false;
+        try {
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextEntry()) != null) {
+                if (entryName(entry).equals(entryPath)) {
+                    found = true;
+                    return tis;
+                }
+            }
+            throw new FileNotFoundException(containerFile + "!/" + entryPath);
+        } finally {
+            if (!found) {
+                tis.close();
+            }
+        }
+    }
+
+    private static TarArchiveInputStream open(File containerFile) throws IOException {
+        final String name = containerFile.getName();
+        InputStream is = new BufferedInputStream(new FileInputStream(containerFile), CHUNK_SIZE);
+        try {
+            if (isGzip(name)) {
+                is = new GZIPInputStream(is, CHUNK_SIZE);
+            } else if (isXz(name)) {
+                is = new XZCompressorInputStream(is);
+            } else {
+                return new TarArchiveInputStream(is);
+            }
+        } catch (IOException e) {
+            is.close();
+            throw e;
+        }
+        return new TarArchiveInputStream(new ReadAheadInputStream(is, CHUNK_SIZE, CHUNKS_AHEAD, "contentcheck-decompress " + name));
+    }
+
+    /**
+     * Tar keeps no CRC and no compression per entry.
+     */
+    private static EntryMetadata metadata(TarArchiveEntry entry) {
+        final long size = entry.isDirectory() ? EntryMetadata.UNKNOWN : entry.getSize();
+        return new EntryMetadata(size, EntryMetadata.UNKNOWN, EntryMetadata.UNKNOWN, (int) EntryMetadata.UNKNOWN,
+            entry.getModTime().getTime());
+    }
+
+    /**
+     * Strips the <code>./</code> prefix that tar often records, so that names look like those of zip entries.
+     */
+    private static String entryName(TarArchiveEntry entry) {
+        final String name = entry.getName();
+        return name.startsWith("./") ? name.substring(2) : name;
+    }
+}
@@ -1,41 +1,84 @@
 package net.kozelka.contentcheck.introspection;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 /**
  * Implementation of {@link IntrospectorInputStrategy} which can read the content of ZIP file.
+ * Entries are listed from the central directory, without decompressing anything; that also gives their metadata.
  */
 class ZipArchiveIntrospectorStrategy implements IntrospectorInputStrategy {
+    private final DuplicateEntryDetector.Listener duplicateListener;
+    private final Map<String, EntryMetadata> metadataByEntry = new HashMap<String, EntryMetadata>();
+
+    ZipArchiveIntrospectorStrategy() {
+        this(null);
+    }
+
+    /**
+     * @param duplicateListener receives entry names occurring more than once; null to skip the detection
+     */
+    ZipArchiveIntrospectorStrategy(DuplicateEntryDetector.Listener duplicateListener) {
+        this.duplicateListener = duplicateListener;
+    }
+
     public Set<String> list(File containerFile) throws IOException {
         final ZipFile zipFile = new ZipFile(containerFile);
-        final ZipInputStream zis = new ZipInputStream(new FileInputStream(containerFile));
-        final Set<String> entries = new HashSet<String>();
+        final Set<String> entries = new LinkedHashSet<String>();
         try {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
+            final DuplicateEntryDetector detector = duplicateListener == null
+                ? null
+                : new DuplicateEntryDetector(duplicateListener, zipFile.size());
+            final Enumeration<? extends ZipEntry> en = zipFile.entries();
+            while (en.hasMoreElements()) {
+                final ZipEntry entry = en.nextElement();
                 final String entryName = entry.getName();
-                entries.add(entryName);
+                if (entries.add(entryName)) {
+                    metadataByEntry.put(entryName, EntryMetadata.of(entry));
+                }
+                if (detector != null) {
+                    detector.add(entryName, entry.getCrc());
+                }
             }
         } finally {
-            try {
-                zis.close();
-            } finally {
-                zipFile.close();
-            }
+            zipFile.close();
         }
 
         return entries;
     }
 
+    public EntryMetadata getMetadata(String entryPath) {
+        final EntryMetadata metadata = metadataByEntry.get(entryPath);
+        return metadata == null ? EntryMetadata.NONE : metadata;
+    }
+
     public InputStream getInputStream(File containerFile, String entry) throws IOException {
-        return new ZipFile(containerFile).getInputStream(new ZipEntry(entry));
+        final ZipFile zipFile = new ZipFile(containerFile);
+        final InputStream is = zipFile.getInputStream(new ZipEntry(entry));
+        if (is == null) {
+            zipFile.close();
+            throw new FileNotFoundException(containerFile + "!/" + entry);
+        }
+        // closing the entry stream must release the zip file, too
+        return new FilterInputStream(is) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    zipFile.close();
+                }
+            }
+        };
     }
 }
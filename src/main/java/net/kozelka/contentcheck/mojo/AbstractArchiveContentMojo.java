@@ -1,11 +1,10 @@
 package net.kozelka.contentcheck.mojo;
 
 import java.io.File;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
-public abstract class AbstractArchiveContentMojo extends AbstractMojo {
+public abstract class AbstractArchiveContentMojo extends AbstractResourceBudgetMojo {
 
     /**
      * The archive file or directory to be checked.
@@ -55,6 +54,61 @@ public abstract class AbstractArchiveContentMojo extends AbstractMojo {
     @Parameter(defaultValue = "**/*.jar")
     String checkFilesPattern;
 
+    /**
+     * How many levels of nested archives (jars, wars, ears, rars) to look into, like wars in an ear or <code>BOOT-INF/lib</code> jars in a Spring Boot jar.
+     * Entries inside them are matched by composite paths like <code>app.war!/WEB-INF/lib/x.jar</code>.
+     * Nested archives are read in memory, without extracting them.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.nestedArchiveDepth")
+    int nestedArchiveDepth;
+
+    /**
+     * How many threads list the source, when it is a directory. Wide trees on network volumes benefit from more.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "1", property = "contentcheck.directoryWalkThreads")
+    int directoryWalkThreads;
+
+    /**
+     * How many entries to read and decompress ahead on a background thread, while the current one is processed.
+     * Pays off on slow disks and network volumes when entry content is inspected, like with <code>ignoreVendorArchives</code>.
+     * 0 means the plain serial walk.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.prefetchDepth")
+    int prefetchDepth;
+
+    /**
+     * Size in bytes of each prefetch buffer; memory used by prefetching is <code>prefetchDepth * prefetchBufferSize</code>.
+     * Larger entries are read again when processed.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "1048576", property = "contentcheck.prefetchBufferSize")
+    int prefetchBufferSize;
+
+    /**
+     * How many threads compute content digests, for listing rules pinning one (like <code>sha256=...</code>);
+     * 0 means the number of processors.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.digestThreads")
+    int digestThreads;
+
+    /**
+     * Where Maven coordinates read from jars are remembered, by jar CRC and size, so that unchanged jars are not read again.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "${project.build.directory}/contentcheck-maven-plugin/coordinates-cache.properties", property = "contentcheck.coordinatesCacheFile")
+    File coordinatesCacheFile;
+
+    /**
+     * @return number of digest worker threads, resolving the default
+     */
+    protected int getDigestThreads() {
+        return digestThreads > 0 ? digestThreads : Runtime.getRuntime().availableProcessors();
+    }
+
     protected void assertSourceFileExists() throws MojoExecutionException {
         if (sourceFile == null) {
             sourceFile = directory;
@@ -0,0 +1,144 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.introspection.DuplicateEntry;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Base of goals checking entries against the listing of approved content, and reporting the differences.
+ *
+ * @author Petr Kozelka
+ */
+public abstract class AbstractContentListingMojo extends AbstractArchiveContentMojo {
+
+    /**
+     * If true, no check is performed.
+     */
+    @Parameter(defaultValue = "false", property = "contentcheck.skip")
+    boolean skip;
+
+    /**
+     * The file with list of approved files. If such file does not exist, the check is skipped. This enables multimodule use.
+     * Each line in represents one pathname entry.
+     * Empty lines and comments (starting with '#') are ignored.
+     */
+    @Parameter(defaultValue = "${basedir}/approved-content.txt")
+    File contentListing;
+
+    /**
+     * Message used to report missing entry - uses the {@link java.util.Formatter} syntax to embed entry name.
+     */
+    @Parameter(defaultValue = "File is expected but not found: %s")
+    String msgMissing;
+
+    /**
+     * Message used to report unexpected entry - uses the {@link java.util.Formatter} syntax to embed entry name.
+     */
+    @Parameter(defaultValue = "Found unexpected file: %s")
+    String msgUnexpected;
+
+    /**
+     * If true, stops the build when there is any file missing.
+     */
+    @Parameter(defaultValue = "false")
+    boolean failOnMissing;
+
+    /**
+     * If true, stops the build when there is any unexpected file.
+     */
+    @Parameter(defaultValue = "true")
+    boolean failOnUnexpected;
+
+    /**
+     * If true, stops the build when an entry matches an approved path but violates its constraints,
+     * like <code>maxSize</code>, <code>method</code> or <code>crc</code>.
+     */
+    @Parameter(defaultValue = "true")
+    boolean failOnConstraintViolation;
+
+    /**
+     * If true, stops the build when an entry name occurs more than once in the source and the copies differ.
+     * Such entries are always reported; which copy wins depends on the tool reading the archive.
+     */
+    @Parameter(defaultValue = "false")
+    boolean failOnDuplicates;
+
+    /**
+     * Messages logged as warnings by {@link #verify}.
+     */
+    final List<String> warnings = new ArrayList<String>();
+
+    /**
+     * Reports problems found by the check, and fails as configured.
+     * @param source what was checked, for messages
+     */
+    void verify(ApproverReport report, String source) throws MojoFailureException {
+        // report missing entries
+        final Set<ApprovedEntry> missingEntries = report.getMissingEntries();
+        for (ApprovedEntry missing : missingEntries) {
+            log(failOnMissing, String.format(msgMissing, missing));
+        }
+        // report unexpected entries
+        final Set<ActualEntry> unexpectedEntries = report.getUnexpectedEntries();
+        for (ActualEntry actualEntry : unexpectedEntries) {
+            log(failOnUnexpected, String.format(msgUnexpected, actualEntry.getUri()));
+        }
+        // report entries violating constraints of their rules
+        final Map<ActualEntry, String> constraintViolations = report.getConstraintViolations();
+        for (Map.Entry<ActualEntry, String> violation : constraintViolations.entrySet()) {
+            log(failOnConstraintViolation, String.format("Entry %s violates approved content: %s", violation.getKey().getUri(), violation.getValue()));
+        }
+        // report duplicate entries
+        int conflictingDuplicates = 0;
+        for (DuplicateEntry duplicate : report.getDuplicateEntries()) {
+            if (duplicate.isConflicting()) {
+                conflictingDuplicates++;
+                log(failOnDuplicates, "Duplicate entry with different content: " + duplicate.getUri());
+            } else {
+                log(false, "Duplicate entry: " + duplicate.getUri());
+            }
+        }
+        // error summary
+        if (!missingEntries.isEmpty()) {
+            log(failOnMissing, "Missing: " + missingEntries.size() + " entries");
+        }
+        if (!unexpectedEntries.isEmpty()) {
+            log(failOnUnexpected, "Unexpected: " + unexpectedEntries.size() + " entries");
+        }
+        // fail as necessary, after reporting all detected problems
+        if (failOnMissing && ! missingEntries.isEmpty()) {
+            throw new MojoFailureException(missingEntries.size() + " expected entries are missing in " + source);
+        }
+
+        if (failOnUnexpected && ! unexpectedEntries.isEmpty()) {
+            throw new MojoFailureException(unexpectedEntries.size() + " unexpected entries appear in " + source);
+        }
+
+        if (failOnConstraintViolation && ! constraintViolations.isEmpty()) {
+            throw new MojoFailureException(constraintViolations.size() + " entries violate constraints of approved content in " + source);
+        }
+
+        if (failOnDuplicates && conflictingDuplicates > 0) {
+            throw new MojoFailureException(conflictingDuplicates + " entries occur repeatedly with different content in " + source);
+        }
+
+        getLog().info("Source " + source + " has valid content according to " + contentListing.getAbsolutePath());
+    }
+
+    private void log(boolean error, String message) {
+        if (error) {
+            getLog().error(message);
+        } else {
+            getLog().warn(message);
+            warnings.add(message);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.kozelka.contentcheck.mojo;
+
+import net.kozelka.contentcheck.util.ResourceBudget;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Base of goals reading archives, with the <code>max*</code> limits for inflating them.
+ *
+ * @author Petr Kozelka
+ */
+public abstract class AbstractResourceBudgetMojo extends AbstractMojo {
+
+    /**
+     * Maximum inflated size in bytes of any entry, including entries of nested archives; 0 for no limit.
+     * Together with the other <code>max*</code> limits, it keeps a hostile archive (like a zip bomb) from stalling the build.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.maxEntrySize")
+    long maxEntrySize;
+
+    /**
+     * Maximum number of bytes inflated during the goal; 0 for no limit.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.maxTotalSize")
+    long maxTotalSize;
+
+    /**
+     * Maximum number of entries read during the goal, including entries of nested archives; 0 for no limit.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.maxEntryCount")
+    int maxEntryCount;
+
+    /**
+     * Maximum nesting of archives to open, like 1 for jars in a war; 0 for no limit.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.maxNestingDepth")
+    int maxNestingDepth;
+
+    /**
+     * Maximum ratio of inflated to compressed size of an entry larger than 1 MB; 0 for no limit.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "0", property = "contentcheck.maxCompressionRatio")
+    int maxCompressionRatio;
+
+    /**
+     * @return budget for this execution, from the <code>max*</code> parameters
+     */
+    protected ResourceBudget createResourceBudget() {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxEntrySize(maxEntrySize);
+        budget.setMaxTotalSize(maxTotalSize);
+        budget.setMaxEntryCount(maxEntryCount);
+        budget.setMaxNestingDepth(maxNestingDepth);
+        budget.setMaxCompressionRatio(maxCompressionRatio);
+        return budget;
+    }
+}
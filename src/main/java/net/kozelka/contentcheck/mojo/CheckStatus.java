@@ -0,0 +1,120 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import net.kozelka.contentcheck.introspection.EntryDigester;
+
+/**
+ * Remembers the last successful content check, so that an unchanged source does not need to be walked again.
+ * The fingerprint covers the source file (path, size, modification time), the listing content, and all parameters affecting the verdict.
+ *
+ * @author Petr Kozelka
+ */
+class CheckStatus {
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String WARNING_PREFIX = "warning.";
+
+    private String fingerprint;
+    private final List<String> warnings = new ArrayList<String>();
+
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return messages that were logged as warnings by the successful check, to be replayed
+     */
+    List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * @return fingerprint of the check inputs, or null if they cannot be fingerprinted (a directory source)
+     */
+    static String fingerprint(File sourceFile, File contentListing, String... parameters) throws IOException {
+        if (!sourceFile.isFile()) return null;
+        final MessageDigest md = sha1();
+        update(md, sourceFile.getAbsolutePath());
+        update(md, String.valueOf(sourceFile.length()));
+        update(md, String.valueOf(sourceFile.lastModified()));
+        final InputStream is = new FileInputStream(contentListing);
+        try {
+            final byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        } finally {
+            is.close();
+        }
+        for (String parameter : parameters) {
+            update(md, String.valueOf(parameter));
+        }
+        return EntryDigester.toHex(md.digest());
+    }
+
+    private static void update(MessageDigest md, String value) throws IOException {
+        md.update(value.getBytes("UTF-8"));
+        md.update((byte) 0);
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the stored status, or null if there is none
+     */
+    static CheckStatus load(File statusFile) throws IOException {
+        if (!statusFile.isFile()) return null;
+        final Properties properties = new Properties();
+        final InputStream is = new FileInputStream(statusFile);
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+        final CheckStatus status = new CheckStatus();
+        status.setFingerprint(properties.getProperty(FINGERPRINT));
+        for (int i = 0; properties.containsKey(WARNING_PREFIX + i); i++) {
+            status.warnings.add(properties.getProperty(WARNING_PREFIX + i));
+        }
+        return status;
+    }
+
+    void save(File statusFile) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        for (int i = 0; i < warnings.size(); i++) {
+            properties.setProperty(WARNING_PREFIX + i, warnings.get(i));
+        }
+        statusFile.getParentFile().mkdirs();
+        final OutputStream os = new FileOutputStream(statusFile);
+        try {
+            properties.store(os, "last successful content check");
+        } finally {
+            os.close();
+        }
+    }
+
+    static void delete(File statusFile) {
+        statusFile.delete();
+    }
+}
@@ -4,15 +4,19 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Set;
+import net.kozelka.contentcheck.daemon.CheckDaemon;
+import net.kozelka.contentcheck.daemon.CheckOptions;
+import net.kozelka.contentcheck.daemon.DaemonClient;
 import net.kozelka.contentcheck.expect.api.ApproverReport;
 import net.kozelka.contentcheck.expect.impl.ContentChecker;
 import net.kozelka.contentcheck.expect.impl.ContentCollector;
 import net.kozelka.contentcheck.expect.impl.VendorFilter;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
-import net.kozelka.contentcheck.expect.model.ApprovedEntry;
 import net.kozelka.contentcheck.expect.util.ExpectUtils;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesCache;
+import net.kozelka.contentcheck.util.ResourceBudget;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -26,21 +30,7 @@ import org.apache.maven.plugins.annotations.Parameter;
  * @since 1.0.0
  */
 @Mojo(name = "check", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
-public class ContentCheckMojo extends AbstractArchiveContentMojo {
-
-    /**
-     * If true, no check is performed.
-     */
-    @Parameter(defaultValue = "false", property = "contentcheck.skip")
-    boolean skip;
-
-    /**
-     * The file with list of approved files. If such file does not exist, the check is skipped. This enables multimodule use.
-     * Each line in represents one pathname entry.
-     * Empty lines and comments (starting with '#') are ignored.
-     */
-    @Parameter(defaultValue = "${basedir}/approved-content.txt")
-    File contentListing;
+public class ContentCheckMojo extends AbstractContentListingMojo {
 
     /**
      * Where to generate content listing. Can be used to fix or initiate the <code>approved-content.txt</code> file.
@@ -49,28 +39,37 @@ public class ContentCheckMojo extends AbstractArchiveContentMojo {
     File contentListingGenerated;
 
     /**
-     * Message used to report missing entry - uses the {@link java.util.Formatter} syntax to embed entry name.
+     * If true, the check is delegated to a running contentcheck daemon, which keeps parsed listings and vendor decisions in memory.
+     * When no daemon responds, the check runs in-process as usual.
+     * @since 1.0.6
      */
-    @Parameter(defaultValue = "File is expected but not found: %s")
-    String msgMissing;
+    @Parameter(defaultValue = "false", property = "contentcheck.daemon")
+    boolean useDaemon;
 
     /**
-     * Message used to report unexpected entry - uses the {@link java.util.Formatter} syntax to embed entry name.
+     * The file where the contentcheck daemon publishes its port.
+     * @since 1.0.6
      */
-    @Parameter(defaultValue = "Found unexpected file: %s")
-    String msgUnexpected;
+    @Parameter(property = "contentcheck.daemon.portFile")
+    File daemonPortFile;
 
     /**
-     * If true, stops the build when there is any file missing.
+     * Where the fingerprint and warnings of the last successful check are kept.
+     * When neither the source file, the listing nor the check parameters changed since then, the check is not repeated.
+     * @since 1.0.6
      */
-    @Parameter(defaultValue = "false")
-    boolean failOnMissing;
+    @Parameter(defaultValue = "${project.build.directory}/contentcheck-maven-plugin/check-status.properties")
+    File checkStatusFile;
 
     /**
-     * If true, stops the build when there is any unexpected file.
+     * If true, the check is performed even when its inputs did not change since the last successful check.
+     * @since 1.0.6
      */
-    @Parameter(defaultValue = "true")
-    boolean failOnUnexpected;
+    @Parameter(defaultValue = "false", property = "contentcheck.force")
+    boolean force;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    String pluginVersion;
 
     public void execute() throws MojoExecutionException, MojoFailureException {
 
@@ -82,12 +81,33 @@ public class ContentCheckMojo extends AbstractArchiveContentMojo {
         assertSourceFileExists();
 
         try {
+            final String fingerprint = contentListing.exists() ? fingerprint() : null;
+            if (fingerprint != null && isUpToDate(fingerprint)) {
+                return;
+            }
+            CheckStatus.delete(checkStatusFile);
+            final ResourceBudget budget = createResourceBudget();
+            // vendor filtering reads jar manifests, so the index pays off; otherwise only reuse what other goals built
+            final ArchiveIndex archiveIndex = ignoreVendorArchives
+                ? SharedArchiveIndex.getOrBuild(getPluginContext(), sourceFile, getLog(), budget)
+                : SharedArchiveIndex.get(getPluginContext(), sourceFile);
             final ContentIntrospector introspector = VendorFilter.createIntrospector(new MyIntrospectionListener(getLog()),
-                ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern);
+                ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern, archiveIndex);
             introspector.setSourceFile(sourceFile);
+            introspector.setNestedArchiveDepth(nestedArchiveDepth);
+            introspector.setDirectoryWalkParallelism(directoryWalkThreads);
+            introspector.setPrefetchDepth(prefetchDepth);
+            introspector.setPrefetchBufferSize(prefetchBufferSize);
+            introspector.setResourceBudget(budget);
             //
             if (contentListing.exists()) {
-                checkExpectedContent(introspector);
+                checkExpectedContent(introspector, budget);
+                if (fingerprint != null) {
+                    final CheckStatus status = new CheckStatus();
+                    status.setFingerprint(fingerprint);
+                    status.getWarnings().addAll(warnings);
+                    status.save(checkStatusFile);
+                }
             } else {
                 getLog().error(String.format("File '%s' does not exist. Use the generated one (below) as your initial version.", contentListing));
                 final Collection<ActualEntry> actualEntries = new ArrayList<ActualEntry>();
@@ -101,42 +121,90 @@ public class ContentCheckMojo extends AbstractArchiveContentMojo {
         }
     }
 
-    private void checkExpectedContent(ContentIntrospector introspector) throws IOException, MojoFailureException {
-        final ContentChecker contentChecker = new ContentChecker();
-        contentChecker.getEvents().addListener(new MyContentCheckerListener(getLog()));
-        contentChecker.setIntrospector(introspector);
-
-        getLog().info("Reading listing: " + contentListing);
-        final ApproverReport report = contentChecker.check(contentListing);
+    private void checkExpectedContent(ContentIntrospector introspector, ResourceBudget budget) throws IOException, MojoFailureException {
+        // caches of the daemon would skip the reads that limits guard
+        ApproverReport report = useDaemon && !budget.isLimited() ? checkInDaemon() : null;
+        if (report == null) {
+            final ContentChecker contentChecker = new ContentChecker();
+            contentChecker.getEvents().addListener(new MyContentCheckerListener(getLog()));
+            contentChecker.setIntrospector(introspector);
+            contentChecker.setDigestThreads(getDigestThreads());
+
+            final MavenCoordinatesCache coordinatesCache = MavenCoordinatesCache.load(coordinatesCacheFile);
+            contentChecker.setCoordinatesCache(coordinatesCache);
+
+            getLog().info("Reading listing: " + contentListing);
+            try {
+                report = contentChecker.check(contentListing);
+            } finally {
+                coordinatesCache.save(coordinatesCacheFile);
+            }
+        }
         generate(report.getActualEntries());
+        verify(report, sourceFile.getAbsolutePath());
+    }
 
-        // report missing entries
-        final Set<ApprovedEntry> missingEntries = report.getMissingEntries();
-        for (ApprovedEntry missing : missingEntries) {
-            log(failOnMissing, String.format(msgMissing, missing));
-        }
-        // report unexpected entries
-        final Set<ActualEntry> unexpectedEntries = report.getUnexpectedEntries();
-        for (ActualEntry actualEntry : unexpectedEntries) {
-            log(failOnUnexpected, String.format(msgUnexpected, actualEntry.getUri()));
-        }
-        // error summary
-        if (!missingEntries.isEmpty()) {
-            log(failOnMissing, "Missing: " + missingEntries.size() + " entries");
-        }
-        if (!unexpectedEntries.isEmpty()) {
-            log(failOnUnexpected, "Unexpected: " + unexpectedEntries.size() + " entries");
-        }
-        // fail as necessary, after reporting all detected problems
-        if (failOnMissing && ! missingEntries.isEmpty()) {
-            throw new MojoFailureException(missingEntries.size() + " expected entries are missing in " + sourceFile);
-        }
+    private String fingerprint() throws IOException {
+        return CheckStatus.fingerprint(sourceFile, contentListing,
+            pluginVersion,
+            contentListingGenerated.getAbsolutePath(),
+            checkFilesPattern,
+            String.valueOf(nestedArchiveDepth),
+            String.valueOf(ignoreVendorArchives),
+            vendorId,
+            manifestVendorEntry,
+            msgMissing,
+            msgUnexpected,
+            String.valueOf(failOnMissing),
+            String.valueOf(failOnUnexpected),
+            String.valueOf(failOnDuplicates),
+            String.valueOf(failOnConstraintViolation),
+            String.valueOf(maxEntrySize),
+            String.valueOf(maxTotalSize),
+            String.valueOf(maxEntryCount),
+            String.valueOf(maxNestingDepth),
+            String.valueOf(maxCompressionRatio));
+    }
 
-        if (failOnUnexpected && ! unexpectedEntries.isEmpty()) {
-            throw new MojoFailureException(unexpectedEntries.size() + " unexpected entries appear in " + sourceFile);
+    /**
+     * Replays the result of the last successful check when its inputs did not change.
+     */
+    private boolean isUpToDate(String fingerprint) throws IOException {
+        if (force) return false;
+        if (!contentListingGenerated.exists()) return false;
+        final CheckStatus status = CheckStatus.load(checkStatusFile);
+        if (status == null || !fingerprint.equals(status.getFingerprint())) return false;
+        for (String warning : status.getWarnings()) {
+            getLog().warn(warning);
         }
+        getLog().info("Source " + sourceFile.getAbsolutePath() + " is unchanged since the last successful check, skipping (use -Dcontentcheck.force to check again)");
+        return true;
+    }
 
-        getLog().info("Source " + sourceFile.getAbsolutePath() + " has valid content according to " + contentListing.getAbsolutePath());
+    /**
+     * @return the report, or null if the daemon is not available
+     */
+    private ApproverReport checkInDaemon() {
+        final File portFile = daemonPortFile == null ? CheckDaemon.DEFAULT_PORT_FILE : daemonPortFile;
+        final DaemonClient client = DaemonClient.connect(portFile);
+        if (client == null) {
+            getLog().info("No contentcheck daemon found via " + portFile + ", checking in-process");
+            return null;
+        }
+        try {
+            getLog().info(String.format("Checking %s against %s in daemon at port %d", sourceFile, contentListing, client.getPort()));
+            final CheckOptions options = new CheckOptions();
+            options.setNestedArchiveDepth(nestedArchiveDepth);
+            options.setDirectoryWalkThreads(directoryWalkThreads);
+            options.setPrefetchDepth(prefetchDepth);
+            options.setPrefetchBufferSize(prefetchBufferSize);
+            options.setDigestThreads(getDigestThreads());
+            options.setCoordinatesCacheFile(coordinatesCacheFile);
+            return client.check(sourceFile, contentListing, checkFilesPattern, ignoreVendorArchives, vendorId, manifestVendorEntry, options);
+        } catch (IOException e) {
+            getLog().warn("Contentcheck daemon failed, checking in-process: " + e.getMessage());
+            return null;
+        }
     }
 
     private void generate(Collection<ActualEntry> actualEntries) throws IOException {
@@ -145,12 +213,4 @@ public class ContentCheckMojo extends AbstractArchiveContentMojo {
             contentListingGenerated));
         ExpectUtils.generateListing(actualEntries, contentListingGenerated);
     }
-
-    private void log(boolean error, String message) {
-        if (error) {
-            getLog().error(message);
-        } else {
-            getLog().warn(message);
-        }
-    }
 }
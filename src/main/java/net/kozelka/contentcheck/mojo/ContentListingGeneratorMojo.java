@@ -3,12 +3,22 @@ package net.kozelka.contentcheck.mojo;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
 import net.kozelka.contentcheck.expect.impl.ContentCollector;
 import net.kozelka.contentcheck.expect.impl.VendorFilter;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
 import net.kozelka.contentcheck.expect.util.ExpectUtils;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.EntryDigester;
+import net.kozelka.contentcheck.introspection.MavenCoordinates;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesCache;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesResolver;
+import net.kozelka.contentcheck.util.ResourceBudget;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -24,7 +34,7 @@ import org.apache.maven.plugins.annotations.Parameter;
  */
 //TODO * @deprecated use goal <code>setup</code> (class {@link SetupMojo}) instead
 //TODO @Deprecated
-@Mojo(name = "generate")
+@Mojo(name = "generate", threadSafe = true)
 public class ContentListingGeneratorMojo extends AbstractArchiveContentMojo {
 
     /**
@@ -41,12 +51,36 @@ public class ContentListingGeneratorMojo extends AbstractArchiveContentMojo {
     @Parameter(defaultValue = "false", property = "overwriteExistingListing")
     boolean overwriteExistingListing;
 
+    /**
+     * Digest algorithm, like <code>SHA-256</code>, to pin each generated entry to its exact content (<code>path sha256=...</code>).
+     * Without it, entries are listed by path only.
+     * @since 1.0.6
+     */
+    @Parameter(property = "contentcheck.digestAlgorithm")
+    String digestAlgorithm;
+
+    /**
+     * List jars by Maven coordinates <code>groupId:artifactId</code> read from their embedded <code>pom.properties</code>,
+     * rather than by path; version upgrades then do not change the listing. Jars without coordinates are listed by path.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "false", property = "contentcheck.listCoordinates")
+    boolean listCoordinates;
+
     public void execute() throws MojoExecutionException, MojoFailureException {
         if(!overwriteExistingListing && contentListing.exists()) {
             //TODO: use alternate output file (like target/contentcheck-maven-plugin/approved-content.txt) and fail after finishing the generation (issue #15)
             throw new MojoFailureException(String.format("Content listing file '%s' already exists. Please set overwriteExistingListing property in plugin configuration or delete this listing file.", contentListing.getPath()));
         }
 
+        if (digestAlgorithm != null && digestAlgorithm.length() > 0) {
+            try {
+                EntryDigester.createDigest(digestAlgorithm);
+            } catch (IllegalArgumentException e) {
+                throw new MojoFailureException(e.getMessage(), e);
+            }
+        }
+
         try {
             if (ignoreVendorArchives) {
                 getLog().warn(String.format("Archives of vendor '%s', indicated by manifest entry '%s', will not be added to the list", vendorId, manifestVendorEntry));
@@ -64,13 +98,65 @@ public class ContentListingGeneratorMojo extends AbstractArchiveContentMojo {
 
     // TODO: following methods should be moved to/unified with ContentChecker class
     private List<ActualEntry> scanActualEntries() throws IOException {
+        final ResourceBudget budget = createResourceBudget();
+        final ArchiveIndex archiveIndex = ignoreVendorArchives
+            ? SharedArchiveIndex.getOrBuild(getPluginContext(), sourceFile, getLog(), budget)
+            : SharedArchiveIndex.get(getPluginContext(), sourceFile);
         final ContentIntrospector introspector = VendorFilter.createIntrospector(new MyIntrospectionListener(getLog()),
-            ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern);
+            ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern, archiveIndex);
         introspector.setSourceFile(sourceFile);
+        introspector.setNestedArchiveDepth(nestedArchiveDepth);
+        introspector.setDirectoryWalkParallelism(directoryWalkThreads);
+        introspector.setPrefetchDepth(prefetchDepth);
+        introspector.setPrefetchBufferSize(prefetchBufferSize);
+        introspector.setResourceBudget(budget);
         final List<ActualEntry> actualEntries = new ArrayList<ActualEntry>();
         final ContentIntrospector.Events collector = new ContentCollector(actualEntries);
         introspector.getEvents().addListener(collector);
-        introspector.walk();
+        EntryDigester digester = null;
+        if (digestAlgorithm != null && digestAlgorithm.length() > 0) {
+            final Collection<String> algorithms = Collections.singleton(digestAlgorithm);
+            digester = new EntryDigester(new EntryDigester.Selector() {
+                public Collection<String> getAlgorithms(String entryName) {
+                    return algorithms;
+                }
+            }, getDigestThreads());
+            introspector.addEntryContentConsumer(digester);
+        }
+        MavenCoordinatesCache coordinatesCache = null;
+        MavenCoordinatesResolver resolver = null;
+        if (listCoordinates) {
+            coordinatesCache = MavenCoordinatesCache.load(coordinatesCacheFile);
+            resolver = new MavenCoordinatesResolver(coordinatesCache, getDigestThreads());
+            introspector.addEntryContentConsumer(resolver);
+        }
+        Map<String, Map<String, String>> digests = null;
+        Map<String, MavenCoordinates> coordinates = null;
+        try {
+            introspector.walk();
+            if (digester != null) {
+                digests = digester.finish();
+            }
+            if (resolver != null) {
+                coordinates = resolver.finish();
+                coordinatesCache.save(coordinatesCacheFile);
+            }
+        } finally {
+            if (digester != null) {
+                digester.close();
+            }
+            if (resolver != null) {
+                resolver.close();
+            }
+        }
+        for (ActualEntry actualEntry : actualEntries) {
+            if (digests != null && digests.containsKey(actualEntry.getUri())) {
+                actualEntry.getDigests().putAll(digests.get(actualEntry.getUri()));
+            }
+            if (coordinates != null) {
+                ContentChecker.setCoordinates(actualEntry, coordinates.get(actualEntry.getUri()));
+            }
+        }
         return actualEntries;
     }
 
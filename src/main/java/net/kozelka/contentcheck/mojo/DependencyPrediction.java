@@ -0,0 +1,79 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Predicts the <code>WEB-INF/lib</code> entries of a war from the resolved dependencies of its project,
+ * following the default file name mapping of maven-war-plugin: <code>artifactId-version[-classifier].extension</code>.
+ * Optional dependencies, and those outside the compile and runtime scopes, are not packaged.
+ *
+ * @author Petr Kozelka
+ */
+final class DependencyPrediction {
+    static final String WEB_INF_LIB = "WEB-INF/lib/";
+
+    private DependencyPrediction() {}
+
+    /**
+     * @param checkFilesPattern only entries matching this pattern are predicted
+     * @param vendorId with vendor archives ignored, the groupId of the dependencies to leave out; null to keep all
+     * @param contentFiles receives the file of each predicted entry, which has the same content as the packaged one
+     * @return the predicted entries, with their Maven coordinates and size
+     */
+    static List<ActualEntry> predict(Collection<Artifact> artifacts, String checkFilesPattern, String vendorId, Map<String, File> contentFiles) {
+        final String absolutePattern = "/" + checkFilesPattern;
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        for (Artifact artifact : artifacts) {
+            if (!isPackaged(artifact)) continue;
+            // without reading the manifest, the groupId is the best guess of the vendor
+            if (vendorId != null && vendorId.equals(artifact.getGroupId())) continue;
+            final String uri = WEB_INF_LIB + fileName(artifact);
+            if (!SelectorUtils.matchPath(absolutePattern, "/" + uri)) continue;
+            final ActualEntry entry = new ActualEntry();
+            entry.setUri(uri);
+            entry.setGroupId(artifact.getGroupId());
+            entry.setArtifactId(artifact.getArtifactId());
+            entry.setVersion(artifact.getBaseVersion());
+            final File file = artifact.getFile();
+            if (file != null && file.isFile()) {
+                entry.setSize(file.length());
+                contentFiles.put(uri, file);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * @return true if the rule can match a predicted entry
+     */
+    static boolean isPredictable(ApprovedEntry approved) {
+        return approved.hasCoordinates() || SelectorUtils.matchPatternStart(approved.getUri(), WEB_INF_LIB);
+    }
+
+    static boolean isPackaged(Artifact artifact) {
+        if (artifact.isOptional()) return false;
+        final String scope = artifact.getScope();
+        if (scope != null && !scope.equals(Artifact.SCOPE_COMPILE) && !scope.equals(Artifact.SCOPE_RUNTIME)) return false;
+        // wars are overlays, poms have no content
+        return "jar".equals(artifact.getArtifactHandler().getExtension());
+    }
+
+    static String fileName(Artifact artifact) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(artifact.getArtifactId()).append('-').append(artifact.getBaseVersion());
+        if (artifact.hasClassifier()) {
+            sb.append('-').append(artifact.getClassifier());
+        }
+        sb.append('.').append(artifact.getArtifactHandler().getExtension());
+        return sb.toString();
+    }
+}
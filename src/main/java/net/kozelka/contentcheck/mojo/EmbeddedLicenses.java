@@ -0,0 +1,225 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import net.kozelka.contentcheck.introspection.AsyncEntryContentConsumer;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.EntryMetadata;
+import org.apache.maven.model.License;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Collects licenses declared inside nested jars, from the content the introspector streams anyway.
+ * Each jar is parsed by a worker thread from chunks received from the pipeline, so that no jar is held in memory.
+ * Sources, in order of precedence:
+ * <ol>
+ *     <li>licenses of embedded <code>META-INF/maven/&#42;&#42;/pom.xml</code> descriptors</li>
+ *     <li><code>Bundle-License</code> manifest header</li>
+ *     <li>first line of <code>META-INF/LICENSE*</code> file</li>
+ * </ol>
+ * No repository access is needed.
+ *
+ * @author Petr Kozelka
+ */
+class EmbeddedLicenses extends AsyncEntryContentConsumer {
+    static final String BUNDLE_LICENSE = "Bundle-License";
+    private static final int MAX_LICENSE_NAME_LENGTH = 120;
+
+    private final List<LicenseReader> readers = new ArrayList<LicenseReader>();
+
+    /**
+     * @param threads number of worker threads
+     */
+    EmbeddedLicenses(int threads) {
+        super("contentcheck-licenses", "license readers", threads);
+    }
+
+    /**
+     * Registers itself as a content consumer of given introspector.
+     */
+    static EmbeddedLicenses install(ContentIntrospector introspector, int threads) {
+        final EmbeddedLicenses embeddedLicenses = new EmbeddedLicenses(threads);
+        introspector.addEntryContentConsumer(embeddedLicenses);
+        return embeddedLicenses;
+    }
+
+    @Override
+    protected EntryReader createReader(String entryName, EntryMetadata metadata) {
+        if (!entryName.endsWith(".jar")) return null;
+        final LicenseReader reader = new LicenseReader(entryName);
+        readers.add(reader);
+        return reader;
+    }
+
+    /**
+     * Waits until all started jars are read, and stops the workers.
+     * @return licenses indexed by entry path; entries without any license information, or skipped by the content filter, are absent
+     */
+    Map<String, List<License>> finish() throws InterruptedIOException {
+        awaitReaders();
+        final Map<String, List<License>> licensesByEntry = new HashMap<String, List<License>>();
+        for (LicenseReader reader : readers) {
+            if (reader.isProcessed() && reader.licenses != null && !reader.licenses.isEmpty()) {
+                licensesByEntry.put(reader.entryName, reader.licenses);
+            }
+        }
+        return licensesByEntry;
+    }
+
+    /**
+     * @param jarStream content of a jar; it is not closed
+     * @return licenses declared in the jar, possibly empty
+     */
+    static List<License> readLicenses(InputStream jarStream) throws IOException {
+        final Map<String, License> pomLicenses = new LinkedHashMap<String, License>();
+        License licenseFileLicense = null;
+        final JarInputStream jis = new JarInputStream(jarStream);
+        JarEntry entry;
+        while ((entry = jis.getNextJarEntry()) != null) {
+            final String name = entry.getName();
+            if (SelectorUtils.matchPath("META-INF/maven/**/pom.xml", name)) {
+                for (License license : readPomLicenses(jis)) {
+                    if (!pomLicenses.containsKey(license.getName())) {
+                        pomLicenses.put(license.getName(), license);
+                    }
+                }
+            } else if (licenseFileLicense == null && name.startsWith("META-INF/LICENSE") && !entry.isDirectory()) {
+                licenseFileLicense = readLicenseFile(jis);
+            }
+        }
+        if (!pomLicenses.isEmpty()) {
+            return new ArrayList<License>(pomLicenses.values());
+        }
+        final List<License> bundleLicenses = parseBundleLicense(jis.getManifest());
+        if (!bundleLicenses.isEmpty()) {
+            return bundleLicenses;
+        }
+        final List<License> result = new ArrayList<License>();
+        if (licenseFileLicense != null) {
+            result.add(licenseFileLicense);
+        }
+        return result;
+    }
+
+    /**
+     * @param pomStream the descriptor; it is not closed
+     */
+    @SuppressWarnings("unchecked")
+    private static List<License> readPomLicenses(InputStream pomStream) {
+        try {
+            final InputStream unclosable = new FilterInputStream(pomStream) {
+                @Override
+                public void close() {
+                }
+            };
+            final Model model = new MavenXpp3Reader().read(unclosable, false);
+            final List<License> licenses = model.getLicenses();
+            return licenses == null ? new ArrayList<License>() : licenses;
+        } catch (IOException e) {
+            return new ArrayList<License>();
+        } catch (XmlPullParserException e) {
+            // broken embedded descriptor is not our business
+            return new ArrayList<License>();
+        }
+    }
+
+    /**
+     * Takes the first non-blank line as the license name, which is what most license files start with.
+     */
+    private static License readLicenseFile(InputStream licenseStream) throws IOException {
+        final byte[] buf = new byte[4096];
+        int len = 0;
+        int n;
+        while (len < buf.length && (n = licenseStream.read(buf, len, buf.length - len)) > 0) {
+            len += n;
+        }
+        for (String line : new String(buf, 0, len, "UTF-8").split("\r?\n")) {
+            final String title = line.trim();
+            if (title.length() == 0) continue;
+            final License license = new License();
+            license.setName(title.length() > MAX_LICENSE_NAME_LENGTH ? title.substring(0, MAX_LICENSE_NAME_LENGTH) : title);
+            return license;
+        }
+        return null;
+    }
+
+    /**
+     * Parses OSGi <code>Bundle-License</code> header, like <code>Apache-2.0;link="http://www.apache.org/licenses/LICENSE-2.0"</code>.
+     */
+    static List<License> parseBundleLicense(Manifest manifest) {
+        final List<License> licenses = new ArrayList<License>();
+        if (manifest == null) return licenses;
+        final String header = manifest.getMainAttributes().getValue(BUNDLE_LICENSE);
+        if (header == null || header.trim().length() == 0 || header.trim().equals("<<EXTERNAL>>")) return licenses;
+        for (String clause : splitOutsideQuotes(header, ',')) {
+            final List<String> parts = splitOutsideQuotes(clause, ';');
+            final String name = unquote(parts.get(0));
+            if (name.length() == 0) continue;
+            final License license = new License();
+            license.setName(name);
+            for (String attr : parts.subList(1, parts.size())) {
+                final int eq = attr.indexOf('=');
+                if (eq > 0 && attr.substring(0, eq).trim().equals("link")) {
+                    license.setUrl(unquote(attr.substring(eq + 1)));
+                }
+            }
+            if (license.getUrl() == null && name.contains("://")) {
+                license.setUrl(name);
+            }
+            licenses.add(license);
+        }
+        return licenses;
+    }
+
+    private static List<String> splitOutsideQuotes(String s, char separator) {
+        final List<String> parts = new ArrayList<String>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == separator && !quoted) {
+                parts.add(s.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(s.substring(start));
+        return parts;
+    }
+
+    private static String unquote(String s) {
+        final String t = s.trim();
+        if (t.length() >= 2 && t.startsWith("\"") && t.endsWith("\"")) {
+            return t.substring(1, t.length() - 1);
+        }
+        return t;
+    }
+
+    private static class LicenseReader extends EntryReader {
+        private final String entryName;
+        private volatile List<License> licenses;
+
+        LicenseReader(String entryName) {
+            this.entryName = entryName;
+        }
+
+        @Override
+        protected void read(InputStream content) throws IOException {
+            licenses = readLicenses(content);
+        }
+    }
+}
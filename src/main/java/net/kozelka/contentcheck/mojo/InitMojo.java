@@ -16,6 +16,7 @@ import net.kozelka.contentcheck.expect.impl.ContentCollector;
 import net.kozelka.contentcheck.expect.impl.VendorFilter;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
 import net.kozelka.contentcheck.expect.util.ExpectUtils;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
 import org.apache.maven.model.Build;
 import org.apache.maven.plugin.AbstractMojo;
@@ -42,7 +43,7 @@ import org.codehaus.plexus.util.cli.StreamConsumer;
  *
  * @since 1.0.5
  */
-@Mojo(name = "init")
+@Mojo(name = "init", threadSafe = true)
 public class InitMojo extends AbstractMojo {
 
     @Parameter(defaultValue = "${project.build.directory}/contentcheck-maven-plugin")
@@ -66,7 +67,11 @@ public class InitMojo extends AbstractMojo {
         try {
             // report class overlaps / conflicts
             final ClassConflictAnalyzer ccd = new ClassConflictAnalyzer();
-            final List<ArchiveInfo> archives = ArchiveLoader.loadWar(sourceFile);
+            final ArchiveIndex archiveIndex = SharedArchiveIndex.getOrBuild(getPluginContext(), sourceFile, getLog());
+            if (archiveIndex == null) {
+                throw new FileNotFoundException(sourceFile.getPath());
+            }
+            final List<ArchiveInfo> archives = ArchiveLoader.loadWebapp(archiveIndex);
             final ClassConflictReport report = ccd.analyze(archives);
             final StreamConsumer output = new StreamConsumer() {
                 public void consumeLine(String line) {
@@ -83,7 +88,7 @@ public class InitMojo extends AbstractMojo {
             // list source entries into `approved-content.txt`
             outputDirectory.mkdirs();
             final File contentListing = new File(outputDirectory, "approved-content.txt");
-            final List<ActualEntry> sourceEntries = scanActualEntries(sourceFile);
+            final List<ActualEntry> sourceEntries = scanActualEntries(archiveIndex);
             getLog().info(String.format("Generated %d entries.", sourceEntries.size()));
 //            getLog().info(String.format("The source contains %d entries, but only %d matches the plugin configuration criteria.", count, sourceEntries.size()));
             ExpectUtils.generateListing(sourceEntries, contentListing);
@@ -102,12 +107,11 @@ public class InitMojo extends AbstractMojo {
     }
 
     // TODO: following methods should be moved to/unified with ContentChecker class
-    private List<ActualEntry> scanActualEntries(File sourceFile) throws IOException {
+    private List<ActualEntry> scanActualEntries(ArchiveIndex archiveIndex) throws IOException {
 //        getLog().warn(String.format("Archives of vendor '%s', indicated by manifest entry '%s', will not be added to the list", vendorId, manifestVendorEntry));
         final ContentIntrospector introspector = VendorFilter.createIntrospector(new MyIntrospectionListener(getLog()),
-            true, project.getGroupId(), VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME, "**/*.jar");
-        getLog().info("Scanning " + sourceFile);
-        introspector.setSourceFile(sourceFile);
+            true, project.getGroupId(), VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME, "**/*.jar", archiveIndex);
+        getLog().info("Scanning " + archiveIndex.getSourceFile());
         introspector.getEvents().addListener(new MyIntrospectionListener(getLog()));
         final List<ActualEntry> actualEntries = new ArrayList<ActualEntry>();
         final ContentIntrospector.Events collector = new ContentCollector(actualEntries);
@@ -0,0 +1,109 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.License;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Persistent cache of licenses declared in dependency POMs, keyed by <code>groupId:artifactId:version</code>.
+ * Only released versions are cached, because their POMs never change.
+ * The cache is safe for concurrent use.
+ *
+ * @author Petr Kozelka
+ */
+class LicenseCache {
+    private final File cacheFile;
+    private final ConcurrentMap<String, List<License>> licensesByGav = new ConcurrentHashMap<String, List<License>>();
+    private volatile boolean modified;
+
+    LicenseCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    static String gav(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+    }
+
+    static boolean isCacheable(Artifact artifact) {
+        return !artifact.isSnapshot();
+    }
+
+    /**
+     * Loads the cache file, if it exists. Entries already in memory are kept.
+     */
+    @SuppressWarnings("unchecked")
+    void load() throws IOException {
+        if (cacheFile == null || !cacheFile.isFile()) return;
+        final Map<String, List<Map<String, String>>> json = new ObjectMapper().readValue(cacheFile, Map.class);
+        for (Map.Entry<String, List<Map<String, String>>> entry : json.entrySet()) {
+            final List<License> licenses = new ArrayList<License>();
+            for (Map<String, String> jsonLicense : entry.getValue()) {
+                final License license = new License();
+                license.setName(jsonLicense.get("name"));
+                license.setUrl(jsonLicense.get("url"));
+                licenses.add(license);
+            }
+            licensesByGav.putIfAbsent(entry.getKey(), licenses);
+        }
+    }
+
+    /**
+     * @return cached licenses (possibly empty), or null if the artifact is not cached
+     */
+    List<License> get(Artifact artifact) {
+        if (!isCacheable(artifact)) return null;
+        return licensesByGav.get(gav(artifact));
+    }
+
+    void put(Artifact artifact, List<License> licenses) {
+        if (!isCacheable(artifact)) return;
+        licensesByGav.put(gav(artifact), licenses == null ? new ArrayList<License>() : licenses);
+        modified = true;
+    }
+
+    int size() {
+        return licensesByGav.size();
+    }
+
+    /**
+     * Writes the cache file, if anything was added since loading.
+     */
+    void save() throws IOException {
+        if (cacheFile == null || !modified) return;
+        // keep what other modules of a parallel build saved meanwhile
+        load();
+        final Map<String, List<Map<String, String>>> json = new TreeMap<String, List<Map<String, String>>>();
+        for (Map.Entry<String, List<License>> entry : licensesByGav.entrySet()) {
+            final List<Map<String, String>> jsonLicenses = new ArrayList<Map<String, String>>();
+            for (License license : entry.getValue()) {
+                final Map<String, String> jsonLicense = new LinkedHashMap<String, String>();
+                jsonLicense.put("name", license.getName());
+                jsonLicense.put("url", license.getUrl());
+                jsonLicenses.add(jsonLicense);
+            }
+            json.put(entry.getKey(), jsonLicenses);
+        }
+        final File cacheDir = cacheFile.getAbsoluteFile().getParentFile();
+        cacheDir.mkdirs();
+        // write aside and rename, so that concurrent builds never read a half-written file
+        final File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+        new ObjectMapper().writeValue(tempFile, json);
+        if (!tempFile.renameTo(cacheFile)) {
+            cacheFile.delete();
+            if (!tempFile.renameTo(cacheFile)) {
+                tempFile.delete();
+                throw new IOException("Cannot write " + cacheFile);
+            }
+        }
+        modified = false;
+    }
+}
@@ -0,0 +1,155 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.apache.maven.model.License;
+
+/**
+ * Compiled form of the license mapping file, matching jar file names against its keys.
+ * <ul>
+ *     <li>literal key - matches exactly that file name</li>
+ *     <li>key with <code>*</code> or <code>?</code> - glob, like <code>spring-*.jar</code></li>
+ *     <li>key starting with <code>regex:</code> - regular expression matching the whole file name</li>
+ * </ul>
+ * Literal keys take precedence; among patterns, the first declared wins.
+ *
+ * @author Petr Kozelka
+ */
+class LicenseMapping {
+    static final String REGEX_PREFIX = "regex:";
+    private static final Character NO_PREFIX = null;
+
+    private final Map<String, List<License>> literals = new HashMap<String, List<License>>();
+    /**
+     * Patterns bucketed by the first character of their literal prefix, in declaration order.
+     */
+    private final Map<Character, List<MappingPattern>> patternsByFirstChar = new HashMap<Character, List<MappingPattern>>();
+
+    /**
+     * @param licensesByKey licenses indexed by mapping keys, in declaration order
+     */
+    LicenseMapping(Map<String, List<License>> licensesByKey) {
+        int index = 0;
+        for (Map.Entry<String, List<License>> entry : licensesByKey.entrySet()) {
+            final String key = entry.getKey();
+            final MappingPattern pattern = MappingPattern.compile(key, index++, entry.getValue());
+            if (pattern == null) {
+                literals.put(key, entry.getValue());
+                continue;
+            }
+            final Character firstChar = pattern.prefix.length() == 0 ? NO_PREFIX : Character.valueOf(pattern.prefix.charAt(0));
+            List<MappingPattern> bucket = patternsByFirstChar.get(firstChar);
+            if (bucket == null) {
+                bucket = new ArrayList<MappingPattern>();
+                patternsByFirstChar.put(firstChar, bucket);
+            }
+            bucket.add(pattern);
+        }
+    }
+
+    /**
+     * @param jarName file name of the jar
+     * @return licenses mapped to the jar, or null if there is no mapping
+     */
+    List<License> get(String jarName) {
+        final List<License> licenses = literals.get(jarName);
+        if (licenses != null || patternsByFirstChar.isEmpty()) return licenses;
+        MappingPattern best = null;
+        if (jarName.length() > 0) {
+            best = firstMatch(patternsByFirstChar.get(Character.valueOf(jarName.charAt(0))), jarName, best);
+        }
+        best = firstMatch(patternsByFirstChar.get(NO_PREFIX), jarName, best);
+        return best == null ? null : best.licenses;
+    }
+
+    private static MappingPattern firstMatch(List<MappingPattern> bucket, String jarName, MappingPattern best) {
+        if (bucket == null) return best;
+        for (MappingPattern pattern : bucket) {
+            if (best != null && best.index < pattern.index) break;
+            if (jarName.startsWith(pattern.prefix) && pattern.regex.matcher(jarName).matches()) {
+                return pattern;
+            }
+        }
+        return best;
+    }
+
+    private static class MappingPattern {
+        final int index;
+        final String prefix;
+        final Pattern regex;
+        final List<License> licenses;
+
+        MappingPattern(int index, String prefix, Pattern regex, List<License> licenses) {
+            this.index = index;
+            this.prefix = prefix;
+            this.regex = regex;
+            this.licenses = licenses;
+        }
+
+        /**
+         * @return compiled pattern, or null if the key is a literal
+         */
+        static MappingPattern compile(String key, int index, List<License> licenses) {
+            if (key.startsWith(REGEX_PREFIX)) {
+                final String regex = key.substring(REGEX_PREFIX.length());
+                return new MappingPattern(index, literalPrefix(regex), Pattern.compile(regex), licenses);
+            }
+            if (key.indexOf('*') < 0 && key.indexOf('?') < 0) return null;
+            final StringBuilder regex = new StringBuilder();
+            final StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < key.length(); i++) {
+                final char c = key.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            final int firstWildcard = Math.min(indexOrLength(key, '*'), indexOrLength(key, '?'));
+            return new MappingPattern(index, key.substring(0, firstWildcard), Pattern.compile(regex.toString()), licenses);
+        }
+
+        private static int indexOrLength(String s, char c) {
+            final int i = s.indexOf(c);
+            return i < 0 ? s.length() : i;
+        }
+
+        /**
+         * @return the leading part of the regular expression that can only match itself
+         */
+        private static String literalPrefix(String regex) {
+            if (regex.indexOf('|') >= 0) return "";
+            final StringBuilder sb = new StringBuilder();
+            int i = 0;
+            while (i < regex.length()) {
+                final char c = regex.charAt(i);
+                final int next;
+                final char literal;
+                if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+                    literal = c;
+                    next = i + 1;
+                } else if (c == '\\' && i + 1 < regex.length() && regex.charAt(i + 1) == '.') {
+                    literal = '.';
+                    next = i + 2;
+                } else {
+                    break;
+                }
+                // a quantifier makes the character optional
+                if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) break;
+                sb.append(literal);
+                i = next;
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -4,10 +4,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.License;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.plexus.util.FileUtils;
@@ -16,10 +18,13 @@ import org.codehaus.plexus.util.FileUtils;
  * @author Petr Kozelka
  */
 public class LicenseShow {
+    /**
+     * @return licenses indexed by the mapping keys, in declaration order; see {@link LicenseMapping} for key syntax
+     */
     static Map<String, List<License>> parseLicenseMappingFile(File licenseMappingFile) throws IOException {
         final ObjectMapper objectMapper = new ObjectMapper();
         final Map<String, Object> json = objectMapper.readValue(licenseMappingFile, Map.class);
-        final Map <String, List<License>> fileToLicenseMapping = new HashMap<String, List<License>>();
+        final Map <String, List<License>> fileToLicenseMapping = new LinkedHashMap<String, List<License>>();
         final List<Map<String, Object>> jsonLicenses = (List<Map<String, Object>>) json.get("licenses");
         //construct model objects from JSON
         for (Map<String, Object> jsonLicense : jsonLicenses) {
@@ -34,6 +39,37 @@ public class LicenseShow {
         return fileToLicenseMapping;
     }
 
+    /**
+     * Registers all file names under which the artifact's jar can appear in an archive:
+     * with base version and resolved (timestamped SNAPSHOT) version, including the classifier if any.
+     * Names that are already registered are left untouched, so that the first artifact wins.
+     * @param licensesByJarName the index to be filled
+     * @param artifact the dependency artifact
+     * @param licenses licenses declared in the artifact's POM
+     */
+    static void indexJarNames(Map<String, List<License>> licensesByJarName, Artifact artifact, List<License> licenses) {
+        final Set<String> versions = new LinkedHashSet<String>();
+        versions.add(artifact.getBaseVersion());
+        versions.add(artifact.getVersion());
+        final String classifier = artifact.getClassifier();
+        final String suffix = (classifier == null || classifier.length() == 0 ? "" : "-" + classifier) + ".jar";
+        for (String version : versions) {
+            if (version == null) continue;
+            final String jarName = artifact.getArtifactId() + "-" + version + suffix;
+            if (!licensesByJarName.containsKey(jarName)) {
+                licensesByJarName.put(jarName, licenses);
+            }
+        }
+    }
+
+    /**
+     * @param uri entry path within an archive, always using '/' as separator
+     * @return the file name part of the path
+     */
+    static String jarName(String uri) {
+        return uri.substring(uri.lastIndexOf('/') + 1);
+    }
+
     interface LicenseOutput {
         void output(final Map<String, List<License>> licensesPerFile) throws IOException;
     }
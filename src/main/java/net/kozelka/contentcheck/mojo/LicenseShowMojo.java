@@ -4,11 +4,19 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.PatternSyntaxException;
 import net.kozelka.contentcheck.expect.impl.ContentCollector;
 import net.kozelka.contentcheck.expect.impl.VendorFilter;
 import net.kozelka.contentcheck.expect.model.ActualEntry;
@@ -42,14 +50,13 @@ import org.apache.maven.shared.dependency.tree.DependencyTreeBuilderException;
 import org.apache.maven.shared.jar.classes.JarClassesAnalysis;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Shows license information for selected source entries. By default, the information is parsed from dependency's POM,
  * but the project may define additional mapping between files in output archive and licenses.
  * @since 1.0.1
  */
-@Mojo(name = "show-licenses")
+@Mojo(name = "show-licenses", threadSafe = true)
 public class LicenseShowMojo extends AbstractArchiveContentMojo{
     /**
      * The license mapping file, in JSON format.
@@ -83,9 +90,19 @@ public class LicenseShowMojo extends AbstractArchiveContentMojo{
      *               "jsr166x-1.0.jar",
      *               "xyz.jar"
      *           ]
+     *       },
+     *       {
+     *           "name"  : "The Apache Software License, Version 2.0",
+     *           "url"   : "http://www.apache.org/licenses/LICENSE-2.0.txt",
+     *           "files" : [
+     *               "spring-*.jar",
+     *               "regex:commons-(lang|io)-[0-9.]+\\.jar"
+     *           ]
      *       }
      *    ]
      * }</code></pre>
+     * File names may be globs (with <code>*</code> and <code>?</code>) or regular expressions (prefixed with <code>regex:</code>).
+     * Exact file names take precedence over patterns; among patterns, the first one declared wins.
      */
     @Parameter(defaultValue = "src/main/license.mapping.json", property = "licenseMappingFile")
     File licenseMappingFile;
@@ -110,6 +127,37 @@ public class LicenseShowMojo extends AbstractArchiveContentMojo{
     @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}.zip")
     File defaultBundleForPOMPacking;
 
+    /**
+     * How many dependency POMs to resolve in parallel.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "4", property = "contentcheck.resolverThreads")
+    int resolverThreads;
+
+    /**
+     * Persistent cache of licenses declared in POMs of released dependencies.
+     * Set to empty value to disable the cache.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "${settings.localRepository}/.cache/contentcheck/licenses.json", property = "contentcheck.licenseCacheFile")
+    File licenseCacheFile;
+
+    /**
+     * If true, licenses are also read from metadata embedded in the jars - Maven descriptors under <code>META-INF/maven</code>,
+     * <code>Bundle-License</code> manifest header and <code>META-INF/LICENSE*</code> files.
+     * These are used for jars whose license is not known from dependencies.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "true", property = "contentcheck.embeddedLicenses")
+    boolean embeddedLicenses;
+
+    /**
+     * If false, dependency POMs are not resolved at all, and licenses only come from embedded metadata and the license mapping file.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "true", property = "contentcheck.dependencyLicenses")
+    boolean dependencyLicenses;
+
     /**
      * Artifact collector component.
      */
@@ -192,55 +240,69 @@ public class LicenseShowMojo extends AbstractArchiveContentMojo{
             return;
         }
 
-        final List<MavenProject> mavenProjectForDependencies = getMavenProjectForDependencies();
+        final Map<String, List<License>> licensesByJarName;
+        if (dependencyLicenses) {
+            licensesByJarName = getLicensesForDependencies();
+        } else {
+            licensesByJarName = Collections.emptyMap();
+        }
 
         try {
             final ContentIntrospector introspector = VendorFilter.createIntrospector(new MyIntrospectionListener(getLog()),
-                ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern);
+                ignoreVendorArchives, vendorId, manifestVendorEntry, checkFilesPattern, SharedArchiveIndex.get(getPluginContext(), src));
             final Set<ActualEntry> archiveEntries = new LinkedHashSet<ActualEntry>();
             introspector.setSourceFile(src);
+            introspector.setNestedArchiveDepth(nestedArchiveDepth);
+            introspector.setDirectoryWalkParallelism(directoryWalkThreads);
+            introspector.setPrefetchDepth(prefetchDepth);
+            introspector.setPrefetchBufferSize(prefetchBufferSize);
+            introspector.setResourceBudget(createResourceBudget());
+            final EmbeddedLicenses embedded = embeddedLicenses ? EmbeddedLicenses.install(introspector, getDigestThreads()) : null;
             //TODO: instead of collecting, put the dependency comparison right inside
             final ContentCollector collector = new ContentCollector(archiveEntries);
             introspector.getEvents().addListener(collector);
-            introspector.walk();
+            final Map<String, List<License>> embeddedLicensesByEntry;
+            try {
+                introspector.walk();
+                embeddedLicensesByEntry = embedded == null ? null : embedded.finish();
+            } finally {
+                if (embedded != null) {
+                    embedded.close();
+                }
+            }
             introspector.getEvents().removeListener(collector);
 
             final Map<String, List<License>> entries = new LinkedHashMap<String, List<License>>();
 
-            final Map<String, List<License>> additionalLicenseInformation = new LinkedHashMap<String, List<License>>();
+            LicenseMapping additionalLicenseInformation = new LicenseMapping(Collections.<String, List<License>>emptyMap());
             if(licenseMappingFile != null && licenseMappingFile.exists()) {
                 //read additional license information
                 getLog().info(String.format("Reading license mapping file %s", licenseMappingFile.getAbsolutePath()));
                 try {
-                    additionalLicenseInformation.putAll(LicenseShow.parseLicenseMappingFile(licenseMappingFile));
+                    additionalLicenseInformation = new LicenseMapping(LicenseShow.parseLicenseMappingFile(licenseMappingFile));
                 } catch (JsonParseException e) {
                     throw new MojoFailureException(String.format("Cannot parse JSON from file %s the content of the file is not well formed JSON.", licenseMappingFile),e);
                 } catch (JsonMappingException e) {
                     throw new MojoFailureException(String.format("Cannot deserialize JSON from file %s", licenseMappingFile),e);
                 } catch (IOException e) {
                     throw new MojoFailureException(e.getMessage(), e);
+                } catch (PatternSyntaxException e) {
+                    throw new MojoFailureException(String.format("Invalid pattern in file %s: %s", licenseMappingFile, e.getMessage()), e);
                 }
 
             }
 
             getLog().info("Comparing the archive content with Maven project artifacts");
             for(ActualEntry archiveEntry : archiveEntries) {
-                List<License> licenses = null; //these licenses will be associated with the given archive entry
-
-                for (MavenProject mavenProject : mavenProjectForDependencies) {
-                    mavenProject.getGroupId();
-                    final String artifactId = mavenProject.getArtifactId();
-                    final String version = mavenProject.getVersion();
-                    final String jarName = artifactId + "-" + version + ".jar"; //guess jar name
-                    if(archiveEntry.getUri().endsWith(jarName)) {
-                        @SuppressWarnings("unchecked")
-                        final List<License> _licenses = mavenProject.getLicenses();
-                        licenses = _licenses == null || _licenses.isEmpty() ? null : _licenses  ;
-                        break;
-                    }
+                final String jarName = LicenseShow.jarName(archiveEntry.getUri());
+                List<License> _licenses = licensesByJarName.get(jarName);
+                if ((_licenses == null || _licenses.isEmpty()) && embeddedLicensesByEntry != null) {
+                    _licenses = embeddedLicensesByEntry.get(archiveEntry.getUri());
                 }
+                //these licenses will be associated with the given archive entry
+                final List<License> licenses = _licenses == null || _licenses.isEmpty() ? null : _licenses;
 
-                final List<License> licensesMappingFile = additionalLicenseInformation.get(FileUtils.filename(archiveEntry.getUri()));
+                final List<License> licensesMappingFile = additionalLicenseInformation.get(jarName);
 
                 if(licenses == null && licensesMappingFile == null) {//misising license information
                     getLog().debug(String.format("Cannot resolve license information for archive entry %s neither from the POM file nor the file for license mapping", archiveEntry));
@@ -271,7 +333,11 @@ public class LicenseShowMojo extends AbstractArchiveContentMojo{
         }
     }
 
-    private List<MavenProject> getMavenProjectForDependencies() throws MojoExecutionException, MojoFailureException {
+    /**
+     * Resolves dependency POMs in parallel, unless their licenses are already cached.
+     * @return licenses of dependencies, indexed by all the jar file names they can appear under
+     */
+    private Map<String, List<License>> getLicensesForDependencies() throws MojoExecutionException, MojoFailureException {
         final DependencyNode dependencyTreeNode = resolveProject();
         final Dependencies dependencies = new Dependencies( project, dependencyTreeNode, classesAnalyzer );
         final Log log = getLog();
@@ -279,17 +345,58 @@ public class LicenseShowMojo extends AbstractArchiveContentMojo{
         final Artifact projectArtifact = project.getArtifact();
         log.info(String.format("Resolving project %s:%s:%s dependencies", projectArtifact.getGroupId(), projectArtifact.getArtifactId(), projectArtifact.getVersion()));
         final List<Artifact> allDependencies = dependencies.getAllDependencies();
-        final List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
-        for (Artifact artifact : allDependencies) {
-            log.debug(String.format("Resolving project information for %s:%s:%s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
-            try {
-                final MavenProject mavenProject = repoUtils.getMavenProjectFromRepository(artifact);
-                mavenProjects.add(mavenProject);
-            } catch (ProjectBuildingException e) {
-                throw new MojoFailureException(String.format("Cannot get project information for artifact %s:%s:%s from repository",artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()), e);
+
+        final LicenseCache licenseCache = new LicenseCache(licenseCacheFile);
+        try {
+            licenseCache.load();
+        } catch (IOException e) {
+            log.warn(String.format("Cannot read license cache %s, ignoring it: %s", licenseCacheFile, e.getMessage()));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, resolverThreads));
+        final Map<String, List<License>> licensesByJarName = new HashMap<String, List<License>>();
+        int cached = 0;
+        try {
+            final List<Future<List<License>>> futures = new ArrayList<Future<List<License>>>(allDependencies.size());
+            for (final Artifact artifact : allDependencies) {
+                final List<License> cachedLicenses = licenseCache.get(artifact);
+                if (cachedLicenses != null) {
+                    cached++;
+                    futures.add(new CompletedFuture<List<License>>(cachedLicenses));
+                    continue;
+                }
+                futures.add(executor.submit(new Callable<List<License>>() {
+                    public List<License> call() throws ProjectBuildingException {
+                        log.debug(String.format("Resolving project information for %s:%s:%s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
+                        final MavenProject mavenProject = repoUtils.getMavenProjectFromRepository(artifact);
+                        @SuppressWarnings("unchecked")
+                        final List<License> licenses = mavenProject.getLicenses();
+                        licenseCache.put(artifact, licenses);
+                        return licenses;
+                    }
+                }));
+            }
+            for (int i = 0; i < allDependencies.size(); i++) {
+                final Artifact artifact = allDependencies.get(i);
+                try {
+                    LicenseShow.indexJarNames(licensesByJarName, artifact, futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new MojoFailureException(String.format("Cannot get project information for artifact %s:%s:%s from repository",artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()), e.getCause());
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while resolving dependencies", e);
+        } finally {
+            executor.shutdownNow();
         }
-        return mavenProjects;
+        log.info(String.format("Licenses of %d dependencies taken from cache, %d resolved", cached, allDependencies.size() - cached));
+        try {
+            licenseCache.save();
+        } catch (IOException e) {
+            log.warn(String.format("Cannot write license cache %s: %s", licenseCacheFile, e.getMessage()));
+        }
+        return licensesByJarName;
     }
 
     /**
@@ -362,4 +469,35 @@ public class LicenseShowMojo extends AbstractArchiveContentMojo{
             }
         }
     }
+
+    /**
+     * Future for a value that is known upfront.
+     */
+    private static class CompletedFuture<V> implements Future<V> {
+        private final V value;
+
+        CompletedFuture(V value) {
+            this.value = value;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+            return true;
+        }
+
+        public V get() {
+            return value;
+        }
+
+        public V get(long timeout, TimeUnit unit) {
+            return value;
+        }
+    }
 }
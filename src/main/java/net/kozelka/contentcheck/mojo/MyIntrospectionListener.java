@@ -3,6 +3,9 @@ package net.kozelka.contentcheck.mojo;
 import java.io.File;
 import java.io.IOException;
 import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.DuplicateEntry;
+import net.kozelka.contentcheck.introspection.EntryMetadata;
+import net.kozelka.contentcheck.util.BudgetExceededException;
 import org.apache.maven.plugin.logging.Log;
 
 /**
@@ -40,7 +43,15 @@ public class MyIntrospectionListener implements ContentIntrospector.Events {
         log.debug("Checking " + jarPath + " to be a vendor archive, using tempfile " + tempFile);
     }
 
-    public void processEntry(String entryName) {
+    public void processEntry(String entryName, EntryMetadata metadata) {
         log.debug("Found: " + entryName);
     }
+
+    public void duplicateEntry(DuplicateEntry duplicate) {
+        log.debug("Duplicate entry: " + duplicate.getUri());
+    }
+
+    public void budgetExceeded(File sourceFile, BudgetExceededException e) {
+        log.error(String.format("Reading %s stopped, resource budget exceeded: %s", sourceFile, e.getMessage()));
+    }
 }
@@ -0,0 +1,75 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Predicts the <code>WEB-INF/lib</code> entries of a war from the resolved runtime dependencies of the project,
+ * and checks them against the listing, without reading any archive; the archive does not need to exist yet.
+ * Bound to an early phase, it reports a new transitive dependency before the war is built.
+ * Jars are matched by path and by Maven coordinates; rules for other entries are not reported as missing.
+ *
+ * @since 1.0.6
+ */
+@Mojo(name = "predict", defaultPhase = LifecyclePhase.VALIDATE, requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class PredictMojo extends AbstractContentListingMojo {
+
+    @Parameter(property = "project", required = true, readonly = true)
+    MavenProject project;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Content prediction is skipped.");
+            return;
+        }
+        if (!contentListing.exists()) {
+            getLog().warn(String.format("File '%s' does not exist, nothing to predict against.", contentListing));
+            return;
+        }
+        try {
+            checkPredictedContent();
+        } catch (IOException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        }
+    }
+
+    private void checkPredictedContent() throws IOException, MojoFailureException {
+        final ContentChecker contentChecker = new ContentChecker();
+        contentChecker.getEvents().addListener(new MyContentCheckerListener(getLog()));
+        getLog().info("Reading listing: " + contentListing);
+        final Set<ApprovedEntry> approvedEntries = contentChecker.readApprovedContent(contentListing);
+        @SuppressWarnings("unchecked")
+        final Set<Artifact> artifacts = project.getArtifacts();
+        final Map<String, File> contentFiles = new HashMap<String, File>();
+        final List<ActualEntry> predicted = DependencyPrediction.predict(artifacts, checkFilesPattern,
+            ignoreVendorArchives ? vendorId : null, contentFiles);
+        getLog().info(String.format("Predicted %d entries from %d resolved dependencies", predicted.size(), artifacts.size()));
+        final ApproverReport report = contentChecker.check(approvedEntries, new LinkedHashSet<ActualEntry>(predicted), contentFiles);
+        // entries outside WEB-INF/lib are not predicted
+        final Set<ApprovedEntry> missingEntries = new LinkedHashSet<ApprovedEntry>();
+        for (ApprovedEntry missing : report.getMissingEntries()) {
+            if (DependencyPrediction.isPredictable(missing)) {
+                missingEntries.add(missing);
+            }
+        }
+        report.setMissingEntries(missingEntries);
+        verify(report, "predicted content of " + project.getId());
+    }
+}
@@ -0,0 +1,75 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
+import net.kozelka.contentcheck.util.ResourceBudget;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Shares {@link ArchiveIndex archive indexes} among goals of this plugin within one build.
+ * Indexes live in the plugin context, which Maven keeps per project for the whole session;
+ * an index is reused only while its file keeps the same size and modification time.
+ * Maven does not tell which goal is the last to need an index, so the context holds it only softly:
+ * it is dropped once no goal uses it and memory gets short, and rebuilt if a later goal asks again.
+ *
+ * @author Petr Kozelka
+ */
+final class SharedArchiveIndex {
+    private static final String KEY_PREFIX = "contentcheck.archiveIndex:";
+
+    private SharedArchiveIndex() {
+    }
+
+    /**
+     * @return index built by a previous goal, or null if there is none or it is outdated
+     */
+    static ArchiveIndex get(Map<?, ?> pluginContext, File sourceFile) {
+        if (pluginContext == null || !sourceFile.isFile()) return null;
+        synchronized (pluginContext) {
+            final Object cached = pluginContext.get(key(sourceFile));
+            final ArchiveIndex archiveIndex = cached instanceof SoftReference ? (ArchiveIndex) ((SoftReference<?>) cached).get() : null;
+            if (archiveIndex != null && archiveIndex.isUpToDate()) {
+                return archiveIndex;
+            }
+            // collected or outdated, the entry is of no use
+            pluginContext.remove(key(sourceFile));
+            return null;
+        }
+    }
+
+    /**
+     * @return index of the source file, built only if no goal has built it yet; null for directories
+     */
+    static ArchiveIndex getOrBuild(Map pluginContext, File sourceFile, Log log) throws IOException {
+        return getOrBuild(pluginContext, sourceFile, log, null);
+    }
+
+    /**
+     * @param budget limits for building the index; not applied when an index is reused
+     * @return index of the source file, built only if no goal has built it yet; null for directories
+     */
+    @SuppressWarnings("unchecked")
+    static ArchiveIndex getOrBuild(Map pluginContext, File sourceFile, Log log, ResourceBudget budget) throws IOException {
+        if (!sourceFile.isFile()) return null;
+        final ArchiveIndex cached = get(pluginContext, sourceFile);
+        if (cached != null) {
+            log.debug("Reusing index of " + sourceFile);
+            return cached;
+        }
+        log.debug("Indexing " + sourceFile);
+        final ArchiveIndex archiveIndex = ArchiveIndex.build(sourceFile, budget);
+        if (pluginContext != null) {
+            synchronized (pluginContext) {
+                pluginContext.put(key(sourceFile), new SoftReference<ArchiveIndex>(archiveIndex));
+            }
+        }
+        return archiveIndex;
+    }
+
+    private static String key(File sourceFile) {
+        return KEY_PREFIX + sourceFile.getAbsolutePath();
+    }
+}
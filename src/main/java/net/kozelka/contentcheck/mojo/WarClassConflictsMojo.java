@@ -10,7 +10,10 @@ import net.kozelka.contentcheck.conflict.impl.ClassConflictPrinter;
 import net.kozelka.contentcheck.conflict.impl.ConflictingResourcesReport;
 import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
 import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
-import org.apache.maven.plugin.AbstractMojo;
+import net.kozelka.contentcheck.daemon.CheckDaemon;
+import net.kozelka.contentcheck.daemon.DaemonClient;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
+import net.kozelka.contentcheck.util.ResourceBudget;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -24,8 +27,8 @@ import org.codehaus.plexus.util.cli.StreamConsumer;
  * @author Petr Kozelka
  * @since 1.0.3
  */
-@Mojo(name="warcc", defaultPhase = LifecyclePhase.VERIFY)
-public class WarClassConflictsMojo extends AbstractMojo {
+@Mojo(name="warcc", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class WarClassConflictsMojo extends AbstractResourceBudgetMojo {
     /**
      * If true, no check is performed.
      */
@@ -38,6 +41,15 @@ public class WarClassConflictsMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}.war", property = "sourceFile")
     File sourceFile;
 
+    /**
+     * The exploded webapp, analyzed when {@link #sourceFile} does not exist (yet).
+     * This gives conflict feedback before, or without, packaging the war.
+     * It can also be the {@link #sourceFile} itself.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}")
+    File webappDirectory;
+
     /**
      * How many class conflicts to list directly. Use <code>-1</code> to list all.
      */
@@ -72,6 +84,21 @@ public class WarClassConflictsMojo extends AbstractMojo {
     @Parameter(defaultValue = "-1")
     int toleratedConflictCount;
 
+    /**
+     * If true, the analysis is delegated to a running contentcheck daemon, which keeps jar indexes in memory.
+     * When no daemon responds, the analysis runs in-process as usual.
+     * @since 1.0.6
+     */
+    @Parameter(defaultValue = "false", property = "contentcheck.daemon")
+    boolean useDaemon;
+
+    /**
+     * The file where the contentcheck daemon publishes its port.
+     * @since 1.0.6
+     */
+    @Parameter(property = "contentcheck.daemon.portFile")
+    File daemonPortFile;
+
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
             getLog().info("Content conflict checking is skipped.");
@@ -86,11 +113,24 @@ public class WarClassConflictsMojo extends AbstractMojo {
                 toleratedOverlapCount = toleratedConflictCount;
             }
         }
+        final File source;
+        if (!sourceFile.exists() && webappDirectory != null && webappDirectory.isDirectory()) {
+            getLog().info(String.format("%s does not exist, analyzing exploded webapp %s", sourceFile, webappDirectory));
+            source = webappDirectory;
+        } else {
+            source = sourceFile;
+        }
         //
         try {
-            final ClassConflictAnalyzer ccd = new ClassConflictAnalyzer();
-            final List<ArchiveInfo> archives = ArchiveLoader.loadWar(sourceFile);
-            final ClassConflictReport report = ccd.analyze(archives);
+            final ResourceBudget budget = createResourceBudget();
+            // cached jar indexes of the daemon would skip the reads that limits guard
+            ClassConflictReport report = useDaemon && !budget.isLimited() ? analyzeInDaemon(source) : null;
+            if (report == null) {
+                final ClassConflictAnalyzer ccd = new ClassConflictAnalyzer();
+                final ArchiveIndex archiveIndex = SharedArchiveIndex.getOrBuild(getPluginContext(), source, getLog(), budget);
+                final List<ArchiveInfo> archives = archiveIndex == null ? ArchiveLoader.loadWebapp(source, budget) : ArchiveLoader.loadWebapp(archiveIndex);
+                report = ccd.analyze(archives);
+            }
             final List<ArchiveConflict> archiveConflicts = report.getArchiveConflicts();
             final int totalOverlaps = report.getTotalOverlaps();
             if (archiveConflicts.isEmpty()) {
@@ -115,7 +155,7 @@ public class WarClassConflictsMojo extends AbstractMojo {
                 final String errorMessage = String.format("Found %d overlapping resources in %d competing archives in %s",
                     totalOverlaps,
                     archiveConflicts.size(),
-                    sourceFile);
+                    source);
                 getLog().error(errorMessage);
                 if (totalOverlaps > toleratedOverlapCount) {
                     throw new MojoFailureException(errorMessage);
@@ -125,7 +165,26 @@ public class WarClassConflictsMojo extends AbstractMojo {
                 getLog().warn(String.format("We currently tolerate %d overlaps; please reduce the tolerance to prevent growing mess", toleratedOverlapCount));
             }
         } catch (IOException e) {
-            throw new MojoExecutionException(sourceFile.getAbsolutePath(), e);
+            throw new MojoExecutionException(source.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * @return the report, or null if the daemon is not available
+     */
+    private ClassConflictReport analyzeInDaemon(File source) {
+        final File portFile = daemonPortFile == null ? CheckDaemon.DEFAULT_PORT_FILE : daemonPortFile;
+        final DaemonClient client = DaemonClient.connect(portFile);
+        if (client == null) {
+            getLog().info("No contentcheck daemon found via " + portFile + ", analyzing in-process");
+            return null;
+        }
+        try {
+            getLog().info(String.format("Analyzing %s in daemon at port %d", source, client.getPort()));
+            return client.warcc(source);
+        } catch (IOException e) {
+            getLog().warn("Contentcheck daemon failed, analyzing in-process: " + e.getMessage());
+            return null;
         }
     }
 }
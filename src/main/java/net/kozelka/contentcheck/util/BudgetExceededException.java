@@ -0,0 +1,24 @@
+package net.kozelka.contentcheck.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown when processing an archive would exceed one of the limits of a {@link ResourceBudget}.
+ *
+ * @author Petr Kozelka
+ */
+public class BudgetExceededException extends IOException {
+    private final String entryName;
+
+    public BudgetExceededException(String entryName, String message) {
+        super(entryName + ": " + message);
+        this.entryName = entryName;
+    }
+
+    /**
+     * @return path of the entry being processed when the limit was hit
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+}
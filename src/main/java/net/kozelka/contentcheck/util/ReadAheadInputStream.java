@@ -0,0 +1,149 @@
+package net.kozelka.contentcheck.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the underlying stream on a background thread, a bounded number of chunks ahead of the consumer.
+ * Whatever the underlying stream does on read - typically decompression - is thus pipelined with processing of the data.
+ *
+ * @author Petr Kozelka
+ */
+public class ReadAheadInputStream extends InputStream {
+    private static final byte[] EOF = new byte[0];
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> chunks;
+    private final Thread reader;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private byte[] current = EOF;
+    private int position;
+    private boolean finished;
+
+    /**
+     * @param source the stream to be read in the background; it is closed by {@link #close()}
+     * @param chunkSize how many bytes to read at once
+     * @param chunkCount how many chunks can be read ahead
+     * @param threadName name of the background thread
+     */
+    public ReadAheadInputStream(InputStream source, final int chunkSize, int chunkCount, String threadName) {
+        this.source = source;
+        this.chunks = new ArrayBlockingQueue<byte[]>(chunkCount);
+        this.reader = new Thread(threadName) {
+            @Override
+            public void run() {
+                readAhead(chunkSize);
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readAhead(int chunkSize) {
+        try {
+            while (!closed) {
+                final byte[] buffer = new byte[chunkSize];
+                int filled = 0;
+                int n = 0;
+                while (filled < chunkSize && (n = source.read(buffer, filled, chunkSize - filled)) >= 0) {
+                    filled += n;
+                }
+                if (filled > 0) {
+                    if (filled < chunkSize) {
+                        final byte[] chunk = new byte[filled];
+                        System.arraycopy(buffer, 0, chunk, 0, filled);
+                        put(chunk);
+                    } else {
+                        put(buffer);
+                    }
+                }
+                if (n < 0) break;
+            }
+        } catch (InterruptedException e) {
+            // closed by the consumer
+        } catch (Throwable e) {
+            // whatever the source throws is rethrown to the consumer, which would wait forever otherwise
+            failure = e;
+        } finally {
+            try {
+                put(EOF);
+            } catch (InterruptedException e) {
+                // closed by the consumer
+            }
+        }
+    }
+
+    private void put(byte[] chunk) throws InterruptedException {
+        while (!closed) {
+            if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) return;
+        }
+        throw new InterruptedException();
+    }
+
+    /**
+     * @return false at the end of data
+     */
+    private boolean fill() throws IOException {
+        if (position < current.length) return true;
+        if (finished) return false;
+        try {
+            current = chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+        position = 0;
+        if (current == EOF) {
+            finished = true;
+            if (failure != null) throw rethrow(failure);
+            return false;
+        }
+        return true;
+    }
+
+    private static IOException rethrow(Throwable failure) {
+        if (failure instanceof IOException) return (IOException) failure;
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        return new IOException(failure);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+        final int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+}
@@ -0,0 +1,193 @@
+package net.kozelka.contentcheck.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits for processing untrusted archives, so that a malformed or hostile one (like a zip bomb) cannot exhaust disk, memory or time.
+ * Inflated bytes are counted as they are read through {@link #limit limited streams}; one budget instance covers a whole run
+ * and can be shared by multiple threads. The budget measures work, so an entry read by two passes (e.g. indexing and checking) counts twice.
+ * Limits set to 0 are not enforced.
+ *
+ * @author Petr Kozelka
+ */
+public class ResourceBudget {
+    /**
+     * Compression ratio is only checked after this many inflated bytes, as small entries often compress extremely well.
+     */
+    private static final long RATIO_GRACE_SIZE = 1024 * 1024;
+
+    private long maxEntrySize;
+    private long maxTotalSize;
+    private int maxEntryCount;
+    private int maxNestingDepth;
+    private int maxCompressionRatio;
+    private final AtomicLong totalSize = new AtomicLong();
+    private final AtomicInteger entryCount = new AtomicInteger();
+
+    /**
+     * @param maxEntrySize maximum inflated bytes of one entry
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * @param maxTotalSize maximum inflated bytes of all entries during the run
+     */
+    public void setMaxTotalSize(long maxTotalSize) {
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    /**
+     * @param maxEntryCount maximum number of entries during the run, including those of nested archives
+     */
+    public void setMaxEntryCount(int maxEntryCount) {
+        this.maxEntryCount = maxEntryCount;
+    }
+
+    /**
+     * @param maxNestingDepth maximum nesting of archives; 1 allows jars in a war, but not jars in a war in an ear
+     */
+    public void setMaxNestingDepth(int maxNestingDepth) {
+        this.maxNestingDepth = maxNestingDepth;
+    }
+
+    /**
+     * @param maxCompressionRatio maximum ratio of inflated to compressed size of an entry
+     */
+    public void setMaxCompressionRatio(int maxCompressionRatio) {
+        this.maxCompressionRatio = maxCompressionRatio;
+    }
+
+    /**
+     * @return true if any limit is enforced
+     */
+    public boolean isLimited() {
+        return maxEntrySize > 0 || maxTotalSize > 0 || maxEntryCount > 0 || maxNestingDepth > 0 || maxCompressionRatio > 0;
+    }
+
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    public int getEntryCount() {
+        return entryCount.get();
+    }
+
+    /**
+     * Counts one more entry.
+     */
+    public void countEntry(String entryName) throws BudgetExceededException {
+        final int count = entryCount.incrementAndGet();
+        if (maxEntryCount > 0 && count > maxEntryCount) {
+            throw new BudgetExceededException(entryName, "more than " + maxEntryCount + " entries");
+        }
+    }
+
+    /**
+     * @param depth nesting level of the archive about to be opened; the top level container has 0
+     */
+    public void checkDepth(int depth, String entryName) throws BudgetExceededException {
+        if (maxNestingDepth > 0 && depth > maxNestingDepth) {
+            throw new BudgetExceededException(entryName, "archives nested deeper than " + maxNestingDepth + " levels");
+        }
+    }
+
+    /**
+     * Checks the size an entry declares in the archive; cheap, but not sufficient alone, as a hostile archive can declare anything.
+     * @param size declared inflated size, or -1 if not known
+     * @param compressedSize declared compressed size, or -1 if not known
+     */
+    public void checkDeclaredSize(String entryName, long size, long compressedSize) throws BudgetExceededException {
+        if (size < 0) return;
+        if (maxEntrySize > 0 && size > maxEntrySize) {
+            throw new BudgetExceededException(entryName, "declares " + size + " bytes, more than " + maxEntrySize);
+        }
+        if (maxCompressionRatio > 0 && compressedSize > 0 && size > RATIO_GRACE_SIZE && size / compressedSize > maxCompressionRatio) {
+            throw new BudgetExceededException(entryName, "compression ratio exceeds " + maxCompressionRatio);
+        }
+    }
+
+    /**
+     * @param in inflated content of an entry
+     * @param entryName path of the entry, for error messages
+     * @param compressedSize size of the entry in the archive, or -1 if not known
+     * @return stream counting the bytes read against this budget
+     */
+    public InputStream limit(InputStream in, String entryName, long compressedSize) {
+        return new LimitedInputStream(in, entryName, compressedSize);
+    }
+
+    /**
+     * Reads the rest of an entry, counting it against this budget; use instead of skipping, which would inflate the data unchecked.
+     */
+    public void drain(InputStream in, String entryName, long compressedSize) throws IOException {
+        final InputStream limited = limit(in, entryName, compressedSize);
+        final byte[] buffer = new byte[8192];
+        while (limited.read(buffer) >= 0) {
+            // just counting
+        }
+    }
+
+    private void count(String entryName, long entrySize, long compressedSize, int n) throws BudgetExceededException {
+        if (maxEntrySize > 0 && entrySize > maxEntrySize) {
+            throw new BudgetExceededException(entryName, "inflates to more than " + maxEntrySize + " bytes");
+        }
+        if (maxCompressionRatio > 0 && compressedSize > 0 && entrySize > RATIO_GRACE_SIZE && entrySize / compressedSize > maxCompressionRatio) {
+            throw new BudgetExceededException(entryName, "compression ratio exceeds " + maxCompressionRatio);
+        }
+        final long total = totalSize.addAndGet(n);
+        if (maxTotalSize > 0 && total > maxTotalSize) {
+            throw new BudgetExceededException(entryName, "inflated data of the run exceed " + maxTotalSize + " bytes");
+        }
+    }
+
+    private class LimitedInputStream extends FilterInputStream {
+        private final String entryName;
+        private final long compressedSize;
+        private long size;
+
+        LimitedInputStream(InputStream in, String entryName, long compressedSize) {
+            super(in);
+            this.entryName = entryName;
+            this.compressedSize = compressedSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                size++;
+                count(entryName, size, compressedSize, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                size += n;
+                count(entryName, size, compressedSize, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes are inflated as well
+            final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            final int read = read(buffer, 0, buffer.length);
+            return read < 0 ? 0 : read;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package net.kozelka.contentcheck;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Guards the garbage produced per processed entry, measured with thread allocation counters.
+ * Budgets are in bytes per entry; they include everything the JDK allocates on the way (zip reading, inflating).
+ * Runs in the {@link PerformanceTests} category only.
+ *
+ * @author Petr Kozelka
+ */
+@Category(PerformanceTests.class)
+public class AllocationBudgetTest {
+    private static final int ENTRY_COUNT = 20000;
+    private static final int JAR_COUNT = 200;
+    private static final int CLASSES_PER_JAR = 100;
+
+    // about twice of what was measured, to tolerate differences between JDKs
+    private static final long INTROSPECTION_BUDGET = 1500;
+    private static final long CHECK_BUDGET = 2500;
+    private static final long LOAD_BUDGET = 1000;
+    private static final long ANALYZE_BUDGET = 800;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AllocationMeter meter;
+
+    @Before
+    public void setUp() {
+        meter = AllocationMeter.create();
+        Assume.assumeTrue("thread allocation counters not supported by this JVM", meter != null);
+    }
+
+    @Test
+    public void introspection() throws Exception {
+        final File zip = plainZip(ENTRY_COUNT);
+        final long perEntry = meter.perEntry(ENTRY_COUNT, new Measured() {
+            public void run() throws IOException {
+                final ContentIntrospector introspector = new ContentIntrospector();
+                introspector.setCheckFilesPattern("**/*.jar");
+                introspector.setSourceFile(zip);
+                introspector.walk();
+            }
+        });
+        assertBudget("introspection", perEntry, INTROSPECTION_BUDGET);
+    }
+
+    @Test
+    public void check() throws Exception {
+        final File zip = plainZip(ENTRY_COUNT);
+        final Set<ApprovedEntry> approvedEntries = new LinkedHashSet<ApprovedEntry>();
+        for (String rule : new String[] {"lib/lib0*.jar", "lib/lib1*.jar", "**/lib2*.jar", "lib/*.jar"}) {
+            final ApprovedEntry approvedEntry = new ApprovedEntry();
+            approvedEntry.setUri(rule);
+            approvedEntries.add(approvedEntry);
+        }
+        final long perEntry = meter.perEntry(ENTRY_COUNT, new Measured() {
+            public void run() throws IOException {
+                final ContentIntrospector introspector = new ContentIntrospector();
+                introspector.setCheckFilesPattern("**/*.jar");
+                introspector.setSourceFile(zip);
+                final ContentChecker checker = new ContentChecker();
+                checker.setIntrospector(introspector);
+                checker.check(approvedEntries);
+            }
+        });
+        assertBudget("check", perEntry, CHECK_BUDGET);
+    }
+
+    @Test
+    public void conflicts() throws Exception {
+        final SyntheticArchive generator = new SyntheticArchive();
+        generator.setJarCount(JAR_COUNT);
+        generator.setClassesPerJar(CLASSES_PER_JAR);
+        generator.setClassSize(16);
+        generator.setOverlapRatio(0.1);
+        generator.setDuplicateRatio(0.1);
+        final File war = generator.writeWar(temporaryFolder.newFile());
+        final int resourceCount = JAR_COUNT * (CLASSES_PER_JAR + 1);
+
+        final long loadPerEntry = meter.perEntry(resourceCount, new Measured() {
+            public void run() throws IOException {
+                ArchiveLoader.loadWar(war);
+            }
+        });
+        assertBudget("conflict loading", loadPerEntry, LOAD_BUDGET);
+
+        final List<ArchiveInfo> archives = ArchiveLoader.loadWar(war);
+        final long analyzePerEntry = meter.perEntry(resourceCount, new Measured() {
+            public void run() {
+                new ClassConflictAnalyzer().analyze(archives);
+            }
+        });
+        assertBudget("conflict analysis", analyzePerEntry, ANALYZE_BUDGET);
+    }
+
+    private static void assertBudget(String what, long perEntry, long budget) {
+        Assert.assertTrue(String.format("%s allocates %d bytes per entry, over budget of %d", what, perEntry, budget), perEntry <= budget);
+    }
+
+    /**
+     * Zip with given number of entries, every other being a jar (empty, as introspection does not read them).
+     */
+    private File plainZip(int entryCount) throws IOException {
+        final ZipBuilder builder = new ZipBuilder();
+        for (int i = 0; i < entryCount; i++) {
+            builder.add(i % 2 == 0
+                ? String.format("lib/lib%05d.jar", i)
+                : String.format("static/d%02d/resource%05d.txt", i % 100, i), new byte[0]);
+        }
+        return builder.writeTo(temporaryFolder.newFile("plain.zip"));
+    }
+
+    private interface Measured {
+        void run() throws IOException;
+    }
+
+    /**
+     * Reads allocated bytes of current thread through <code>com.sun.management.ThreadMXBean</code>, where available.
+     */
+    private static class AllocationMeter {
+        private final ThreadMXBean threadMXBean;
+        private final Method getThreadAllocatedBytes;
+
+        private AllocationMeter(ThreadMXBean threadMXBean, Method getThreadAllocatedBytes) {
+            this.threadMXBean = threadMXBean;
+            this.getThreadAllocatedBytes = getThreadAllocatedBytes;
+        }
+
+        /**
+         * @return the meter, or null if the JVM cannot count allocations
+         */
+        static AllocationMeter create() {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            try {
+                final Class<?> sunThreadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+                if (!sunThreadMXBean.isInstance(threadMXBean)) return null;
+                final Method isSupported = sunThreadMXBean.getMethod("isThreadAllocatedMemorySupported");
+                if (!((Boolean) isSupported.invoke(threadMXBean))) return null;
+                sunThreadMXBean.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(threadMXBean, Boolean.TRUE);
+                return new AllocationMeter(threadMXBean, sunThreadMXBean.getMethod("getThreadAllocatedBytes", long.class));
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        long allocatedBytes() {
+            try {
+                return (Long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Runs the code twice for warm-up, then reports the least allocating of three runs, divided by entry count.
+         */
+        long perEntry(int entryCount, Measured measured) throws IOException {
+            measured.run();
+            measured.run();
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < 3; i++) {
+                final long before = allocatedBytes();
+                measured.run();
+                best = Math.min(best, allocatedBytes() - before);
+            }
+            return best / entryCount;
+        }
+    }
+}
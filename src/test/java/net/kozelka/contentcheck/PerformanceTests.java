@@ -0,0 +1,10 @@
+package net.kozelka.contentcheck;
+
+/**
+ * JUnit category of tests asserting timing or allocation, which depend on the machine and its load.
+ * They are excluded from the default build; run them with <code>mvn -Pperformance-tests test</code>.
+ *
+ * @author Petr Kozelka
+ */
+public interface PerformanceTests {
+}
@@ -0,0 +1,192 @@
+package net.kozelka.contentcheck;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs the checker and the conflict analyzer on {@link SyntheticArchive synthetic archives} of growing size,
+ * and fails when runtime grows faster than linearly.
+ *
+ * @author Petr Kozelka
+ */
+public class ScalingTest {
+    private static final int[] JAR_COUNTS = {100, 200, 400, 800};
+    private static final int CLASSES_PER_JAR = 20;
+    private static final int[] CLASS_COUNTS = {250, 500, 1000, 2000};
+    private static final int JAR_COUNT = 40;
+    /**
+     * Allowed growth of time per unit between smallest and largest size; quadratic behavior would give 8.
+     */
+    private static final double MAX_SLOWDOWN = 2.5;
+    /**
+     * Timings below this are considered noise.
+     */
+    private static final long MIN_NANOS = 5000000L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void conflictCountsAcrossZipFlavors() throws Exception {
+        final int[][] flavors = {{ZipEntry.DEFLATED, 1}, {ZipEntry.DEFLATED, 0}, {ZipEntry.STORED, 0}};
+        for (int[] flavor : flavors) {
+            final SyntheticArchive generator = generator(10);
+            generator.setMethod(flavor[0]);
+            generator.setDataDescriptors(flavor[1] == 1);
+            final File war = generator.writeWar(temporaryFolder.newFile());
+            final ClassConflictReport report = new ClassConflictAnalyzer().analyze(ArchiveLoader.loadWar(war));
+            final String flavorName = String.format("method=%d descriptors=%d", flavor[0], flavor[1]);
+            // every jar but the first one overlaps with its predecessor; overlaps are reported in both directions
+            final int overlappingJars = 9;
+            Assert.assertEquals(flavorName, 10, report.getExploredArchives().size());
+            Assert.assertEquals(flavorName, 2 * overlappingJars * (generator.getOverlappingClassesPerJar() + generator.getDuplicateClassesPerJar()), report.getTotalOverlaps());
+            Assert.assertEquals(flavorName, 2 * overlappingJars * generator.getOverlappingClassesPerJar(), report.getTotalConflicts());
+        }
+    }
+
+    @Test
+    public void generatorIsDeterministic() throws Exception {
+        final File a = generator(5).writeEar(temporaryFolder.newFile());
+        final File b = generator(5).writeEar(temporaryFolder.newFile());
+        Assert.assertEquals(a.length(), b.length());
+        Assert.assertEquals(FileUtils.fileRead(a, "ISO-8859-1"), FileUtils.fileRead(b, "ISO-8859-1"));
+    }
+
+    @Test
+    @Category(PerformanceTests.class)
+    public void contentCheckScalesLinearly() throws Exception {
+        final long[] nanos = new long[JAR_COUNTS.length];
+        for (int i = 0; i < JAR_COUNTS.length; i++) {
+            final int jarCount = JAR_COUNTS[i];
+            final SyntheticArchive generator = generator(jarCount);
+            generator.setVendorId(SupportUtils.VENDOR1);
+            final File war = generator.writeWar(temporaryFolder.newFile());
+            final File listing = listing(jarCount);
+            nanos[i] = bestOf(3, new Measured() {
+                public void run() throws IOException {
+                    final ContentIntrospector introspector = new ContentIntrospector();
+                    introspector.setEntryContentFilter(new VendorFilter(SupportUtils.VENDOR1));
+                    introspector.setSourceFile(war);
+                    final ContentChecker checker = new ContentChecker();
+                    checker.setIntrospector(introspector);
+                    final ApproverReport report = checker.check(listing);
+                    Assert.assertEquals(0, report.getMissingEntries().size());
+                    Assert.assertEquals(0, report.getUnexpectedEntries().size());
+                }
+            });
+        }
+        assertLinear("content check", JAR_COUNTS, nanos);
+    }
+
+    @Test
+    @Category(PerformanceTests.class)
+    public void conflictAnalysisScalesLinearly() throws Exception {
+        final long[] nanos = new long[JAR_COUNTS.length];
+        for (int i = 0; i < JAR_COUNTS.length; i++) {
+            final int jarCount = JAR_COUNTS[i];
+            final File war = generator(jarCount).writeWar(temporaryFolder.newFile());
+            nanos[i] = bestOf(3, new Measured() {
+                public void run() throws IOException {
+                    final List<ArchiveInfo> archives = ArchiveLoader.loadWar(war);
+                    final ClassConflictReport report = new ClassConflictAnalyzer().analyze(archives);
+                    Assert.assertEquals(jarCount, report.getExploredArchives().size());
+                }
+            });
+        }
+        assertLinear("conflict analysis", JAR_COUNTS, nanos);
+    }
+
+    /**
+     * Overlaps grow with the jars, so that any lookup scanning a whole jar per overlap shows up.
+     */
+    @Test
+    @Category(PerformanceTests.class)
+    public void conflictAnalysisScalesLinearlyWithJarSize() throws Exception {
+        final long[] nanos = new long[CLASS_COUNTS.length];
+        for (int i = 0; i < CLASS_COUNTS.length; i++) {
+            final SyntheticArchive generator = generator(JAR_COUNT);
+            generator.setClassesPerJar(CLASS_COUNTS[i]);
+            generator.setClassSize(16);
+            generator.setOverlapRatio(0.25);
+            generator.setDuplicateRatio(0.25);
+            // loading is linear anyway; only the analysis is measured
+            final List<ArchiveInfo> archives = ArchiveLoader.loadWar(generator.writeWar(temporaryFolder.newFile()));
+            nanos[i] = bestOf(3, new Measured() {
+                public void run() {
+                    final ClassConflictReport report = new ClassConflictAnalyzer().analyze(archives);
+                    Assert.assertEquals(JAR_COUNT, report.getExploredArchives().size());
+                }
+            });
+        }
+        assertLinear("conflict analysis of growing jars", CLASS_COUNTS, nanos);
+    }
+
+    private static SyntheticArchive generator(int jarCount) {
+        final SyntheticArchive generator = new SyntheticArchive();
+        generator.setJarCount(jarCount);
+        generator.setClassesPerJar(CLASSES_PER_JAR);
+        generator.setOverlapRatio(0.1);
+        generator.setDuplicateRatio(0.2);
+        return generator;
+    }
+
+    private File listing(int jarCount) throws IOException {
+        final File listing = temporaryFolder.newFile();
+        final FileWriter writer = new FileWriter(listing);
+        try {
+            // vendor archives (every other one) are not checked
+            for (int i = 1; i < jarCount; i += 2) {
+                writer.write("WEB-INF/lib/" + SyntheticArchive.jarName(i) + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        return listing;
+    }
+
+    private static long bestOf(int attempts, Measured measured) throws IOException {
+        // first run is a warm-up, so that the smallest size does not pay for class loading and JIT
+        measured.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < attempts; i++) {
+            // garbage of previous runs (or tests) should not be collected on our time
+            System.gc();
+            final long start = System.nanoTime();
+            measured.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void assertLinear(String what, int[] sizes, long[] nanos) {
+        final int last = sizes.length - 1;
+        final double growth = (double) sizes[last] / sizes[0];
+        final double slowdown = nanos[last] / (growth * Math.max(nanos[0], MIN_NANOS));
+        final StringBuilder timings = new StringBuilder();
+        for (int i = 0; i < sizes.length; i++) {
+            timings.append(String.format(" size %d: %d ms;", sizes[i], nanos[i] / 1000000));
+        }
+        Assert.assertTrue(String.format("%s grows super-linearly (%.1fx per unit):%s", what, slowdown, timings), slowdown <= MAX_SLOWDOWN);
+    }
+
+    private interface Measured {
+        void run() throws IOException;
+    }
+}
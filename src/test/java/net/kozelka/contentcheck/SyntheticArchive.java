@@ -0,0 +1,254 @@
+package net.kozelka.contentcheck;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deterministic generator of synthetic WAR, EAR and JAR files, for tests at sizes where real fixtures are impractical.
+ * <p>
+ * Jar <code>i</code> contains classes of package <code>org/example/libN</code>.
+ * Its first classes are borrowed from jar <code>i-1</code>: {@link #setOverlapRatio overlapping} ones with different content
+ * (class conflicts), and {@link #setDuplicateRatio duplicate} ones with identical content.
+ * Together, overlapping and duplicate classes can take at most half of a jar.
+ * The same settings always produce byte-identical archives.
+ *
+ * @author Petr Kozelka
+ */
+public class SyntheticArchive {
+    private int jarCount = 10;
+    private int classesPerJar = 10;
+    private int classSize = 256;
+    private double overlapRatio;
+    private double duplicateRatio;
+    private int method = ZipEntry.DEFLATED;
+    private boolean dataDescriptors = true;
+    private String vendorId;
+    private long seed = 1;
+
+    public void setJarCount(int jarCount) {
+        this.jarCount = jarCount;
+    }
+
+    public void setClassesPerJar(int classesPerJar) {
+        this.classesPerJar = classesPerJar;
+    }
+
+    public void setClassSize(int classSize) {
+        this.classSize = classSize;
+    }
+
+    /**
+     * @param overlapRatio fraction of each jar's classes that also appear in previous jar, with different content
+     */
+    public void setOverlapRatio(double overlapRatio) {
+        this.overlapRatio = overlapRatio;
+    }
+
+    /**
+     * @param duplicateRatio fraction of each jar's classes that also appear in previous jar, with the same content
+     */
+    public void setDuplicateRatio(double duplicateRatio) {
+        this.duplicateRatio = duplicateRatio;
+    }
+
+    /**
+     * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}; applies to all levels
+     */
+    public void setMethod(int method) {
+        this.method = method;
+    }
+
+    /**
+     * @param dataDescriptors if true, deflated entries are streamed, with sizes and CRC in a data descriptor after the data;
+     *                        otherwise they are known in the local header. Stored entries never have data descriptors.
+     */
+    public void setDataDescriptors(boolean dataDescriptors) {
+        this.dataDescriptors = dataDescriptors;
+    }
+
+    /**
+     * @param vendorId if set, every other jar (starting with the first) declares this <code>Implementation-Vendor-Id</code>
+     */
+    public void setVendorId(String vendorId) {
+        this.vendorId = vendorId;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getOverlappingClassesPerJar() {
+        return (int) (classesPerJar * overlapRatio);
+    }
+
+    public int getDuplicateClassesPerJar() {
+        return (int) (classesPerJar * duplicateRatio);
+    }
+
+    public static String jarName(int index) {
+        return String.format("lib%05d-1.0.jar", index);
+    }
+
+    /**
+     * Writes a war with jars in <code>WEB-INF/lib/</code>, and one class per jar in <code>WEB-INF/classes/</code>.
+     */
+    public File writeWar(File war) throws IOException {
+        final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(war));
+        try {
+            writeJars(zos, "WEB-INF/lib/");
+            for (int i = 0; i < jarCount; i++) {
+                putEntry(zos, String.format("WEB-INF/classes/org/example/web/Servlet%05d.class", i), classBytes(-1, i, 0));
+            }
+            putEntry(zos, "WEB-INF/web.xml", "<web-app/>".getBytes("UTF-8"));
+        } finally {
+            zos.close();
+        }
+        return war;
+    }
+
+    /**
+     * Writes an ear with jars in <code>lib/</code>.
+     */
+    public File writeEar(File ear) throws IOException {
+        final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(ear));
+        try {
+            writeJars(zos, "lib/");
+            putEntry(zos, "META-INF/application.xml", "<application/>".getBytes("UTF-8"));
+        } finally {
+            zos.close();
+        }
+        return ear;
+    }
+
+    /**
+     * Writes a single jar with classes of all jars merged, as a fat jar would have them.
+     */
+    public File writeJar(File jar) throws IOException {
+        final FileOutputStream fos = new FileOutputStream(jar);
+        try {
+            writeJarContent(fos, -1);
+        } finally {
+            fos.close();
+        }
+        return jar;
+    }
+
+    private void writeJars(ZipOutputStream zos, String prefix) throws IOException {
+        if (2 * (getOverlappingClassesPerJar() + getDuplicateClassesPerJar()) > classesPerJar) {
+            throw new IllegalStateException("overlapRatio + duplicateRatio must not exceed 0.5");
+        }
+        for (int i = 0; i < jarCount; i++) {
+            final ByteArrayOutputStream jar = new ByteArrayOutputStream();
+            writeJarContent(jar, i);
+            putEntry(zos, prefix + jarName(i), jar.toByteArray());
+        }
+    }
+
+    /**
+     * @param index index of the jar, or -1 for a jar with all classes
+     */
+    private void writeJarContent(OutputStream os, int index) throws IOException {
+        final ZipOutputStream jos = new ZipOutputStream(os);
+        try {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            if (vendorId != null && index >= 0 && index % 2 == 0) {
+                manifest.getMainAttributes().putValue("Implementation-Vendor-Id", vendorId);
+            }
+            final ByteArrayOutputStream mf = new ByteArrayOutputStream();
+            manifest.write(mf);
+            putEntry(jos, "META-INF/MANIFEST.MF", mf.toByteArray());
+            if (index < 0) {
+                for (int i = 0; i < jarCount; i++) {
+                    for (int c = 0; c < classesPerJar; c++) {
+                        putEntry(jos, className(i, c), classBytes(i, c, 0));
+                    }
+                }
+            } else {
+                writeClasses(jos, index);
+            }
+        } finally {
+            jos.close();
+        }
+    }
+
+    private void writeClasses(ZipOutputStream jos, int index) throws IOException {
+        final int overlapping = index == 0 ? 0 : getOverlappingClassesPerJar();
+        final int duplicate = index == 0 ? 0 : getDuplicateClassesPerJar();
+        for (int c = 0; c < classesPerJar; c++) {
+            // borrowed classes are the last ones of previous jar, which are always its own
+            if (c < overlapping) {
+                final int borrowed = classesPerJar - 1 - c;
+                putEntry(jos, className(index - 1, borrowed), classBytes(index - 1, borrowed, index));
+            } else if (c < overlapping + duplicate) {
+                final int borrowed = classesPerJar - 1 - c;
+                putEntry(jos, className(index - 1, borrowed), classBytes(index - 1, borrowed, 0));
+            } else {
+                putEntry(jos, className(index, c), classBytes(index, c, 0));
+            }
+        }
+    }
+
+    private static String className(int owner, int c) {
+        return String.format("org/example/lib%05d/Class%05d.class", owner, c);
+    }
+
+    /**
+     * @param variant 0 for the original class content; other values give conflicting copies
+     */
+    private byte[] classBytes(int owner, int c, int variant) {
+        final Random random = new Random(seed * 1000003L + owner * 7919L + c * 31L + variant);
+        final byte[] bytes = new byte[classSize];
+        // half random, half repetitive - so that deflating makes some difference
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = i % 2 == 0 ? (byte) random.nextInt() : (byte) (i & 0x0f);
+        }
+        return bytes;
+    }
+
+    private void putEntry(ZipOutputStream zos, String name, byte[] content) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        // fixed timestamp keeps the output reproducible
+        entry.setTime(946684800000L);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED || !dataDescriptors) {
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setCrc(crc.getValue());
+            entry.setSize(content.length);
+            entry.setCompressedSize(method == ZipEntry.STORED ? content.length : deflatedSize(content));
+        }
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    /**
+     * @return compressed size exactly as {@link ZipOutputStream} will produce it
+     */
+    private static long deflatedSize(byte[] content) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            final byte[] buf = new byte[8192];
+            long size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(buf);
+            }
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package net.kozelka.contentcheck;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds small zip, jar and war files in memory, for fixtures spelled out entry by entry.
+ * For large generated archives, see {@link SyntheticArchive}.
+ *
+ * @author Petr Kozelka
+ */
+public class ZipBuilder {
+    private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private final ZipOutputStream zos;
+
+    public ZipBuilder() {
+        zos = new ZipOutputStream(baos);
+    }
+
+    /**
+     * Starts a jar with given manifest as its first entry.
+     */
+    public ZipBuilder(Manifest manifest) throws IOException {
+        zos = new JarOutputStream(baos, manifest);
+    }
+
+    /**
+     * @param namesAndValues main attributes to add to <code>Manifest-Version: 1.0</code>, as name followed by value
+     */
+    public static Manifest manifest(String... namesAndValues) {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            manifest.getMainAttributes().putValue(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return manifest;
+    }
+
+    public ZipBuilder add(String name, byte[] content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content);
+        zos.closeEntry();
+        return this;
+    }
+
+    /**
+     * @param content written in UTF-8
+     */
+    public ZipBuilder add(String name, String content) throws IOException {
+        return add(name, content.getBytes("UTF-8"));
+    }
+
+    /**
+     * Adds an entry without compression.
+     */
+    public ZipBuilder addStored(String name, byte[] content) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+        return this;
+    }
+
+    /**
+     * Adds <code>META-INF/maven/groupId/artifactId/pom.properties</code>, as Maven puts it into the jars it builds.
+     */
+    public ZipBuilder addPomProperties(String groupId, String artifactId, String version) throws IOException {
+        return add(String.format("META-INF/maven/%s/%s/pom.properties", groupId, artifactId),
+            String.format("groupId=%s%nartifactId=%s%nversion=%s%n", groupId, artifactId, version));
+    }
+
+    public byte[] toByteArray() throws IOException {
+        zos.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return the file
+     */
+    public File writeTo(File file) throws IOException {
+        final byte[] content = toByteArray();
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+}
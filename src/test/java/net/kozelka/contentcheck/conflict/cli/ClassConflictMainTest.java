@@ -1,7 +1,11 @@
 package net.kozelka.contentcheck.conflict.cli;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
 import net.kozelka.contentcheck.SupportUtils;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -9,9 +13,64 @@ import org.junit.Test;
  */
 public class ClassConflictMainTest {
 
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
     @Test
     public void testMain() throws Exception {
         final File archivaWar = SupportUtils.getFile("/archiva-webapp.war");
         ClassConflictMain.main(archivaWar.getAbsolutePath());
     }
+
+    @Test
+    public void testMultipleInputsAsJson() throws Exception {
+        final File war = SupportUtils.getFile("test.war");
+        final File ear = SupportUtils.getFile("test.ear");
+        final int exitCode = run("--format", "json", "--threads", "8", "--stats", war.getAbsolutePath(), ear.getAbsolutePath());
+        Assert.assertEquals(ClassConflictMain.EXIT_OK, exitCode);
+        final String json = stdout.toString("UTF-8");
+        Assert.assertTrue(json, json.trim().startsWith("["));
+        Assert.assertTrue(json, json.indexOf("test.war") < json.indexOf("test.ear"));
+        Assert.assertTrue(json, json.contains("\"totalOverlaps\":0"));
+        Assert.assertTrue(stderr.toString("UTF-8"), stderr.toString("UTF-8").contains("2 inputs analyzed by 2 threads"));
+    }
+
+    @Test
+    public void testBrokenInputDoesNotAbortOthers() throws Exception {
+        final File broken = File.createTempFile("broken", ".jar");
+        broken.deleteOnExit();
+        final FileOutputStream fos = new FileOutputStream(broken);
+        try {
+            fos.write("not a zip".getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        final File war = SupportUtils.getFile("test.war");
+        final int exitCode = run("--format", "csv", broken.getAbsolutePath(), war.getAbsolutePath());
+        Assert.assertEquals(ClassConflictMain.EXIT_ERROR, exitCode);
+        final String csv = stdout.toString("UTF-8");
+        Assert.assertTrue(csv, csv.contains("error,"));
+        Assert.assertTrue(csv, csv.contains("test.war"));
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        final File war = SupportUtils.getFile("test.war");
+        final int exitCode = run("--format", "csv", "--max-overlaps", "0", war.getAbsolutePath());
+        Assert.assertEquals(ClassConflictMain.EXIT_OK, exitCode);
+        final String[] lines = stdout.toString("UTF-8").split("\\r?\\n");
+        Assert.assertEquals("record,source,name,other,overlaps,conflicts,duplicates", lines[0]);
+        Assert.assertTrue(lines[1], lines[1].startsWith("total,"));
+    }
+
+    @Test
+    public void testUsageError() throws Exception {
+        Assert.assertEquals(ClassConflictMain.EXIT_USAGE, run("--format", "xml", "whatever.war"));
+        Assert.assertEquals(ClassConflictMain.EXIT_USAGE, run("--threads"));
+        Assert.assertEquals(ClassConflictMain.EXIT_USAGE, run());
+    }
+
+    private int run(String... args) throws Exception {
+        return new ClassConflictMain().run(new PrintStream(stdout, true, "UTF-8"), new PrintStream(stderr, true, "UTF-8"), args);
+    }
 }
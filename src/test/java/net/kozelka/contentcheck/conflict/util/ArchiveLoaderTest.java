@@ -0,0 +1,98 @@
+package net.kozelka.contentcheck.conflict.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.conflict.impl.ClassConflictAnalyzer;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.model.ResourceInfo;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveLoaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File war;
+    private File webappDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        final byte[] xJar = new ZipBuilder().add("org/a/A.class", "A from jar").add("org/b/B.class", "B").toByteArray();
+        final byte[] yJar = new ZipBuilder().add("org/b/B.class", "B").toByteArray();
+        war = new ZipBuilder()
+            .add("WEB-INF/classes/org/a/A.class", "A from classes")
+            .add("WEB-INF/classes/app.properties", "x=1")
+            .add("WEB-INF/lib/x.jar", xJar)
+            .add("WEB-INF/lib/y.jar", yJar)
+            .add("WEB-INF/web.xml", "<web-app/>")
+            .writeTo(temporaryFolder.newFile("app.war"));
+        // what war:exploded would produce
+        webappDirectory = temporaryFolder.newFolder("app");
+        write(new File(webappDirectory, "WEB-INF/classes/org/a/A.class"), "A from classes".getBytes("UTF-8"));
+        write(new File(webappDirectory, "WEB-INF/classes/app.properties"), "x=1".getBytes("UTF-8"));
+        write(new File(webappDirectory, "WEB-INF/lib/x.jar"), xJar);
+        write(new File(webappDirectory, "WEB-INF/lib/y.jar"), yJar);
+        write(new File(webappDirectory, "WEB-INF/web.xml"), "<web-app/>".getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testClassesAsClasspathElement() throws Exception {
+        final List<ArchiveInfo> archives = ArchiveLoader.loadWebapp(war);
+        Assert.assertEquals("[WEB-INF/classes, WEB-INF/lib/x.jar, WEB-INF/lib/y.jar]", archives.toString());
+        Assert.assertEquals(2, archives.get(0).getResourceCount());
+        Assert.assertEquals(1, archives.get(0).getClassCount());
+
+        final ClassConflictReport report = new ClassConflictAnalyzer().analyze(archives);
+        // A differs between classes and x.jar, B is the same in both jars; overlaps are reported in both directions
+        Assert.assertEquals(4, report.getTotalOverlaps());
+        Assert.assertEquals(2, report.getTotalConflicts());
+
+        // plain war loading still sees just the jars
+        Assert.assertEquals("[WEB-INF/lib/x.jar, WEB-INF/lib/y.jar]", ArchiveLoader.loadWar(war).toString());
+    }
+
+    @Test
+    public void testSameResultFromIndexAndDirectory() throws Exception {
+        final List<String> fromWar = describe(ArchiveLoader.loadWebapp(war));
+        Assert.assertEquals(fromWar, describe(ArchiveLoader.loadWebapp(ArchiveIndex.build(war))));
+        Assert.assertEquals(fromWar, describe(ArchiveLoader.loadWebapp(webappDirectory)));
+        Assert.assertEquals(fromWar, describe(ArchiveLoader.loadExplodedWebapp(webappDirectory, 1)));
+        Assert.assertEquals(fromWar, describe(ArchiveLoader.loadArchive(webappDirectory)));
+    }
+
+    private static List<String> describe(List<ArchiveInfo> archives) {
+        final List<String> result = new ArrayList<String>();
+        for (ArchiveInfo archive : archives) {
+            final List<String> resources = new ArrayList<String>();
+            for (ResourceInfo resource : archive.getResources()) {
+                resources.add(resource.getUri() + "#" + resource.getHash());
+            }
+            // directory walk and zip differ in the order of resources, but not of archives
+            Collections.sort(resources);
+            result.add(archive.getKey() + resources);
+        }
+        return result;
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        FileUtils.mkdir(file.getParent());
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content);
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package net.kozelka.contentcheck.daemon;
+
+import java.io.File;
+import java.util.Map;
+import net.kozelka.contentcheck.SupportUtils;
+import net.kozelka.contentcheck.conflict.api.ClassConflictReport;
+import net.kozelka.contentcheck.expect.TestUtils;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.impl.ContentChecker;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.util.ExpectUtils;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckDaemonTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private CheckDaemon daemon;
+    private File portFile;
+
+    @Before
+    public void startDaemon() throws Exception {
+        portFile = new File(temp.getRoot(), "daemon.port");
+        daemon = new CheckDaemon(4);
+        daemon.start(0, portFile);
+    }
+
+    @After
+    public void stopDaemon() {
+        daemon.stop();
+    }
+
+    @Test
+    public void testCheckWithWarmCaches() throws Exception {
+        final DaemonClient client = DaemonClient.connect(portFile);
+        Assert.assertNotNull("daemon should be available", client);
+        final File war = SupportUtils.getFile("test.war");
+        final File listing = SupportUtils.getFile("content.txt");
+        for (int i = 0; i < 2; i++) {
+            final ApproverReport report = client.check(war, listing, SupportUtils.DEFAULT_CHECK_FILES_PATTERN,
+                true, SupportUtils.VENDOR1, VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME);
+            Assert.assertEquals(1, report.getUnexpectedEntries().size());
+            Assert.assertTrue(TestUtils.contains(report.getUnexpectedEntries(), "WEB-INF/lib/c.jar"));
+            Assert.assertEquals(2, report.getActualEntries().size());
+            Assert.assertTrue(report.getMissingEntries().isEmpty());
+        }
+        final Map<String, Object> stats = client.stats();
+        Assert.assertEquals(1, ((Map<?, ?>) stats.get("listings")).get("hits"));
+        Assert.assertEquals(3, ((Map<?, ?>) stats.get("vendorDecisions")).get("hits"));
+    }
+
+    @Test
+    public void testCheckOptions() throws Exception {
+        final DaemonClient client = DaemonClient.connect(portFile);
+        final File war = SupportUtils.getFile("test.war");
+        // a coordinate rule makes the checker read coordinates of the jars
+        final File listing = temp.newFile("approved-content.txt");
+        // and a digest rule makes it digest the file
+        FileUtils.fileWrite(listing, "UTF-8", "WEB-INF/lib/a.jar\n*:b\nWEB-INF/testfile.txt sha256=" + StringUtils.repeat("0", 64) + "\n");
+        final CheckOptions options = new CheckOptions();
+        options.setNestedArchiveDepth(1);
+        options.setPrefetchDepth(2);
+        options.setDigestThreads(1);
+        final File cacheFile = new File(temp.getRoot(), "coordinates-cache.properties");
+        options.setCoordinatesCacheFile(cacheFile);
+        final ApproverReport report = client.check(war, listing, "**/*", false, null, VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME, options);
+
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(war);
+        introspector.setNestedArchiveDepth(1);
+        final ContentChecker contentChecker = new ContentChecker();
+        contentChecker.setIntrospector(introspector);
+        final ApproverReport expected = contentChecker.check(listing);
+        Assert.assertEquals(expected.getActualEntries().size(), report.getActualEntries().size());
+        Assert.assertTrue(TestUtils.contains(report.getActualEntries(), "WEB-INF/lib/a.jar!/META-INF/MANIFEST.MF"));
+        Assert.assertTrue("coordinates cache should be saved", cacheFile.isFile());
+        Assert.assertEquals(1, report.getConstraintViolations().size());
+        // the report carries all metadata, so the generated listing is the same as from an in-process check
+        final File generated = new File(temp.getRoot(), "generated.txt");
+        ExpectUtils.generateListing(report.getActualEntries(), generated);
+        final File expectedGenerated = new File(temp.getRoot(), "expected-generated.txt");
+        ExpectUtils.generateListing(expected.getActualEntries(), expectedGenerated);
+        Assert.assertTrue(FileUtils.fileRead(expectedGenerated).contains("WEB-INF/testfile.txt sha256="));
+        Assert.assertEquals(FileUtils.fileRead(expectedGenerated), FileUtils.fileRead(generated));
+    }
+
+    @Test
+    public void testWarcc() throws Exception {
+        final DaemonClient client = DaemonClient.connect(portFile);
+        final ClassConflictReport report = client.warcc(SupportUtils.getFile("test.war"));
+        Assert.assertEquals(3, report.getExploredArchives().size());
+        Assert.assertEquals(0, report.getTotalOverlaps());
+    }
+
+    @Test
+    public void testFallbackWhenAbsent() throws Exception {
+        DaemonClient.connect(portFile).shutdown();
+        Thread.sleep(200);
+        Assert.assertNull("daemon should be gone", DaemonClient.connect(portFile));
+        Assert.assertNull(DaemonClient.connect(new File(temp.getRoot(), "no-such.port")));
+    }
+}
@@ -0,0 +1,82 @@
+package net.kozelka.contentcheck.expect.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.kozelka.contentcheck.SupportUtils;
+import net.kozelka.contentcheck.expect.TestUtils;
+import net.kozelka.contentcheck.expect.api.BatchReport;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchContentCheckerTest {
+
+    @Test
+    public void testSharedListingIsReadOnce() throws Exception {
+        final File listingFile = SupportUtils.getFile("content.txt");
+        final List<BatchReport.Item> items = new ArrayList<BatchReport.Item>();
+        items.add(new BatchReport.Item(SupportUtils.getFile("test.war"), listingFile));
+        items.add(new BatchReport.Item(SupportUtils.getFile("test"), listingFile));
+        items.add(new BatchReport.Item(SupportUtils.getFile("test.ear"), SupportUtils.getFile("content-toplevel-jars.txt")));
+        items.add(new BatchReport.Item(new File("does-not-exist.war"), listingFile));
+
+        final AtomicInteger listingReads = new AtomicInteger();
+        final BatchContentChecker checker = new BatchContentChecker();
+        checker.setThreads(3);
+        checker.getEvents().addListener(new ContentChecker.Events() {
+            public void summary(File sourceFile, int checkedCount, int totalCount) {
+            }
+
+            public void duplicate(File listingFile, String line) {
+            }
+
+            public void contentListingSummary(File listingFile, int pathCount) {
+                listingReads.incrementAndGet();
+            }
+        });
+        final BatchReport batchReport = checker.check(items);
+
+        Assert.assertEquals("Each listing must be read exactly once", 2, listingReads.get());
+        Assert.assertEquals(4, batchReport.getItems().size());
+        final BatchReport.Item war = batchReport.getItems().get(0);
+        Assert.assertTrue(TestUtils.contains(war.getReport().getUnexpectedEntries(), "WEB-INF/lib/a.jar"));
+        Assert.assertEquals(2, batchReport.getItems().get(1).getReport().getUnexpectedEntries().size());
+        Assert.assertTrue(batchReport.getItems().get(2).getReport().getUnexpectedEntries().isEmpty());
+        final BatchReport.Item broken = batchReport.getItems().get(3);
+        Assert.assertNull(broken.getReport());
+        Assert.assertNotNull(broken.getError());
+    }
+
+    @Test
+    public void testErrorFailsOnlyItsSource() throws Exception {
+        final File listingFile = SupportUtils.getFile("content.txt");
+        final File failing = SupportUtils.getFile("test");
+        final List<BatchReport.Item> items = new ArrayList<BatchReport.Item>();
+        items.add(new BatchReport.Item(failing, listingFile));
+        items.add(new BatchReport.Item(SupportUtils.getFile("test.war"), listingFile));
+
+        final BatchContentChecker checker = new BatchContentChecker();
+        checker.setThreads(2);
+        checker.getEvents().addListener(new ContentChecker.Events() {
+            public void summary(File sourceFile, int checkedCount, int totalCount) {
+                if (sourceFile.equals(failing)) {
+                    throw new AssertionError("listener failure");
+                }
+            }
+
+            public void duplicate(File listingFile, String line) {
+            }
+
+            public void contentListingSummary(File listingFile, int pathCount) {
+            }
+        });
+        final BatchReport batchReport = checker.check(items);
+
+        Assert.assertEquals(2, batchReport.getItems().size());
+        final BatchReport.Item broken = batchReport.getItems().get(0);
+        Assert.assertNull(broken.getReport());
+        Assert.assertNotNull(broken.getError());
+        Assert.assertNotNull(batchReport.getItems().get(1).getReport());
+    }
+}
@@ -0,0 +1,100 @@
+package net.kozelka.contentcheck.expect.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.expect.TestUtils;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.expect.util.ExpectUtils;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import net.kozelka.contentcheck.introspection.MavenCoordinatesCache;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoordinateRulesTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testParse() throws Exception {
+        final ApprovedEntry ga = ContentChecker.parseApprovedEntry("org.example:foo maxSize=1M");
+        Assert.assertTrue(ga.hasCoordinates());
+        Assert.assertEquals("org.example", ga.getGroupId());
+        Assert.assertEquals("foo", ga.getArtifactId());
+        Assert.assertNull(ga.getVersion());
+        Assert.assertEquals(1024 * 1024, ga.getMaxSize());
+        Assert.assertEquals("2.*", ContentChecker.parseApprovedEntry("org.example:bar:2.*").getVersion());
+        Assert.assertFalse(ContentChecker.parseApprovedEntry("WEB-INF/lib/foo.jar").hasCoordinates());
+    }
+
+    @Test
+    public void testCheck() throws Exception {
+        final File war = new ZipBuilder()
+            .add("WEB-INF/lib/foo-1.1.jar", jar("org.example", "foo", "1.1"))
+            .add("WEB-INF/lib/bar-3.0.jar", jar("org.example", "bar", "3.0"))
+            .add("WEB-INF/lib/evil-1.0.jar", jar("org.evil", "foo", "1.0"))
+            .add("WEB-INF/lib/legacy-0.1.jar", jar(null, null, null))
+            .writeTo(temporaryFolder.newFile("app.war"));
+        final File listing = temporaryFolder.newFile("approved-content.txt");
+        final FileOutputStream fos = new FileOutputStream(listing);
+        try {
+            fos.write(String.format("org.example:foo%norg.example:bar:2.*%n*:legacy%norg.example:missing%n").getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setSourceFile(war);
+        final ContentChecker checker = new ContentChecker();
+        checker.setIntrospector(introspector);
+        final MavenCoordinatesCache cache = new MavenCoordinatesCache();
+        checker.setCoordinatesCache(cache);
+        final ApproverReport report = checker.check(listing);
+
+        Assert.assertEquals(2, report.getUnexpectedEntries().size());
+        Assert.assertTrue(TestUtils.contains(report.getUnexpectedEntries(), "WEB-INF/lib/bar-3.0.jar"));
+        Assert.assertTrue(TestUtils.contains(report.getUnexpectedEntries(), "WEB-INF/lib/evil-1.0.jar"));
+        Assert.assertEquals(2, report.getMissingEntries().size());
+        Assert.assertEquals(4, cache.size());
+
+        // the generated listing does not mention versions
+        final File generated = new File(temporaryFolder.getRoot(), "generated.txt");
+        ExpectUtils.generateListing(report.getActualEntries(), generated);
+        final Set<String> rules = new LinkedHashSet<String>();
+        for (ApprovedEntry approved : checker.readApprovedContent(generated)) {
+            rules.add(approved.getUri());
+        }
+        final Set<String> expected = new LinkedHashSet<String>();
+        expected.add("WEB-INF/lib/legacy-0.1.jar");
+        expected.add("org.evil:foo");
+        expected.add("org.example:bar");
+        expected.add("org.example:foo");
+        Assert.assertEquals(expected, rules);
+    }
+
+    @Test
+    public void testFileNameFallbackMatchesAnyGroupOnly() throws Exception {
+        final ActualEntry legacy = TestUtils.newActualEntry("WEB-INF/lib/legacy-0.1.jar");
+        ContentChecker.setCoordinates(legacy, null);
+        Assert.assertNull(legacy.getGroupId());
+        Assert.assertTrue(ContentChecker.match(ContentChecker.parseApprovedEntry("*:legacy:0.1"), legacy));
+        Assert.assertFalse(ContentChecker.match(ContentChecker.parseApprovedEntry("*:legacy:0.2"), legacy));
+        // the file name cannot prove the group
+        Assert.assertFalse(ContentChecker.match(ContentChecker.parseApprovedEntry("org.any:legacy:0.1"), legacy));
+        Assert.assertFalse(ContentChecker.match(ContentChecker.parseApprovedEntry("org.*:legacy"), legacy));
+    }
+
+    private static byte[] jar(String groupId, String artifactId, String version) throws IOException {
+        final ZipBuilder jar = new ZipBuilder();
+        if (groupId != null) {
+            jar.addPomProperties(groupId, artifactId, version);
+        }
+        return jar.add("a/A.class", new byte[100]).toByteArray();
+    }
+}
@@ -0,0 +1,178 @@
+package net.kozelka.contentcheck.expect.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.expect.TestUtils;
+import net.kozelka.contentcheck.expect.api.ApproverReport;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.expect.model.ApprovedEntry;
+import net.kozelka.contentcheck.expect.util.ExpectUtils;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EntryConstraintsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testParse() throws Exception {
+        final ApprovedEntry plain = ContentChecker.parseApprovedEntry("WEB-INF/lib/a b.jar");
+        Assert.assertEquals("WEB-INF/lib/a b.jar", plain.getUri());
+        Assert.assertFalse(plain.hasConstraints());
+
+        final ApprovedEntry entry = ContentChecker.parseApprovedEntry("WEB-INF/lib/*.jar  maxSize=10M method=STORED\tcrc=FFFFFFFF");
+        Assert.assertEquals("WEB-INF/lib/*.jar", entry.getUri());
+        Assert.assertEquals(10L * 1024 * 1024, entry.getMaxSize());
+        Assert.assertEquals(ZipEntry.STORED, entry.getMethod());
+        Assert.assertEquals(0xffffffffL, entry.getCrc());
+
+        Assert.assertEquals(512, ContentChecker.parseApprovedEntry("x maxSize=512").getMaxSize());
+        // unknown keys are part of the path
+        Assert.assertEquals("x foo=bar", ContentChecker.parseApprovedEntry("x foo=bar").getUri());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidMethod() throws Exception {
+        ContentChecker.parseApprovedEntry("x method=BZIP2");
+    }
+
+    @Test
+    public void testParseDigest() throws Exception {
+        final String sha1 = "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709";
+        final ApprovedEntry entry = ContentChecker.parseApprovedEntry("WEB-INF/lib/a.jar sha1=" + sha1);
+        Assert.assertEquals("WEB-INF/lib/a.jar", entry.getUri());
+        Assert.assertEquals("SHA-1", entry.getDigestAlgorithm());
+        Assert.assertEquals(sha1.toLowerCase(), entry.getDigest());
+        Assert.assertTrue(entry.hasConstraints());
+        Assert.assertEquals("sha256", ExpectUtils.digestKey("SHA-256"));
+        Assert.assertEquals("MD5", ExpectUtils.digestAlgorithm("md5"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseShortDigest() throws Exception {
+        ContentChecker.parseApprovedEntry("x sha256=abcdef");
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        final Set<ApprovedEntry> approved = new LinkedHashSet<ApprovedEntry>();
+        approved.add(ContentChecker.parseApprovedEntry("big.jar maxSize=1K"));
+        approved.add(ContentChecker.parseApprovedEntry("*.jar maxSize=100"));
+        approved.add(ContentChecker.parseApprovedEntry("stored.jar method=STORED"));
+        final Set<ActualEntry> actual = new LinkedHashSet<ActualEntry>();
+        actual.add(entry("small.jar", 50, ZipEntry.DEFLATED));
+        actual.add(entry("big.jar", 1000, ZipEntry.DEFLATED));
+        actual.add(entry("huge.jar", 5000, ZipEntry.DEFLATED));
+        actual.add(entry("stored.jar", 5000, ZipEntry.DEFLATED));
+        actual.add(entry("unknown.jar", -1, -1));
+        final ApproverReport report = ContentChecker.compareEntries(approved, actual);
+        Assert.assertTrue(report.getUnexpectedEntries().isEmpty());
+        Assert.assertTrue(report.getMissingEntries().isEmpty());
+        Assert.assertEquals(2, report.getConstraintViolations().size());
+        Assert.assertTrue(TestUtils.contains(report.getConstraintViolations().keySet(), "huge.jar"));
+        Assert.assertTrue(TestUtils.contains(report.getConstraintViolations().keySet(), "stored.jar"));
+    }
+
+    @Test
+    public void testMetadataFromCentralDirectory() throws Exception {
+        final byte[] content = "hello, world".getBytes("UTF-8");
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        final File zip = new ZipBuilder()
+            .addStored("stored.txt", content)
+            .add("deflated.txt", content)
+            .writeTo(temporaryFolder.newFile("app.zip"));
+        final File listing = temporaryFolder.newFile("approved-content.txt");
+        final FileOutputStream fos = new FileOutputStream(listing);
+        try {
+            fos.write(String.format("stored.txt method=STORED crc=%08x maxSize=%d%ndeflated.txt method=STORED%n",
+                crc.getValue(), content.length).getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(zip);
+        final ContentChecker checker = new ContentChecker();
+        checker.setIntrospector(introspector);
+        final ApproverReport report = checker.check(listing);
+        Assert.assertEquals(1, report.getConstraintViolations().size());
+        final ActualEntry deflated = report.getConstraintViolations().keySet().iterator().next();
+        Assert.assertEquals("deflated.txt", deflated.getUri());
+        Assert.assertEquals(ZipEntry.DEFLATED, deflated.getMethod());
+        Assert.assertEquals(content.length, deflated.getSize());
+        Assert.assertEquals(crc.getValue(), deflated.getCrc());
+        Assert.assertTrue(deflated.getCompressedSize() > 0);
+        Assert.assertTrue(deflated.getTime() > 0);
+    }
+
+    @Test
+    public void testDigestPinning() throws Exception {
+        final byte[] original = "original build".getBytes("UTF-8");
+        final byte[] replaced = "replaced build".getBytes("UTF-8");
+        final File zip = new ZipBuilder()
+            .add("lib/a.jar", original)
+            .add("lib/b.jar", replaced)
+            .add("lib/c.jar", replaced)
+            .writeTo(temporaryFolder.newFile("app.zip"));
+        final String digest = ExpectUtils.digestKey("SHA-256") + "=" + sha256(original);
+        final File listing = temporaryFolder.newFile("approved-content.txt");
+        final FileOutputStream fos = new FileOutputStream(listing);
+        try {
+            fos.write(String.format("lib/a.jar %s%nlib/b.jar %s%nlib/c.jar%n", digest, digest).getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(zip);
+        final ContentChecker checker = new ContentChecker();
+        checker.setIntrospector(introspector);
+        checker.setDigestThreads(2);
+        final ApproverReport report = checker.check(listing);
+        Assert.assertTrue(report.getUnexpectedEntries().isEmpty());
+        Assert.assertEquals(1, report.getConstraintViolations().size());
+        Assert.assertEquals("lib/b.jar", report.getConstraintViolations().keySet().iterator().next().getUri());
+
+        // only pinned entries are digested, and the generated listing keeps the pins
+        final Iterator<ActualEntry> actual = report.getActualEntries().iterator();
+        Assert.assertEquals(sha256(original), actual.next().getDigest("SHA-256"));
+        Assert.assertEquals(sha256(replaced), actual.next().getDigest("SHA-256"));
+        Assert.assertTrue(actual.next().getDigests().isEmpty());
+        final File generated = new File(temporaryFolder.getRoot(), "generated.txt");
+        ExpectUtils.generateListing(report.getActualEntries(), generated);
+        final Set<ApprovedEntry> regenerated = checker.readApprovedContent(generated);
+        final List<ApprovedEntry> rules = new ArrayList<ApprovedEntry>(regenerated);
+        Assert.assertEquals(3, rules.size());
+        Assert.assertEquals(sha256(original), rules.get(0).getDigest());
+        Assert.assertEquals(sha256(replaced), rules.get(1).getDigest());
+        Assert.assertNull(rules.get(2).getDigest());
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static ActualEntry entry(String uri, long size, int method) {
+        final ActualEntry entry = TestUtils.newActualEntry(uri);
+        entry.setSize(size);
+        entry.setMethod(method);
+        return entry;
+    }
+}
@@ -0,0 +1,132 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import net.kozelka.contentcheck.SupportUtils;
+import net.kozelka.contentcheck.SyntheticArchive;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.conflict.model.ArchiveInfo;
+import net.kozelka.contentcheck.conflict.model.ResourceInfo;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+import net.kozelka.contentcheck.expect.impl.ContentCollector;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveIndexTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File war;
+
+    @Before
+    public void setUp() throws Exception {
+        final SyntheticArchive generator = new SyntheticArchive();
+        generator.setJarCount(6);
+        generator.setOverlapRatio(0.2);
+        generator.setVendorId(SupportUtils.VENDOR1);
+        war = generator.writeWar(temporaryFolder.newFile("synthetic.war"));
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        final ArchiveIndex index = ArchiveIndex.build(war);
+        Assert.assertTrue(index.isUpToDate());
+        // 6 jars, 6 classes, web.xml
+        Assert.assertEquals(13, index.getEntryNames().size());
+        final ArchiveIndex.NestedArchive jar = index.getNestedArchive("WEB-INF/lib/" + SyntheticArchive.jarName(0));
+        Assert.assertEquals(SupportUtils.VENDOR1, jar.getMainAttributes().getValue("Implementation-Vendor-Id"));
+        Assert.assertNull(index.getNestedArchive("WEB-INF/web.xml"));
+        Assert.assertTrue(war.setLastModified(war.lastModified() - 10000));
+        Assert.assertFalse(index.isUpToDate());
+    }
+
+    @Test
+    public void testLoadWarFromIndex() throws Exception {
+        final List<ArchiveInfo> fromFile = ArchiveLoader.loadWar(war);
+        final List<ArchiveInfo> fromIndex = ArchiveLoader.loadWar(ArchiveIndex.build(war));
+        Assert.assertEquals(describe(fromFile), describe(fromIndex));
+    }
+
+    @Test
+    public void testVendorFilterFromIndex() throws Exception {
+        final List<ActualEntry> fromFile = scan(null);
+        final List<ActualEntry> fromIndex = scan(ArchiveIndex.build(war));
+        Assert.assertEquals(3, fromFile.size());
+        Assert.assertEquals(describeEntries(fromFile), describeEntries(fromIndex));
+    }
+
+    @Test
+    public void testSameEntriesAndDuplicatesAsZipStrategy() throws Exception {
+        // renaming within the bytes gives a second entry of the same name, which ZipOutputStream refuses to write
+        final ZipBuilder builder = new ZipBuilder();
+        for (String name : new String[] {"dup/one.txt", "dup/two.txt", "other.txt"}) {
+            builder.add(name, name);
+        }
+        final byte[] content = builder.toByteArray();
+        final File zip = temporaryFolder.newFile("duplicates.zip");
+        FileUtils.fileWrite(zip, "ISO-8859-1", new String(content, "ISO-8859-1").replace("dup/two.txt", "dup/one.txt"));
+
+        final List<DuplicateEntry> fromStrategy = new ArrayList<DuplicateEntry>();
+        final ZipArchiveIntrospectorStrategy strategy = new ZipArchiveIntrospectorStrategy(new DuplicateEntryDetector.Listener() {
+            public void duplicateEntry(DuplicateEntry duplicate) {
+                fromStrategy.add(duplicate);
+            }
+        });
+        final Set<String> names = strategy.list(zip);
+        final ArchiveIndex index = ArchiveIndex.build(zip);
+        Assert.assertEquals(new ArrayList<String>(names), new ArrayList<String>(index.getEntryNames()));
+        Assert.assertEquals(1, fromStrategy.size());
+        Assert.assertEquals(1, index.getDuplicateEntries().size());
+        final DuplicateEntry duplicate = index.getDuplicateEntries().get(0);
+        Assert.assertEquals(fromStrategy.get(0).getUri(), duplicate.getUri());
+        Assert.assertEquals(fromStrategy.get(0).getFirstCrc(), duplicate.getFirstCrc());
+        Assert.assertEquals(fromStrategy.get(0).getCrc(), duplicate.getCrc());
+        Assert.assertEquals(duplicate.getFirstCrc(), index.getMetadata("dup/one.txt").getCrc());
+    }
+
+    private List<ActualEntry> scan(ArchiveIndex archiveIndex) throws Exception {
+        final ContentIntrospector introspector = new ContentIntrospector();
+        if (archiveIndex != null) {
+            introspector.setArchiveIndex(archiveIndex);
+        } else {
+            introspector.setSourceFile(war);
+        }
+        final VendorFilter vendorFilter = new VendorFilter(SupportUtils.VENDOR1);
+        vendorFilter.setArchiveIndex(archiveIndex);
+        introspector.setEntryContentFilter(vendorFilter);
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        introspector.getEvents().addListener(new ContentCollector(entries));
+        introspector.walk();
+        return entries;
+    }
+
+    private static List<String> describe(List<ArchiveInfo> archives) {
+        final List<String> result = new ArrayList<String>();
+        for (ArchiveInfo archive : archives) {
+            for (ResourceInfo resource : archive.getResources()) {
+                result.add(archive.getKey() + "!" + resource.getUri() + "#" + resource.getHash());
+            }
+        }
+        // order of archives differs - index keeps the archive order
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> describeEntries(List<ActualEntry> entries) {
+        final List<String> result = new ArrayList<String>();
+        for (ActualEntry entry : entries) {
+            result.add(entry.getUri());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
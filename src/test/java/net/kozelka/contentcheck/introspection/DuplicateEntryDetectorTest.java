@@ -0,0 +1,120 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.expect.impl.ContentCollector;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DuplicateEntryDetectorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<DuplicateEntry> duplicates = new ArrayList<DuplicateEntry>();
+    private final DuplicateEntryDetector.Listener listener = new DuplicateEntryDetector.Listener() {
+        public void duplicateEntry(DuplicateEntry duplicate) {
+            duplicates.add(duplicate);
+        }
+    };
+
+    @Test
+    public void testDetection() throws Exception {
+        final DuplicateEntryDetector detector = new DuplicateEntryDetector(listener);
+        Assert.assertFalse(detector.add("a.txt", 1));
+        Assert.assertFalse(detector.add("b.txt", 2));
+        Assert.assertTrue(detector.add("a.txt", 1));
+        Assert.assertTrue(detector.add("b.txt", 3));
+        Assert.assertTrue(detector.add("b.txt", DuplicateEntryDetector.UNKNOWN_CRC));
+        Assert.assertEquals(3, duplicates.size());
+        Assert.assertFalse(duplicates.get(0).isConflicting());
+        Assert.assertTrue(duplicates.get(1).isConflicting());
+        Assert.assertEquals(2, duplicates.get(1).getFirstCrc());
+        Assert.assertEquals(3, duplicates.get(1).getCrc());
+        Assert.assertFalse(duplicates.get(2).isConflicting());
+    }
+
+    @Test
+    public void testGrowth() throws Exception {
+        final DuplicateEntryDetector detector = new DuplicateEntryDetector(listener);
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(detector.add("com/example/Class" + i + ".class", i));
+        }
+        for (int i = 0; i < count; i += 1000) {
+            Assert.assertTrue(detector.add("com/example/Class" + i + ".class", i));
+        }
+        Assert.assertEquals(count / 1000, duplicates.size());
+        for (DuplicateEntry duplicate : duplicates) {
+            Assert.assertFalse(duplicate.getUri(), duplicate.isConflicting());
+        }
+    }
+
+    @Test
+    public void testFullCrcRange() throws Exception {
+        final DuplicateEntryDetector detector = new DuplicateEntryDetector(listener);
+        detector.add("x", 0xfedcba98L);
+        detector.add("x", 0x12345678L);
+        Assert.assertEquals(0xfedcba98L, duplicates.get(0).getFirstCrc());
+        Assert.assertTrue(duplicates.get(0).isConflicting());
+    }
+
+    @Test
+    public void testZipCentralDirectory() throws Exception {
+        final File zip = writeZipWithDuplicate();
+        final List<DuplicateEntry> found = introspect(zip, null);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals("dup.txt", found.get(0).getUri());
+        Assert.assertTrue(found.get(0).isConflicting());
+    }
+
+    @Test
+    public void testArchiveIndex() throws Exception {
+        final File zip = writeZipWithDuplicate();
+        final ArchiveIndex index = ArchiveIndex.build(zip);
+        Assert.assertEquals(1, index.getDuplicateEntries().size());
+        final List<DuplicateEntry> found = introspect(zip, index);
+        Assert.assertEquals(1, found.size());
+        Assert.assertTrue(found.get(0).isConflicting());
+    }
+
+    private List<DuplicateEntry> introspect(File zip, ArchiveIndex index) throws Exception {
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        final List<DuplicateEntry> found = new ArrayList<DuplicateEntry>();
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(zip);
+        if (index != null) {
+            introspector.setArchiveIndex(index);
+        }
+        introspector.getEvents().addListener(new ContentCollector(entries, found));
+        introspector.walk();
+        Assert.assertEquals(2, entries.size());
+        return found;
+    }
+
+    /**
+     * {@link java.util.zip.ZipOutputStream} refuses duplicate names, so the second name is patched in the written bytes.
+     */
+    private File writeZipWithDuplicate() throws Exception {
+        final byte[] content = new ZipBuilder()
+            .add("dup.txt", "first")
+            .add("other.txt", "other")
+            .add("tmp.txt", "second")
+            .toByteArray();
+        final String patched = new String(content, "ISO-8859-1").replace("tmp.txt", "dup.txt");
+        final File zip = temporaryFolder.newFile("duplicate.zip");
+        final FileOutputStream fos = new FileOutputStream(zip);
+        try {
+            fos.write(patched.getBytes("ISO-8859-1"));
+        } finally {
+            fos.close();
+        }
+        return zip;
+    }
+}
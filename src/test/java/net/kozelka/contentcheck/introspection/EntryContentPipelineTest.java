@@ -0,0 +1,104 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import net.kozelka.contentcheck.ZipBuilder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EntryContentPipelineTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testConsumersShareOneRead() throws Exception {
+        final ZipBuilder builder = new ZipBuilder();
+        final Random random = new Random(1);
+        for (String name : new String[] {"skip.bin", "small.bin", "large.bin"}) {
+            final byte[] content = new byte[name.equals("large.bin") ? 300000 : 1000];
+            random.nextBytes(content);
+            builder.add(name, content);
+        }
+        final File zip = builder.writeTo(temporaryFolder.newFile("content.zip"));
+
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(zip);
+        // the filter reads only a few bytes, and rejects one entry
+        introspector.setEntryContentFilter(new ContentIntrospector.EntryContentFilter() {
+            public boolean accept(String entryName, InputStream entryContentStream) throws IOException {
+                Assert.assertEquals(10, entryContentStream.read(new byte[10]));
+                return !entryName.equals("skip.bin");
+            }
+        });
+        final CrcConsumer crcConsumer = new CrcConsumer(null);
+        final CrcConsumer largeOnly = new CrcConsumer("large.bin");
+        final int[] earlyBytes = {0};
+        introspector.addEntryContentConsumer(crcConsumer);
+        introspector.addEntryContentConsumer(largeOnly);
+        introspector.addEntryContentConsumer(new ContentIntrospector.EntryContentConsumer() {
+            public boolean start(String entryName, EntryMetadata metadata) {
+                return true;
+            }
+
+            public boolean update(byte[] buffer, int offset, int length) {
+                earlyBytes[0] += length;
+                return false;
+            }
+
+            public void end(boolean processed) {
+            }
+        });
+        Assert.assertEquals(3, introspector.walk());
+
+        Assert.assertEquals(3, crcConsumer.crcs.size());
+        for (Map.Entry<String, Long> entry : crcConsumer.crcs.entrySet()) {
+            Assert.assertEquals(entry.getKey(), crcConsumer.expected.get(entry.getKey()), entry.getValue());
+        }
+        Assert.assertEquals(1, largeOnly.crcs.size());
+        Assert.assertEquals(largeOnly.expected.get("large.bin"), largeOnly.crcs.get("large.bin"));
+        Assert.assertEquals("[skip.bin:false, small.bin:true, large.bin:true]", crcConsumer.ended.toString());
+        // the early quitter got only what the filter read
+        Assert.assertEquals(30, earlyBytes[0]);
+    }
+
+    private static class CrcConsumer implements ContentIntrospector.EntryContentConsumer {
+        private final String only;
+        private final Map<String, Long> crcs = new HashMap<String, Long>();
+        private final Map<String, Long> expected = new HashMap<String, Long>();
+        private final List<String> ended = new ArrayList<String>();
+        private final CRC32 crc = new CRC32();
+        private String entryName;
+
+        CrcConsumer(String only) {
+            this.only = only;
+        }
+
+        public boolean start(String entryName, EntryMetadata metadata) {
+            if (only != null && !only.equals(entryName)) return false;
+            this.entryName = entryName;
+            expected.put(entryName, metadata.getCrc());
+            crc.reset();
+            return true;
+        }
+
+        public boolean update(byte[] buffer, int offset, int length) {
+            crc.update(buffer, offset, length);
+            return true;
+        }
+
+        public void end(boolean processed) {
+            crcs.put(entryName, crc.getValue());
+            ended.add(entryName + ":" + processed);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import net.kozelka.contentcheck.ZipBuilder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EntryDigesterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testDigestsSelectedEntries() throws Exception {
+        final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+        final Random random = new Random(1);
+        final ZipBuilder builder = new ZipBuilder();
+        for (int i = 0; i < 50; i++) {
+            final byte[] content = new byte[random.nextInt(200000)];
+            random.nextBytes(content);
+            final String name = String.format("lib/e%02d.jar", i);
+            contents.put(name, content);
+            builder.add(name, content);
+        }
+        // more than the workers may fall behind
+        final byte[] large = new byte[EntryDigester.MAX_PENDING_BYTES + 100000];
+        random.nextBytes(large);
+        contents.put("lib/large.jar", large);
+        builder.add("lib/large.jar", large);
+        builder.add("README.txt", "not digested");
+        final File zip = builder.writeTo(temporaryFolder.newFile("content.zip"));
+
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(zip);
+        final EntryDigester digester = new EntryDigester(new EntryDigester.Selector() {
+            public Collection<String> getAlgorithms(String entryName) {
+                return entryName.endsWith(".jar") ? Arrays.asList("SHA-256", "MD5") : null;
+            }
+        }, 4);
+        introspector.addEntryContentConsumer(digester);
+        introspector.walk();
+        final Map<String, Map<String, String>> digests = digester.finish();
+
+        Assert.assertEquals(contents.size(), digests.size());
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            final Map<String, String> entryDigests = digests.get(entry.getKey());
+            Assert.assertEquals(entry.getKey(), digest("SHA-256", entry.getValue()), entryDigests.get("SHA-256"));
+            Assert.assertEquals(entry.getKey(), digest("MD5", entry.getValue()), entryDigests.get("MD5"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAlgorithm() throws Exception {
+        EntryDigester.createDigest("SHA-999");
+    }
+
+    private static String digest(String algorithm, byte[] content) throws Exception {
+        return EntryDigester.toHex(MessageDigest.getInstance(algorithm).digest(content));
+    }
+}
@@ -0,0 +1,89 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import net.kozelka.contentcheck.SupportUtils;
+import net.kozelka.contentcheck.SyntheticArchive;
+import net.kozelka.contentcheck.expect.impl.ContentCollector;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EntryPrefetcherTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File war;
+
+    @Before
+    public void setUp() throws Exception {
+        final SyntheticArchive generator = new SyntheticArchive();
+        generator.setJarCount(20);
+        generator.setOverlapRatio(0.2);
+        generator.setVendorId(SupportUtils.VENDOR1);
+        war = generator.writeWar(temporaryFolder.newFile("synthetic.war"));
+    }
+
+    @Test
+    public void testSameResultAsSerialWalk() throws Exception {
+        final List<String> serial = scan(0, ContentIntrospector.DEFAULT_PREFETCH_BUFFER_SIZE);
+        Assert.assertFalse(serial.isEmpty());
+        Assert.assertEquals(serial, scan(4, ContentIntrospector.DEFAULT_PREFETCH_BUFFER_SIZE));
+        Assert.assertEquals(serial, scan(1, ContentIntrospector.DEFAULT_PREFETCH_BUFFER_SIZE));
+        // entries do not fit, they are read again
+        Assert.assertEquals(serial, scan(3, 100));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final IntrospectorInputStrategy failing = new IntrospectorInputStrategy() {
+            public Set<String> list(File containerFile) {
+                throw new UnsupportedOperationException();
+            }
+
+            public InputStream getInputStream(File containerFile, String entryPath) throws IOException {
+                throw new FileNotFoundException(entryPath);
+            }
+
+            public EntryMetadata getMetadata(String entryPath) {
+                return EntryMetadata.NONE;
+            }
+        };
+        final EntryPrefetcher prefetcher = new EntryPrefetcher(failing, war, Arrays.asList("a.jar", "b.txt"),
+            ContentIntrospector.ISJAR_FILTER, 2, 1024);
+        try {
+            prefetcher.next();
+            Assert.fail("the failure of the reader thread must reach the walking thread");
+        } catch (FileNotFoundException e) {
+            Assert.assertEquals("a.jar", e.getMessage());
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    private List<String> scan(int prefetchDepth, int prefetchBufferSize) throws Exception {
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setSourceFile(war);
+        introspector.setEntryContentFilter(new VendorFilter(SupportUtils.VENDOR1));
+        introspector.setPrefetchDepth(prefetchDepth);
+        introspector.setPrefetchBufferSize(prefetchBufferSize);
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        introspector.getEvents().addListener(new ContentCollector(entries));
+        introspector.walk();
+        final List<String> result = new ArrayList<String>();
+        for (ActualEntry entry : entries) {
+            result.add(entry.getUri());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import net.kozelka.contentcheck.ZipBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MavenCoordinatesResolverTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File war;
+
+    @Before
+    public void setUp() throws Exception {
+        war = new ZipBuilder()
+            .add("WEB-INF/web.xml", "<web-app/>")
+            .add("WEB-INF/lib/foo-1.0.jar", jar(pom("org.example", "foo", "1.0")))
+            // shaded jar; the pom matching the file name wins
+            .add("WEB-INF/lib/bar-2.1.jar", jar(pom("com.shaded", "dep", "0.9"), pom("org.example", "bar", "2.1")))
+            // renamed shaded jar; none of its poms tells what it is
+            .add("WEB-INF/lib/app-all.jar", jar(pom("com.google.guava", "guava", "31.1"), pom("org.example", "foo", "1.0")))
+            .add("WEB-INF/lib/plain-3.0.jar", jar())
+            .writeTo(temporaryFolder.newFile("app.war"));
+    }
+
+    @Test
+    public void testResolveAndCache() throws Exception {
+        final MavenCoordinatesCache cache = new MavenCoordinatesCache();
+        final Map<String, MavenCoordinates> coordinates = resolve(cache);
+        Assert.assertEquals(2, coordinates.size());
+        Assert.assertEquals("org.example:foo:1.0", coordinates.get("WEB-INF/lib/foo-1.0.jar").toString());
+        Assert.assertEquals("org.example:bar:2.1", coordinates.get("WEB-INF/lib/bar-2.1.jar").toString());
+        Assert.assertNull("the file name will do", coordinates.get("WEB-INF/lib/app-all.jar"));
+        // jars without pom.properties are remembered too
+        Assert.assertEquals(4, cache.size());
+
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache/coordinates.properties");
+        cache.save(cacheFile);
+        final MavenCoordinatesCache loaded = MavenCoordinatesCache.load(cacheFile);
+        Assert.assertEquals(4, loaded.size());
+        Assert.assertEquals(coordinates, resolve(loaded));
+    }
+
+    @Test
+    public void testCachedJarsAreNotRead() throws Exception {
+        final MavenCoordinatesCache cache = new MavenCoordinatesCache();
+        resolve(cache);
+        // plant different coordinates under the CRC and size of foo-1.0.jar
+        final ArchiveIndex index = ArchiveIndex.build(war);
+        final EntryMetadata foo = index.getMetadata("WEB-INF/lib/foo-1.0.jar");
+        cache.put(foo.getCrc(), foo.getSize(), new MavenCoordinates("org.cached", "foo", "1.0"));
+        Assert.assertEquals("org.cached:foo:1.0", resolve(cache).get("WEB-INF/lib/foo-1.0.jar").toString());
+    }
+
+    @Test
+    public void testFromFileName() throws Exception {
+        final MavenCoordinates coordinates = MavenCoordinates.fromFileName("WEB-INF/lib/commons-lang3-3.12.0.jar");
+        Assert.assertNull(coordinates.getGroupId());
+        Assert.assertEquals("commons-lang3", coordinates.getArtifactId());
+        Assert.assertEquals("3.12.0", coordinates.getVersion());
+        Assert.assertNull(MavenCoordinates.fromFileName("lib/slf4j-api.jar").getVersion());
+        Assert.assertNull(MavenCoordinates.fromFileName("WEB-INF/web.xml"));
+        Assert.assertNull(MavenCoordinates.parse("WEB-INF/lib/a.jar"));
+        Assert.assertNull(MavenCoordinates.parse("a:b:c:d"));
+        Assert.assertEquals("org.example", MavenCoordinates.parse("org.example:foo").getGroupId());
+    }
+
+    private Map<String, MavenCoordinates> resolve(MavenCoordinatesCache cache) throws IOException {
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(war);
+        final MavenCoordinatesResolver resolver = new MavenCoordinatesResolver(cache, 2);
+        introspector.addEntryContentConsumer(resolver);
+        try {
+            introspector.walk();
+            return resolver.finish();
+        } finally {
+            resolver.close();
+        }
+    }
+
+    private static String[] pom(String groupId, String artifactId, String version) {
+        return new String[] {groupId, artifactId, version};
+    }
+
+    private static byte[] jar(String[]... poms) throws IOException {
+        final ZipBuilder jar = new ZipBuilder().add("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+        for (String[] pom : poms) {
+            jar.addPomProperties(pom[0], pom[1], pom[2]);
+        }
+        // enough classes to span several chunks
+        final byte[] content = new byte[200000];
+        new Random(poms.length).nextBytes(content);
+        return jar.add("a/A.class", content).toByteArray();
+    }
+}
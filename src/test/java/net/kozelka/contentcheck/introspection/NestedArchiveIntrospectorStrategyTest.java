@@ -0,0 +1,156 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.kozelka.contentcheck.SupportUtils;
+import net.kozelka.contentcheck.SyntheticArchive;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.expect.impl.ContentCollector;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NestedArchiveIntrospectorStrategyTest {
+    private static final String JAR0 = "app.war!/WEB-INF/lib/" + SyntheticArchive.jarName(0);
+    private static final String JAR1 = "app.war!/WEB-INF/lib/" + SyntheticArchive.jarName(1);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File ear;
+
+    @Before
+    public void setUp() throws Exception {
+        final SyntheticArchive generator = new SyntheticArchive();
+        generator.setJarCount(2);
+        generator.setClassesPerJar(3);
+        generator.setVendorId(SupportUtils.VENDOR1);
+        final File war = generator.writeWar(temporaryFolder.newFile("app.war"));
+        ear = new ZipBuilder()
+            .add("app.war", Files.readAllBytes(war.toPath()))
+            .add("META-INF/application.xml", "<application/>")
+            .writeTo(temporaryFolder.newFile("app.ear"));
+    }
+
+    @Test
+    public void testDepthLimit() throws Exception {
+        final Set<String> top = strategy(0).list(ear);
+        Assert.assertEquals(2, top.size());
+
+        final Set<String> oneLevel = strategy(1).list(ear);
+        Assert.assertTrue(oneLevel.contains("app.war"));
+        Assert.assertTrue(oneLevel.contains("app.war!/WEB-INF/web.xml"));
+        Assert.assertTrue(oneLevel.contains(JAR0));
+        Assert.assertFalse(oneLevel.contains(JAR0 + "!/META-INF/MANIFEST.MF"));
+
+        final Set<String> twoLevels = strategy(2).list(ear);
+        Assert.assertTrue(twoLevels.containsAll(oneLevel));
+        Assert.assertTrue(twoLevels.contains(JAR0 + "!/META-INF/MANIFEST.MF"));
+    }
+
+    @Test
+    public void testNestedContent() throws Exception {
+        final InputStream is = strategy(2).getInputStream(ear, "app.war!/WEB-INF/web.xml");
+        try {
+            Assert.assertEquals("<web-app/>", IOUtil.toString(is, "UTF-8"));
+        } finally {
+            is.close();
+        }
+        try {
+            strategy(2).getInputStream(ear, "app.war!/WEB-INF/missing.xml");
+            Assert.fail("missing entry must not be found");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEachNestedArchiveInflatedOnce() throws Exception {
+        final Map<String, Integer> opened = new HashMap<String, Integer>();
+        final NestedArchiveIntrospectorStrategy strategy = new NestedArchiveIntrospectorStrategy(new ZipArchiveIntrospectorStrategy() {
+            @Override
+            public InputStream getInputStream(File containerFile, String entryPath) throws IOException {
+                final Integer count = opened.get(entryPath);
+                opened.put(entryPath, count == null ? 1 : count + 1);
+                return super.getInputStream(containerFile, entryPath);
+            }
+        }, ContentIntrospector.ISARCHIVE_FILTER, 2);
+        final Set<String> entries = strategy.list(ear);
+        opened.clear();
+        for (String entry : entries) {
+            if (entry.endsWith("/")) continue;
+            final InputStream is = strategy.getInputStream(ear, entry);
+            try {
+                IOUtil.toByteArray(is);
+            } finally {
+                is.close();
+            }
+        }
+        Assert.assertEquals("the war is read for itself and for its entries", Integer.valueOf(2), opened.get("app.war"));
+        final InputStream is = strategy.getInputStream(ear, JAR0 + "!/META-INF/MANIFEST.MF");
+        try {
+            Assert.assertTrue("going back still works", IOUtil.toString(is, "UTF-8").contains("Implementation-Vendor-Id"));
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testLargeArchivesStreamed() throws Exception {
+        final Map<String, String> buffered = readAll(strategy(2));
+        final NestedArchiveIntrospectorStrategy streaming = strategy(2);
+        streaming.setMaxBufferedSize(0);
+        Assert.assertEquals(buffered, readAll(streaming));
+        final InputStream is = streaming.getInputStream(ear, JAR0 + "!/META-INF/MANIFEST.MF");
+        try {
+            Assert.assertTrue("going back still works", IOUtil.toString(is, "UTF-8").contains("Implementation-Vendor-Id"));
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testVendorFilterOnNestedJars() throws Exception {
+        final ContentIntrospector introspector = VendorFilter.createIntrospector(new ContentCollector(new ArrayList<ActualEntry>()),
+            true, SupportUtils.VENDOR1, VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME, "**/*.jar");
+        introspector.setNestedArchiveDepth(3);
+        introspector.setSourceFile(ear);
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        introspector.getEvents().addListener(new ContentCollector(entries));
+        introspector.walk();
+        // first jar has the vendor id in its manifest
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(JAR1, entries.get(0).getUri());
+    }
+
+    private Map<String, String> readAll(NestedArchiveIntrospectorStrategy strategy) throws IOException {
+        final Map<String, String> contents = new HashMap<String, String>();
+        for (String entry : strategy.list(ear)) {
+            if (entry.endsWith("/")) continue;
+            final InputStream is = strategy.getInputStream(ear, entry);
+            try {
+                contents.put(entry, IOUtil.toString(is, "ISO-8859-1"));
+            } finally {
+                is.close();
+            }
+        }
+        return contents;
+    }
+
+    private static NestedArchiveIntrospectorStrategy strategy(int maxDepth) {
+        return new NestedArchiveIntrospectorStrategy(new ZipArchiveIntrospectorStrategy(), ContentIntrospector.ISARCHIVE_FILTER, maxDepth);
+    }
+}
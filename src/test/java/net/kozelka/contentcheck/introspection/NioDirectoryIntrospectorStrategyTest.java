@@ -0,0 +1,48 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import net.kozelka.contentcheck.SupportUtils;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NioDirectoryIntrospectorStrategyTest extends AbstractIntrospectorStrategyTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    public NioDirectoryIntrospectorStrategyTest() {
+        super(new NioDirectoryIntrospectorStrategy(), SupportUtils.getFile("test"));
+    }
+
+    @Test
+    public void testAttributes() throws Exception {
+        final File directory = SupportUtils.getFile("test");
+        final NioDirectoryIntrospectorStrategy strategy = new NioDirectoryIntrospectorStrategy();
+        strategy.list(directory);
+        final BasicFileAttributes file = strategy.getAttributes("WEB-INF/testfile.txt");
+        assertEquals(new File(directory, "WEB-INF/testfile.txt").length(), file.size());
+        assertTrue(strategy.getAttributes("WEB-INF/lib/").isDirectory());
+    }
+
+    @Test
+    public void testDefaultExcludes() throws Exception {
+        final File directory = temporaryFolder.newFolder("webapp");
+        for (String name : new String[] {"WEB-INF/web.xml", "WEB-INF/.DS_Store", ".git/config", "WEB-INF/lib/.svn/entries", "CVS/Root"}) {
+            final File file = new File(directory, name);
+            file.getParentFile().mkdirs();
+            FileUtils.fileWrite(file, "UTF-8", name);
+        }
+        final Set<String> expected = new HashSet<String>(Arrays.asList("WEB-INF/", "WEB-INF/lib/", "WEB-INF/web.xml"));
+        final NioDirectoryIntrospectorStrategy strategy = new NioDirectoryIntrospectorStrategy();
+        assertEquals(expected, new HashSet<String>(strategy.list(directory)));
+        strategy.setParallelism(4);
+        assertEquals(expected, new HashSet<String>(strategy.list(directory)));
+    }
+}
@@ -0,0 +1,15 @@
+package net.kozelka.contentcheck.introspection;
+
+import net.kozelka.contentcheck.SupportUtils;
+
+public class ParallelNioDirectoryIntrospectorStrategyTest extends AbstractIntrospectorStrategyTest {
+    public ParallelNioDirectoryIntrospectorStrategyTest() {
+        super(parallel(), SupportUtils.getFile("test"));
+    }
+
+    private static NioDirectoryIntrospectorStrategy parallel() {
+        final NioDirectoryIntrospectorStrategy strategy = new NioDirectoryIntrospectorStrategy();
+        strategy.setParallelism(4);
+        return strategy;
+    }
+}
@@ -0,0 +1,86 @@
+package net.kozelka.contentcheck.introspection;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import net.kozelka.contentcheck.SupportUtils;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.expect.impl.ContentCollector;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TarIntrospectorStrategyTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testList() throws Exception {
+        for (String name : new String[]{"dist.tar", "dist.tar.gz", "dist.tgz"}) {
+            final File tar = writeDistribution(name);
+            Assert.assertTrue(name, TarIntrospectorStrategy.isTar(tar));
+            final Set<String> entries = new TarIntrospectorStrategy().list(tar);
+            Assert.assertEquals(name, "[lib/, lib/own.jar, lib/other.jar, README.txt]", entries.toString());
+        }
+        Assert.assertFalse(TarIntrospectorStrategy.isTar(new File("app.war")));
+    }
+
+    @Test
+    public void testVendorFilterInSinglePass() throws Exception {
+        final File tar = writeDistribution("dist.tar.gz");
+        final ContentIntrospector introspector = VendorFilter.createIntrospector(new ContentCollector(new ArrayList<ActualEntry>()),
+            true, SupportUtils.VENDOR1, VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME, "**/*.jar");
+        introspector.setSourceFile(tar);
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        introspector.getEvents().addListener(new ContentCollector(entries));
+        Assert.assertEquals(4, introspector.walk());
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("lib/other.jar", entries.get(0).getUri());
+    }
+
+    private File writeDistribution(String name) throws IOException {
+        final File file = temporaryFolder.newFile(name);
+        OutputStream os = new FileOutputStream(file);
+        if (!name.endsWith(".tar")) {
+            os = new GZIPOutputStream(os);
+        }
+        final TarArchiveOutputStream tos = new TarArchiveOutputStream(os);
+        try {
+            tos.putArchiveEntry(new TarArchiveEntry("./"));
+            tos.closeArchiveEntry();
+            tos.putArchiveEntry(new TarArchiveEntry("./lib/"));
+            tos.closeArchiveEntry();
+            putFile(tos, "./lib/own.jar", jar(SupportUtils.VENDOR1));
+            putFile(tos, "./lib/other.jar", jar("org.example"));
+            putFile(tos, "./README.txt", "readme".getBytes("UTF-8"));
+        } finally {
+            tos.close();
+        }
+        return file;
+    }
+
+    private static void putFile(TarArchiveOutputStream tos, String name, byte[] content) throws IOException {
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        tos.putArchiveEntry(entry);
+        tos.write(content);
+        tos.closeArchiveEntry();
+    }
+
+    private static byte[] jar(String vendorId) throws IOException {
+        return new ZipBuilder()
+            .add("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nImplementation-Vendor-Id: " + vendorId + "\r\n\r\n")
+            .add("org/example/A.class", new byte[100])
+            .toByteArray();
+    }
+}
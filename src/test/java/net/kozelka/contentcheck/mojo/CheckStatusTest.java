@@ -0,0 +1,53 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckStatusTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFingerprint() throws Exception {
+        final File source = temporaryFolder.newFile("app.war");
+        FileUtils.fileWrite(source.getAbsolutePath(), "content");
+        final File listing = temporaryFolder.newFile("approved-content.txt");
+        FileUtils.fileWrite(listing.getAbsolutePath(), "WEB-INF/lib/a.jar\n");
+
+        final String fingerprint = CheckStatus.fingerprint(source, listing, "**/*.jar", "false");
+        Assert.assertEquals(fingerprint, CheckStatus.fingerprint(source, listing, "**/*.jar", "false"));
+        Assert.assertFalse(fingerprint.equals(CheckStatus.fingerprint(source, listing, "**/*.jar", "true")));
+
+        FileUtils.fileWrite(listing.getAbsolutePath(), "WEB-INF/lib/b.jar\n");
+        final String changedListing = CheckStatus.fingerprint(source, listing, "**/*.jar", "false");
+        Assert.assertFalse(fingerprint.equals(changedListing));
+
+        source.setLastModified(source.lastModified() - 10000);
+        Assert.assertFalse(changedListing.equals(CheckStatus.fingerprint(source, listing, "**/*.jar", "false")));
+
+        Assert.assertNull("directories are not fingerprinted", CheckStatus.fingerprint(temporaryFolder.getRoot(), listing));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final File statusFile = new File(temporaryFolder.getRoot(), "contentcheck-maven-plugin/check-status.properties");
+        Assert.assertNull(CheckStatus.load(statusFile));
+
+        final CheckStatus status = new CheckStatus();
+        status.setFingerprint("abc");
+        status.getWarnings().add("File is expected but not found: a.jar");
+        status.getWarnings().add("Missing: 1 entries");
+        status.save(statusFile);
+
+        final CheckStatus loaded = CheckStatus.load(statusFile);
+        Assert.assertEquals("abc", loaded.getFingerprint());
+        Assert.assertEquals(status.getWarnings(), loaded.getWarnings());
+
+        CheckStatus.delete(statusFile);
+        Assert.assertNull(CheckStatus.load(statusFile));
+    }
+}
@@ -0,0 +1,96 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyPredictionTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+
+    @Before
+    public void setUp() throws Exception {
+        artifacts.add(artifact("org.example", "foo", "1.0", Artifact.SCOPE_COMPILE, "jar", null));
+        artifacts.add(artifact("org.example", "bar", "2.0-SNAPSHOT", Artifact.SCOPE_RUNTIME, "jar", "jdk8"));
+        artifacts.add(artifact("org.example", "api", "1.0", Artifact.SCOPE_PROVIDED, "jar", null));
+        artifacts.add(artifact("org.example", "parent", "1.0", Artifact.SCOPE_COMPILE, "pom", null));
+        artifacts.add(artifact("net.kozelka.test", "own-module", "1.0", Artifact.SCOPE_COMPILE, "jar", null));
+        final Artifact optional = artifact("org.example", "extra", "1.0", Artifact.SCOPE_COMPILE, "jar", null);
+        optional.setOptional(true);
+        artifacts.add(optional);
+    }
+
+    @Test
+    public void testPredict() throws Exception {
+        final File fooFile = temporaryFolder.newFile("foo-1.0.jar");
+        FileUtils.fileWrite(fooFile.getPath(), "foo content");
+        artifacts.iterator().next().setFile(fooFile);
+        final Map<String, File> contentFiles = new HashMap<String, File>();
+        final List<ActualEntry> entries = DependencyPrediction.predict(artifacts, "**/*.jar", "net.kozelka.test", contentFiles);
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals("WEB-INF/lib/foo-1.0.jar", entries.get(0).getUri());
+        Assert.assertEquals("org.example", entries.get(0).getGroupId());
+        Assert.assertEquals(fooFile.length(), entries.get(0).getSize());
+        Assert.assertEquals(fooFile, contentFiles.get("WEB-INF/lib/foo-1.0.jar"));
+        Assert.assertEquals("WEB-INF/lib/bar-2.0-SNAPSHOT-jdk8.jar", entries.get(1).getUri());
+        Assert.assertEquals(1, contentFiles.size());
+        // without vendor filtering, own modules are predicted too
+        Assert.assertEquals(3, DependencyPrediction.predict(artifacts, "**/*.jar", null, contentFiles).size());
+    }
+
+    @Test
+    public void testCheckWithoutArchive() throws Exception {
+        final File listing = temporaryFolder.newFile("approved-content.txt");
+        FileUtils.fileWrite(listing.getPath(), "WEB-INF/lib/foo-1.0.jar\norg.example:bar\nWEB-INF/classes/app.properties\n");
+        createMojo(listing).execute();
+
+        // a new transitive dependency slipped in
+        artifacts.add(artifact("org.evil", "evil", "6.6", Artifact.SCOPE_RUNTIME, "jar", null));
+        try {
+            createMojo(listing).execute();
+            Assert.fail("unexpected dependency should be reported");
+        } catch (MojoFailureException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("1 unexpected entries appear in predicted content of "));
+        }
+    }
+
+    private PredictMojo createMojo(File listing) {
+        final MavenProject project = new MavenProject();
+        project.setArtifacts(artifacts);
+        final PredictMojo predict = new PredictMojo();
+        predict.project = project;
+        predict.contentListing = listing;
+        predict.checkFilesPattern = "**/*.jar";
+        predict.ignoreVendorArchives = true;
+        predict.vendorId = "net.kozelka.test";
+        predict.msgMissing = "File is expected but not found: %s";
+        predict.msgUnexpected = "Found unexpected file: %s";
+        predict.failOnMissing = true;
+        predict.failOnUnexpected = true;
+        return predict;
+    }
+
+    private static Artifact artifact(String groupId, String artifactId, String version, String scope, String type, String classifier) {
+        final DefaultArtifactHandler handler = new DefaultArtifactHandler(type);
+        handler.setExtension(type.equals("pom") ? "pom" : "jar");
+        return new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), scope, type, classifier, handler);
+    }
+}
@@ -0,0 +1,83 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.introspection.EntryMetadata;
+import org.apache.maven.model.License;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EmbeddedLicensesTest {
+
+    @Test
+    public void testPomLicensesWin() throws Exception {
+        final byte[] jar = jar("Apache-2.0",
+            "META-INF/maven/org.example/a/pom.xml", pom("The Apache Software License, Version 2.0", "http://www.apache.org/licenses/LICENSE-2.0.txt"),
+            "META-INF/LICENSE.txt", "GNU LESSER GENERAL PUBLIC LICENSE");
+        final List<License> licenses = EmbeddedLicenses.readLicenses(new ByteArrayInputStream(jar));
+        Assert.assertEquals(1, licenses.size());
+        Assert.assertEquals("The Apache Software License, Version 2.0", licenses.get(0).getName());
+        Assert.assertEquals("http://www.apache.org/licenses/LICENSE-2.0.txt", licenses.get(0).getUrl());
+    }
+
+    @Test
+    public void testBundleLicense() throws Exception {
+        final byte[] jar = jar("Apache-2.0;link=\"http://www.apache.org/licenses/LICENSE-2.0\", http://opensource.org/licenses/MIT",
+            "META-INF/LICENSE", "\n   GNU LESSER GENERAL PUBLIC LICENSE\n");
+        final List<License> licenses = EmbeddedLicenses.readLicenses(new ByteArrayInputStream(jar));
+        Assert.assertEquals(2, licenses.size());
+        Assert.assertEquals("Apache-2.0", licenses.get(0).getName());
+        Assert.assertEquals("http://www.apache.org/licenses/LICENSE-2.0", licenses.get(0).getUrl());
+        Assert.assertEquals("http://opensource.org/licenses/MIT", licenses.get(1).getUrl());
+    }
+
+    @Test
+    public void testLicenseFile() throws Exception {
+        final byte[] jar = jar(null, "META-INF/LICENSE", "\n   GNU LESSER GENERAL PUBLIC LICENSE\n  Version 2.1");
+        final List<License> licenses = EmbeddedLicenses.readLicenses(new ByteArrayInputStream(jar));
+        Assert.assertEquals(1, licenses.size());
+        Assert.assertEquals("GNU LESSER GENERAL PUBLIC LICENSE", licenses.get(0).getName());
+    }
+
+    @Test
+    public void testStreamedInChunks() throws Exception {
+        final byte[] jar = jar("MIT", "a/B.class", "xyz");
+        final EmbeddedLicenses embedded = new EmbeddedLicenses(2);
+        try {
+            feed(embedded, "WEB-INF/lib/a.jar", jar, true);
+            feed(embedded, "vendor.jar", jar, false);
+            Assert.assertFalse(embedded.start("WEB-INF/web.xml", EntryMetadata.NONE));
+            final Map<String, List<License>> licensesByEntry = embedded.finish();
+            Assert.assertEquals("MIT", licensesByEntry.get("WEB-INF/lib/a.jar").get(0).getName());
+            Assert.assertNull("skipped by the content filter", licensesByEntry.get("vendor.jar"));
+        } finally {
+            embedded.close();
+        }
+    }
+
+    private static void feed(EmbeddedLicenses embedded, String entryName, byte[] content, boolean processed) throws Exception {
+        Assert.assertTrue(embedded.start(entryName, EntryMetadata.NONE));
+        for (int off = 0; off < content.length; off += 100) {
+            if (!embedded.update(content, off, Math.min(100, content.length - off))) break;
+        }
+        embedded.end(processed);
+    }
+
+    private static String pom(String licenseName, String licenseUrl) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>a</artifactId><version>1</version>"
+            + "<licenses><license><name>" + licenseName + "</name><url>" + licenseUrl + "</url></license></licenses></project>";
+    }
+
+    private static byte[] jar(String bundleLicense, String... pathsAndContents) throws IOException {
+        final ZipBuilder jar = new ZipBuilder(bundleLicense == null
+            ? ZipBuilder.manifest()
+            : ZipBuilder.manifest(EmbeddedLicenses.BUNDLE_LICENSE, bundleLicense));
+        for (int i = 0; i < pathsAndContents.length; i += 2) {
+            jar.add(pathsAndContents[i], pathsAndContents[i + 1]);
+        }
+        return jar.toByteArray();
+    }
+}
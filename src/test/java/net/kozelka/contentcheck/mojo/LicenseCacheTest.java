@@ -0,0 +1,38 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.util.List;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.License;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LicenseCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache/licenses.json");
+        final Artifact released = LicenseShowTest.artifact("commons-lang", "2.6", null);
+        final Artifact snapshot = LicenseShowTest.artifact("mylib", "1.0-SNAPSHOT", null);
+
+        final LicenseCache cache = new LicenseCache(cacheFile);
+        cache.load();
+        Assert.assertNull(cache.get(released));
+        cache.put(released, LicenseShowTest.licenses("Apache License 2.0"));
+        cache.put(snapshot, LicenseShowTest.licenses("GPL"));
+        cache.save();
+        Assert.assertTrue(cacheFile.isFile());
+
+        final LicenseCache reloaded = new LicenseCache(cacheFile);
+        reloaded.load();
+        Assert.assertEquals(1, reloaded.size());
+        final List<License> licenses = reloaded.get(released);
+        Assert.assertEquals(1, licenses.size());
+        Assert.assertEquals("Apache License 2.0", licenses.get(0).getName());
+        Assert.assertNull("snapshots must not be cached", reloaded.get(snapshot));
+    }
+}
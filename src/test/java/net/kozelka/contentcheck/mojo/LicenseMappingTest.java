@@ -0,0 +1,45 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.model.License;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LicenseMappingTest {
+
+    @Test
+    public void testLiteralsAndPatterns() {
+        final List<License> exact = LicenseShowTest.licenses("exact");
+        final List<License> spring = LicenseShowTest.licenses("spring");
+        final List<License> commons = LicenseShowTest.licenses("commons");
+        final List<License> any = LicenseShowTest.licenses("any");
+        final Map<String, List<License>> keys = new LinkedHashMap<String, List<License>>();
+        keys.put("spring-*.jar", spring);
+        keys.put("regex:commons-(lang|io)-[0-9.]+\\.jar", commons);
+        keys.put("*-?.jar", any);
+        keys.put("spring-beans-3.0.4.RELEASE.jar", exact);
+        final LicenseMapping mapping = new LicenseMapping(keys);
+
+        Assert.assertSame(exact, mapping.get("spring-beans-3.0.4.RELEASE.jar"));
+        Assert.assertSame(spring, mapping.get("spring-core-3.0.4.RELEASE.jar"));
+        Assert.assertSame("first declared pattern wins", spring, mapping.get("spring-x-1.jar"));
+        Assert.assertSame(commons, mapping.get("commons-lang-2.6.jar"));
+        Assert.assertSame(commons, mapping.get("commons-io-2.4.jar"));
+        Assert.assertNull(mapping.get("commons-collections-3.2.jar"));
+        Assert.assertSame(any, mapping.get("foo-1.jar"));
+        Assert.assertNull(mapping.get("springframework.jar"));
+        Assert.assertNull(mapping.get(""));
+    }
+
+    @Test
+    public void testRegexPrefixWithQuantifier() {
+        final List<License> licenses = LicenseShowTest.licenses("x");
+        final Map<String, List<License>> keys = new LinkedHashMap<String, List<License>>();
+        keys.put("regex:ab?c\\.jar", licenses);
+        final LicenseMapping mapping = new LicenseMapping(keys);
+        Assert.assertSame(licenses, mapping.get("ac.jar"));
+        Assert.assertSame(licenses, mapping.get("abc.jar"));
+    }
+}
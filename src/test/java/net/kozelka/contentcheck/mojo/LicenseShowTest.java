@@ -0,0 +1,52 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.License;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LicenseShowTest {
+
+    @Test
+    public void testIndexJarNames() {
+        final Map<String, List<License>> index = new HashMap<String, List<License>>();
+        final List<License> plain = licenses("Apache License 2.0");
+        LicenseShow.indexJarNames(index, artifact("commons-lang", "2.6", null), plain);
+        final List<License> classified = licenses("MIT");
+        LicenseShow.indexJarNames(index, artifact("json-lib", "2.4", "jdk15"), classified);
+        final List<License> snapshot = licenses("GPL");
+        LicenseShow.indexJarNames(index, artifact("mylib", "1.0-20101111.192700-3", null), snapshot);
+
+        Assert.assertSame(plain, index.get("commons-lang-2.6.jar"));
+        Assert.assertSame(classified, index.get("json-lib-2.4-jdk15.jar"));
+        Assert.assertSame(snapshot, index.get("mylib-1.0-SNAPSHOT.jar"));
+        Assert.assertSame(snapshot, index.get("mylib-1.0-20101111.192700-3.jar"));
+        Assert.assertNull(index.get("lang-2.6.jar"));
+    }
+
+    @Test
+    public void testJarName() {
+        Assert.assertEquals("a.jar", LicenseShow.jarName("WEB-INF/lib/a.jar"));
+        Assert.assertEquals("a.jar", LicenseShow.jarName("a.jar"));
+    }
+
+    static List<License> licenses(String name) {
+        final License license = new License();
+        license.setName(name);
+        final List<License> licenses = new ArrayList<License>();
+        licenses.add(license);
+        return licenses;
+    }
+
+    static Artifact artifact(String artifactId, String version, String classifier) {
+        return new DefaultArtifact("org.example", artifactId, VersionRange.createFromVersion(version),
+            Artifact.SCOPE_RUNTIME, "jar", classifier, new DefaultArtifactHandler("jar"));
+    }
+}
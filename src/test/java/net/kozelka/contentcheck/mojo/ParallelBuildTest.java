@@ -0,0 +1,174 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.kozelka.contentcheck.SyntheticArchive;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs goals on several modules concurrently, the way <code>mvn -T</code> does, and compares results with a serial run.
+ *
+ * @author Petr Kozelka
+ */
+public class ParallelBuildTest {
+    private static final int MODULE_COUNT = 8;
+    private static final String VENDOR_ID = "net.kozelka.test";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testModulesInParallel() throws Exception {
+        final List<File> wars = new ArrayList<File>();
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            final SyntheticArchive generator = new SyntheticArchive();
+            generator.setJarCount(5 + i);
+            generator.setClassesPerJar(30);
+            generator.setOverlapRatio(0.1);
+            generator.setVendorId(VENDOR_ID);
+            generator.setSeed(i);
+            wars.add(generator.writeWar(temporaryFolder.newFile("module" + i + ".war")));
+        }
+
+        final List<String> serialListings = new ArrayList<String>();
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            final String listing = buildModule(wars.get(i), temporaryFolder.newFolder("serial" + i));
+            Assert.assertTrue("vendor jars are filtered, others listed", listing.contains(SyntheticArchive.jarName(1)) && !listing.contains(SyntheticArchive.jarName(0)));
+            final String licenses = listing.substring(listing.indexOf("--- show-licenses"), listing.indexOf("--- init"));
+            Assert.assertTrue("licenses listed", licenses.contains(SyntheticArchive.jarName(1)));
+            Assert.assertTrue("init lists too", listing.substring(listing.indexOf("--- init")).contains(SyntheticArchive.jarName(1)));
+            serialListings.add(listing);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(MODULE_COUNT);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < MODULE_COUNT; i++) {
+                final File war = wars.get(i);
+                final File moduleDir = temporaryFolder.newFolder("parallel" + i);
+                futures.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        start.await();
+                        return buildModule(war, moduleDir);
+                    }
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < MODULE_COUNT; i++) {
+                Assert.assertEquals("module" + i, serialListings.get(i), futures.get(i).get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs all thread-safe goals - <code>generate</code>, <code>check</code>, <code>predict</code>, <code>warcc</code>, <code>show-licenses</code> and <code>init</code> -
+     * on one module, sharing the plugin context like Maven does.
+     * @return the generated listing, followed by outputs of the other goals
+     */
+    private static String buildModule(File war, File moduleDir) throws Exception {
+        final Map<Object, Object> pluginContext = new HashMap<Object, Object>();
+        final File listing = new File(moduleDir, "approved-content.txt");
+
+        final ContentListingGeneratorMojo generate = new ContentListingGeneratorMojo();
+        generate.setPluginContext(pluginContext);
+        configure(generate, war);
+        generate.contentListing = listing;
+        generate.execute();
+
+        final ContentCheckMojo check = new ContentCheckMojo();
+        check.setPluginContext(pluginContext);
+        configure(check, war);
+        check.contentListing = listing;
+        check.contentListingGenerated = new File(moduleDir, "target/approved-content.txt");
+        check.checkStatusFile = new File(moduleDir, "target/check-status.properties");
+        check.coordinatesCacheFile = new File(moduleDir, "target/coordinates-cache.properties");
+        check.msgMissing = "File is expected but not found: %s";
+        check.msgUnexpected = "Found unexpected file: %s";
+        check.failOnMissing = true;
+        check.failOnUnexpected = true;
+        check.execute();
+
+        final PredictMojo predict = new PredictMojo();
+        predict.setPluginContext(pluginContext);
+        configure(predict, war);
+        predict.project = warProject(war);
+        predict.contentListing = listing;
+        predict.msgMissing = check.msgMissing;
+        predict.msgUnexpected = check.msgUnexpected;
+        // the project declares no dependencies, so all jars are missing
+        predict.failOnMissing = false;
+        predict.failOnUnexpected = true;
+        predict.execute();
+
+        final WarClassConflictsMojo warcc = new WarClassConflictsMojo();
+        warcc.setPluginContext(pluginContext);
+        warcc.sourceFile = war;
+        warcc.toleratedOverlapCount = Integer.MAX_VALUE;
+        warcc.toleratedConflictCount = -1;
+        warcc.execute();
+
+        final LicenseShowMojo showLicenses = new LicenseShowMojo();
+        showLicenses.setPluginContext(pluginContext);
+        configure(showLicenses, war);
+        showLicenses.embeddedLicenses = true;
+        showLicenses.dependencyLicenses = false;
+        showLicenses.csvOutput = true;
+        showLicenses.csvOutputFile = new File(moduleDir, "target/licenses.csv");
+        showLicenses.execute();
+
+        final InitMojo init = new InitMojo();
+        init.setPluginContext(pluginContext);
+        init.project = warProject(war);
+        init.outputDirectory = new File(moduleDir, "target/contentcheck-maven-plugin");
+        init.execute();
+
+        return FileUtils.fileRead(listing)
+            + "\n--- show-licenses\n" + FileUtils.fileRead(showLicenses.csvOutputFile)
+            + "\n--- init\n" + FileUtils.fileRead(new File(init.outputDirectory, "approved-content.txt"))
+            + FileUtils.fileRead(new File(init.outputDirectory, "fragment-pom.xml"));
+    }
+
+    /**
+     * @return project whose build produces given war
+     */
+    private static MavenProject warProject(File war) {
+        final MavenProject project = new MavenProject();
+        project.setGroupId(VENDOR_ID);
+        project.setArtifactId("module");
+        project.setVersion("1.0");
+        project.setPackaging("war");
+        project.setArtifact(new DefaultArtifact(VENDOR_ID, "module", VersionRange.createFromVersion("1.0"), null, "war", null,
+            new DefaultArtifactHandler("war")));
+        project.getBuild().setDirectory(war.getParent());
+        project.getBuild().setFinalName(war.getName().substring(0, war.getName().length() - ".war".length()));
+        return project;
+    }
+
+    private static void configure(AbstractArchiveContentMojo mojo, File war) {
+        mojo.sourceFile = war;
+        mojo.checkFilesPattern = "**/*.jar";
+        mojo.ignoreVendorArchives = true;
+        mojo.vendorId = VENDOR_ID;
+        mojo.manifestVendorEntry = "Implementation-Vendor-Id";
+    }
+}
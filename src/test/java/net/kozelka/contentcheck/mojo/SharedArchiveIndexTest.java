@@ -0,0 +1,30 @@
+package net.kozelka.contentcheck.mojo;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import net.kozelka.contentcheck.SyntheticArchive;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedArchiveIndexTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReuseUntilOutdated() throws Exception {
+        final File war = new SyntheticArchive().writeWar(temporaryFolder.newFile("app.war"));
+        final Map<Object, Object> pluginContext = new HashMap<Object, Object>();
+        final ArchiveIndex built = SharedArchiveIndex.getOrBuild(pluginContext, war, new SystemStreamLog());
+        Assert.assertSame(built, SharedArchiveIndex.get(pluginContext, war));
+        Assert.assertEquals(1, pluginContext.size());
+
+        Assert.assertTrue(war.setLastModified(war.lastModified() - 10000));
+        Assert.assertNull(SharedArchiveIndex.get(pluginContext, war));
+        Assert.assertTrue("outdated index should be dropped", pluginContext.isEmpty());
+    }
+}
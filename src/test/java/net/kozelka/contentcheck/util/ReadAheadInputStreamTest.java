@@ -0,0 +1,84 @@
+package net.kozelka.contentcheck.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadAheadInputStreamTest {
+
+    @Test
+    public void testSameData() throws Exception {
+        final byte[] data = new byte[1000003];
+        new Random(1).nextBytes(data);
+        final InputStream is = new ReadAheadInputStream(new ByteArrayInputStream(data), 4096, 3, "test");
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            IOUtil.copy(is, baos);
+            Assert.assertTrue(Arrays.equals(data, baos.toByteArray()));
+            Assert.assertEquals(-1, is.read());
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testFailureReachesConsumer() throws Exception {
+        final InputStream failing = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ >= 10000) throw new IOException("broken");
+                return 1;
+            }
+        };
+        final InputStream is = new ReadAheadInputStream(failing, 1024, 2, "test");
+        try {
+            IOUtil.copy(is, new ByteArrayOutputStream());
+            Assert.fail("failure must be reported");
+        } catch (IOException e) {
+            Assert.assertEquals("broken", e.getMessage());
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testUncheckedFailureReachesConsumer() throws Exception {
+        final InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("corrupt");
+            }
+        };
+        final InputStream is = new ReadAheadInputStream(failing, 1024, 2, "test");
+        try {
+            is.read();
+            Assert.fail("failure must be reported");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("corrupt", e.getMessage());
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testCloseBeforeEnd() throws Exception {
+        final InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+        };
+        final InputStream is = new ReadAheadInputStream(endless, 1024, 2, "test");
+        Assert.assertEquals(0, is.read());
+        // must not hang on the background thread
+        is.close();
+    }
+}
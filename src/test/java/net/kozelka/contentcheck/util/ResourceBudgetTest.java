@@ -0,0 +1,150 @@
+package net.kozelka.contentcheck.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import net.kozelka.contentcheck.ZipBuilder;
+import net.kozelka.contentcheck.conflict.util.ArchiveLoader;
+import net.kozelka.contentcheck.expect.impl.ContentCollector;
+import net.kozelka.contentcheck.expect.impl.VendorFilter;
+import net.kozelka.contentcheck.expect.model.ActualEntry;
+import net.kozelka.contentcheck.introspection.ArchiveIndex;
+import net.kozelka.contentcheck.introspection.ContentIntrospector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceBudgetTest {
+    private static final int BOMB_SIZE = 8 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File war;
+
+    @Before
+    public void setUp() throws Exception {
+        // a jar with a highly compressible entry, inside a war
+        final byte[] jar = new ZipBuilder()
+            .add("a/A.class", new byte[100])
+            .add("zeros.bin", new byte[BOMB_SIZE])
+            .toByteArray();
+        war = new ZipBuilder()
+            .add("WEB-INF/web.xml", "<web-app/>")
+            .add("WEB-INF/lib/bomb.jar", jar)
+            .writeTo(temporaryFolder.newFile("bomb.war"));
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        Assert.assertEquals(4, walk(new ResourceBudget()).size());
+        final ResourceBudget budget = new ResourceBudget();
+        Assert.assertEquals(1, ArchiveLoader.loadWebapp(war, budget).size());
+        Assert.assertTrue(budget.getTotalSize() > BOMB_SIZE);
+        Assert.assertFalse(budget.isLimited());
+        budget.setMaxNestingDepth(1);
+        Assert.assertTrue(budget.isLimited());
+    }
+
+    @Test
+    public void testMaxEntrySize() throws Exception {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxEntrySize(1024 * 1024);
+        assertExceeded("WEB-INF/lib/bomb.jar!/zeros.bin", budget);
+    }
+
+    @Test
+    public void testMaxCompressionRatio() throws Exception {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxCompressionRatio(100);
+        assertExceeded("WEB-INF/lib/bomb.jar!/zeros.bin", budget);
+        try {
+            ArchiveLoader.loadWebapp(war, budget);
+            Assert.fail("compression ratio of zeros.bin should exceed the budget");
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("WEB-INF/lib/bomb.jar!/zeros.bin", e.getEntryName());
+        }
+        try {
+            ArchiveIndex.build(war, budget);
+            Assert.fail("compression ratio of zeros.bin should exceed the budget");
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("WEB-INF/lib/bomb.jar!/zeros.bin", e.getEntryName());
+        }
+    }
+
+    @Test
+    public void testMaxTotalSize() throws Exception {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxTotalSize(BOMB_SIZE / 2);
+        assertExceeded("WEB-INF/lib/bomb.jar!/zeros.bin", budget);
+    }
+
+    @Test
+    public void testMaxTotalSizeWithVendorFilter() throws Exception {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxTotalSize(1024);
+        // the jar is not descended into, only its manifest is looked for
+        final ContentIntrospector introspector = VendorFilter.createIntrospector(new ContentCollector(new ArrayList<ActualEntry>()),
+            true, "net.kozelka", VendorFilter.DEFAULT_VENDOR_MANIFEST_ENTRY_NAME, "**/*");
+        introspector.setSourceFile(war);
+        introspector.setResourceBudget(budget);
+        try {
+            introspector.walk();
+            Assert.fail("the jar should exceed the budget while its manifest is looked for");
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("WEB-INF/lib/bomb.jar", e.getEntryName());
+        }
+    }
+
+    @Test
+    public void testMaxEntryCount() throws Exception {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxEntryCount(3);
+        assertExceeded("WEB-INF/lib/bomb.jar", budget);
+    }
+
+    @Test
+    public void testMaxNestingDepth() throws Exception {
+        final ResourceBudget budget = new ResourceBudget();
+        budget.setMaxNestingDepth(1);
+        Assert.assertEquals(4, walk(budget).size());
+        final File ear = new ZipBuilder()
+            .add("app.war", Files.readAllBytes(war.toPath()))
+            .writeTo(temporaryFolder.newFile("app.ear"));
+        try {
+            walk(ear, budget, 2);
+            Assert.fail("the jar is nested too deep");
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("app.war!/WEB-INF/lib/bomb.jar", e.getEntryName());
+        }
+    }
+
+    private void assertExceeded(String entryName, ResourceBudget budget) throws IOException {
+        try {
+            walk(budget);
+            Assert.fail(entryName + " should exceed the budget");
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals(entryName, e.getEntryName());
+        }
+    }
+
+    private List<ActualEntry> walk(ResourceBudget budget) throws IOException {
+        return walk(war, budget, 1);
+    }
+
+    private static List<ActualEntry> walk(File source, ResourceBudget budget, int nestedArchiveDepth) throws IOException {
+        final ContentIntrospector introspector = new ContentIntrospector();
+        introspector.setCheckFilesPattern("**/*");
+        introspector.setSourceFile(source);
+        introspector.setNestedArchiveDepth(nestedArchiveDepth);
+        introspector.setResourceBudget(budget);
+        final List<ActualEntry> entries = new ArrayList<ActualEntry>();
+        introspector.getEvents().addListener(new ContentCollector(entries));
+        introspector.walk();
+        return entries;
+    }
+}